@@ -12,24 +12,58 @@ import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.Lexer;
 import org.antlr.v4.runtime.Token;
-import org.apache.commons.io.input.CharSequenceReader;
+import org.antlr.v4.runtime.misc.Interval;
 
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import io.github.rosemoe.sora.lang.analysis.StyleReceiver;
-import io.github.rosemoe.sora.lang.styling.MappedSpans;
+import io.github.rosemoe.sora.lang.styling.Span;
 import io.github.rosemoe.sora.lang.styling.Styles;
 import io.github.rosemoe.sora.text.CharPosition;
 import io.github.rosemoe.sora.text.ContentReference;
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 
+/**
+ * Highlights a document with an ANTLR lexer.
+ *
+ * The spans of each line and the state of the lexer at the start of each line are kept
+ * between runs. The changed lines are found by comparing the text with the text of the
+ * previous run. Lexing restarts from the last saved state before the first changed line whose
+ * tokens did not look at the changed text, and stops at the first line after the changes
+ * whose state is the same as in the previous run, the spans of the remaining lines are reused. Because of this
+ * {@link #onNextToken(Token, Styles, SpansBuilder)} is only called for the tokens that are
+ * lexed again, analyzers that need the whole document should compute their results in
+ * {@link #afterAnalyze(CharSequence, Styles)}.
+ *
+ * The saved state consists of the lexer mode and mode stack, lexers that keep other state in
+ * their own fields are not supported.
+ */
 public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T> {
 
-    private final Map<Integer, Integer> mColorMap = new HashMap<>();
+    private static final int[] EMPTY_MODE_STACK = new int[0];
+
+    /**
+     * The color ids by token type
+     */
+    private int[] mColors = new int[0];
+
+    /**
+     * The text of the previous run. The lines changed since then are found by comparing it
+     * with the text of the next run, so they are always those of the text being lexed even
+     * if the document was edited while it was being copied.
+     */
+    private String mPreviousText;
+    private volatile boolean mInvalidated = true;
+
+    /**
+     * The spans and the lexer state of each line of the previous run, only accessed from the
+     * analysis thread. A line without spans has been changed and needs to be lexed again.
+     */
+    private List<List<Span>> mLines = new ArrayList<>();
+    private List<Checkpoint> mCheckpoints = new ArrayList<>();
 
     private StyleReceiver mReceiver;
     private Token mPreviousToken;
@@ -59,6 +93,7 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
 
     @Override
     public void reset(@NonNull ContentReference content, @NonNull Bundle extraArguments) {
+        mInvalidated = true;
         super.reset(content, extraArguments);
     }
 
@@ -88,7 +123,15 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
      * @param tokenType the token type from the provided lexer
      */
     protected void putColor(int id, int tokenType) {
-        mColorMap.put(tokenType, id);
+        if (tokenType < 0) {
+            return;
+        }
+        if (tokenType >= mColors.length) {
+            int oldLength = mColors.length;
+            mColors = Arrays.copyOf(mColors, Math.max(tokenType + 1, oldLength * 2));
+            Arrays.fill(mColors, oldLength, mColors.length, EditorColorScheme.TEXT_NORMAL);
+        }
+        mColors[tokenType] = id;
     }
 
     /**
@@ -98,8 +141,15 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
 
     public abstract void analyzeInBackground(CharSequence contents);
 
-    public Integer getColor(int tokenType) {
-        return mColorMap.get(tokenType);
+    /**
+     * @return The color id of the token type, {@link EditorColorScheme#TEXT_NORMAL} if the
+     * token type has no color
+     */
+    public int getColor(int tokenType) {
+        if (tokenType < 0 || tokenType >= mColors.length) {
+            return EditorColorScheme.TEXT_NORMAL;
+        }
+        return mColors[tokenType];
     }
 
     /**
@@ -119,51 +169,204 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
         }
         beforeAnalyze();
 
-        MappedSpans.Builder result = new MappedSpans.Builder(1024);
+        String contents = text.toString();
+        int[] lineStarts = getLineStarts(contents);
+        int changeIndex = updateChangedLines(contents, lineStarts.length);
 
-        try {
-            Lexer lexer = getLexer(CharStreams.fromReader(new CharSequenceReader(text)));
-            while (!delegate.isCancelled()) {
-                Token token = lexer.nextToken();
-                if (token == null) {
-                    break;
-                }
-                if (token.getType() == Token.EOF) {
-                    break;
-                }
+        LookaheadStream input = new LookaheadStream(CharStreams.fromString(contents));
+        Lexer lexer = getLexer(input);
+        lex(lexer, input, lineStarts, changeIndex, styles, delegate);
 
-                boolean skip = onNextToken(token, styles, result);
-                if (skip) {
-                    mPreviousToken = token;
-                    continue;
-                }
+        afterAnalyze(text, styles);
+        styles.spans = new LineSpans(mLines);
+        styles.finishBuilding();
+
+        if (mShouldAnalyzeInBg) {
+            analyzeInBackground(text);
+        }
+
+        mLastStyles = styles;
+        return styles;
+    }
 
-                Integer id = getColor(token.getType());
-                if (id == null) {
-                    id = EditorColorScheme.TEXT_NORMAL;
+    private void lex(Lexer lexer,
+                     LookaheadStream input,
+                     int[] lineStarts,
+                     int changeIndex,
+                     Styles styles,
+                     Delegate<T> delegate) {
+        int firstChanged = mLines.indexOf(null);
+        if (firstChanged == -1) {
+            return;
+        }
+        int lastChanged = mLines.lastIndexOf(null);
+
+        // restart from the last checkpoint whose tokens did not look at the changed text,
+        // a lexer may look past the end of a token, such as an unterminated comment
+        int line = 0;
+        int column = 0;
+        mPreviousToken = null;
+        for (int startLine = firstChanged; startLine > 0; startLine--) {
+            Checkpoint start = mCheckpoints.get(startLine);
+            if (start == null
+                    || start.lineDelta > startLine
+                    || lineStarts[startLine] + start.lookahead >= changeIndex) {
+                continue;
+            }
+            line = startLine - start.lineDelta;
+            column = start.column;
+            input.seek(lineStarts[line] + column);
+            input.setLookahead(lineStarts[startLine] + start.lookahead);
+            lexer.setLine(line + 1);
+            lexer.setCharPositionInLine(column);
+            lexer._mode = start.mode;
+            lexer._modeStack.clear();
+            for (int mode : start.modeStack) {
+                lexer._modeStack.push(mode);
+            }
+            mPreviousToken = start.previousToken;
+            break;
+        }
+
+        SpansBuilder colors = new SpansBuilder(line, column);
+        // the state of the lexer before the previous token
+        LexerState beforePrevious = null;
+        while (!delegate.isCancelled()) {
+            LexerState state = new LexerState(lexer.getLine() - 1,
+                    lexer.getCharPositionInLine(),
+                    lexer._mode,
+                    lexer._modeStack.isEmpty() ? EMPTY_MODE_STACK : lexer._modeStack.toArray(),
+                    mPreviousToken,
+                    input.getLookahead());
+
+            Token token = lexer.nextToken();
+            boolean eof = token == null || token.getType() == Token.EOF;
+            int tokenLine = eof ? lineStarts.length - 1 : token.getLine() - 1;
+
+            // the lexer has moved past the start of these lines, save the state it had
+            while (colors.mLine < tokenLine) {
+                int nextLine = colors.mLine + 1;
+                // the start of the line may be inside the previous token, such as a block
+                // comment, lexing has to restart from before that token
+                LexerState saved = state.isBefore(nextLine) || beforePrevious == null
+                        ? state
+                        : beforePrevious;
+                Checkpoint checkpoint = new Checkpoint(nextLine - saved.line, saved.column,
+                        saved.mode, saved.modeStack, saved.previousToken, colors.getLastStyle(),
+                        saved.lookahead - lineStarts[nextLine]);
+                if (saved.line > lastChanged
+                        && checkpoint.matches(mCheckpoints.get(nextLine))) {
+                    // the rest of the document lexes the same as in the previous run
+                    return;
                 }
-                result.addIfNeeded(token.getLine() - 1, token.getCharPositionInLine(), id);
+                mCheckpoints.set(nextLine, checkpoint);
+                colors.nextLine();
+            }
+            beforePrevious = state;
 
-                mPreviousToken = token;
+            if (eof) {
+                return;
             }
 
-            if (mPreviousToken != null) {
-                result.determine(mPreviousToken.getLine() - 1);
+            boolean skip = onNextToken(token, styles, colors);
+            if (!skip) {
+                colors.addIfNeeded(tokenLine, token.getCharPositionInLine(),
+                        getColor(token.getType()));
             }
+            mPreviousToken = token;
+        }
 
-            styles.spans = result.build();
-            styles.finishBuilding();
-            afterAnalyze(text, styles, result);
+        // the line being lexed is incomplete, the next run starts again from it
+        mLines.set(colors.mLine, null);
+    }
+
+    /**
+     * Marks the lines that differ from the previous run as changed, the lines between the
+     * common prefix and the common suffix of the two texts. All the lines are lexed again
+     * if there is no previous run.
+     *
+     * @return The code point index of the first changed character, {@link Integer#MAX_VALUE}
+     * if the text did not change
+     */
+    private int updateChangedLines(String text, int lineCount) {
+        String previous = mPreviousText;
+        mPreviousText = text;
+        if (mInvalidated) {
+            mInvalidated = false;
+            previous = null;
+        }
+        if (previous == null) {
+            mLines = new ArrayList<>(Collections.nCopies(lineCount, null));
+            mCheckpoints = new ArrayList<>(Collections.nCopies(lineCount, null));
+            return 0;
+        }
 
-            if (mShouldAnalyzeInBg) {
-                analyzeInBackground(text);
+        int length = Math.min(previous.length(), text.length());
+        int prefix = 0;
+        while (prefix < length && previous.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == previous.length() && prefix == text.length()) {
+            return Integer.MAX_VALUE;
+        }
+        if (prefix > 0 && Character.isHighSurrogate(text.charAt(prefix - 1))) {
+            // the surrogate pair of the changed code point
+            prefix--;
+        }
+        int suffix = 0;
+        while (suffix < length - prefix
+                && previous.charAt(previous.length() - 1 - suffix)
+                == text.charAt(text.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        int firstLine = countLines(text, 0, prefix);
+        int previousLastLine = firstLine
+                + countLines(previous, prefix, previous.length() - suffix);
+        int lastLine = firstLine + countLines(text, prefix, text.length() - suffix);
+
+        // the checkpoint of the first line is before the change and stays valid
+        mLines.subList(firstLine, previousLastLine + 1).clear();
+        mLines.addAll(firstLine, Collections.nCopies(lastLine - firstLine + 1, null));
+        mCheckpoints.subList(firstLine + 1, previousLastLine + 1).clear();
+        mCheckpoints.addAll(firstLine + 1, Collections.nCopies(lastLine - firstLine, null));
+        return text.codePointCount(0, prefix);
+    }
+
+    private static int countLines(String text, int start, int end) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
             }
-        } catch (IOException e) {
-            // ignored
         }
+        return count;
+    }
 
-        mLastStyles = styles;
-        return styles;
+    /**
+     * @return The index of the first code point of each line, the indices of an ANTLR
+     * {@link CharStream} are code points
+     */
+    private static int[] getLineStarts(CharSequence text) {
+        int[] starts = new int[64];
+        int count = 1;
+        int index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c)
+                    && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                i++;
+            }
+            index++;
+            if (c == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = index;
+            }
+        }
+        return Arrays.copyOf(starts, count);
     }
 
     @Nullable
@@ -172,9 +375,11 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
     }
 
     /**
-     * Called after the analysis has been done, used to finalize the {@link MappedSpans.Builder}
+     * Called after the analysis has been done, before the styles are sent to the editor. Only
+     * the changed lines are lexed, so the results that depend on the whole document should be
+     * computed here.
      */
-    protected void afterAnalyze(CharSequence content, Styles styles, MappedSpans.Builder colors) {
+    protected void afterAnalyze(CharSequence content, Styles styles) {
 
     }
 
@@ -187,14 +392,253 @@ public abstract class AbstractCodeAnalyzer<T> extends DiagnosticAnalyzeManager<T
      * Called when the lexer has moved to the next token
      * @param currentToken the current token
      * @param styles
-     * @param colors the current colors object, can be modified
+     * @param colors the spans of the lines being lexed, can be modified
      * @return true if the analyzer should skip on the next token
      */
-    public boolean onNextToken(Token currentToken, Styles styles, MappedSpans.Builder colors) {
+    public boolean onNextToken(Token currentToken, Styles styles, SpansBuilder colors) {
         return false;
     }
 
     public void update(Styles styles) {
         mReceiver.setStyles(this, styles);
     }
+
+    /**
+     * Writes the spans of the lines that are lexed again, each line starts with the span in
+     * effect at the end of the previous line.
+     */
+    public class SpansBuilder {
+
+        private int mLine;
+        private List<Span> mSpans;
+
+        private SpansBuilder(int line, int column) {
+            mLine = line;
+            mSpans = new ArrayList<>();
+            List<Span> previous = mLines.get(line);
+            if (previous != null) {
+                // lexing resumes in the middle of the line, keep the spans before it
+                for (Span span : previous) {
+                    if (span.column >= column) {
+                        break;
+                    }
+                    mSpans.add(span);
+                }
+            }
+            if (mSpans.isEmpty()) {
+                long style = line == 0
+                        ? EditorColorScheme.TEXT_NORMAL
+                        : getLastStyle(mLines.get(line - 1));
+                mSpans.add(Span.obtain(0, style));
+            }
+            mLines.set(line, mSpans);
+        }
+
+        /**
+         * Adds a span at the given position if its color differs from the last span
+         */
+        public void addIfNeeded(int line, int column, int colorId) {
+            if (line < mLine) {
+                return;
+            }
+            while (mLine < line) {
+                // lines started without the lexer state being known
+                mCheckpoints.set(mLine + 1, null);
+                nextLine();
+            }
+            int last = mSpans.size() - 1;
+            Span lastSpan = mSpans.get(last);
+            if (lastSpan.style == colorId) {
+                return;
+            }
+            if (lastSpan.column == column) {
+                mSpans.set(last, Span.obtain(column, colorId));
+            } else if (lastSpan.column < column) {
+                mSpans.add(Span.obtain(column, colorId));
+            }
+        }
+
+        private void nextLine() {
+            long style = getLastStyle();
+            mLine++;
+            mSpans = new ArrayList<>();
+            mSpans.add(Span.obtain(0, style));
+            mLines.set(mLine, mSpans);
+        }
+
+        private long getLastStyle() {
+            return getLastStyle(mSpans);
+        }
+
+        private long getLastStyle(@Nullable List<Span> spans) {
+            if (spans == null || spans.isEmpty()) {
+                return EditorColorScheme.TEXT_NORMAL;
+            }
+            return spans.get(spans.size() - 1).style;
+        }
+    }
+
+    /**
+     * The state of the lexer at a token boundary.
+     */
+    private static class LexerState {
+        final int line;
+        final int column;
+        final int mode;
+        final int[] modeStack;
+        final Token previousToken;
+        /**
+         * The index of the last code point looked at by the tokens before this state
+         */
+        final int lookahead;
+
+        LexerState(int line,
+                   int column,
+                   int mode,
+                   int[] modeStack,
+                   Token previousToken,
+                   int lookahead) {
+            this.line = line;
+            this.column = column;
+            this.mode = mode;
+            this.modeStack = modeStack;
+            this.previousToken = previousToken;
+            this.lookahead = lookahead;
+        }
+
+        /**
+         * @return Whether lexing from this state reaches the start of the given line
+         */
+        boolean isBefore(int line) {
+            return this.line < line || (this.line == line && column == 0);
+        }
+    }
+
+    /**
+     * The state of the lexer at the last token boundary before the start of a line, the
+     * boundary is never after the start of the line.
+     */
+    private static class Checkpoint {
+
+        /**
+         * The position of the boundary, relative to the line so it stays valid when lines
+         * are inserted or deleted before it
+         */
+        final int lineDelta;
+        final int column;
+        final int mode;
+        final int[] modeStack;
+        final Token previousToken;
+        /**
+         * The style in effect at the start of the line
+         */
+        final long style;
+        /**
+         * The last code point looked at by the tokens before the boundary, relative to the
+         * start of the line. Lexing cannot restart from the boundary if it has changed.
+         */
+        final int lookahead;
+
+        Checkpoint(int lineDelta,
+                   int column,
+                   int mode,
+                   int[] modeStack,
+                   Token previousToken,
+                   long style,
+                   int lookahead) {
+            this.lineDelta = lineDelta;
+            this.column = column;
+            this.mode = mode;
+            this.modeStack = modeStack;
+            this.previousToken = previousToken;
+            this.style = style;
+            this.lookahead = lookahead;
+        }
+
+        boolean matches(@Nullable Checkpoint other) {
+            if (other == null) {
+                return false;
+            }
+            int type = previousToken == null ? Token.INVALID_TYPE : previousToken.getType();
+            int otherType = other.previousToken == null
+                    ? Token.INVALID_TYPE
+                    : other.previousToken.getType();
+            return lineDelta == other.lineDelta
+                    && column == other.column
+                    && mode == other.mode
+                    && style == other.style
+                    && lookahead == other.lookahead
+                    && type == otherType
+                    && Arrays.equals(modeStack, other.modeStack);
+        }
+    }
+
+    /**
+     * Remembers the furthest code point the lexer has looked at.
+     */
+    private static class LookaheadStream implements CharStream {
+
+        private final CharStream mDelegate;
+        private int mLookahead = -1;
+
+        LookaheadStream(CharStream delegate) {
+            mDelegate = delegate;
+        }
+
+        int getLookahead() {
+            return mLookahead;
+        }
+
+        void setLookahead(int lookahead) {
+            mLookahead = lookahead;
+        }
+
+        @Override
+        public int LA(int i) {
+            if (i > 0) {
+                mLookahead = Math.max(mLookahead, mDelegate.index() + i - 1);
+            }
+            return mDelegate.LA(i);
+        }
+
+        @Override
+        public String getText(Interval interval) {
+            return mDelegate.getText(interval);
+        }
+
+        @Override
+        public void consume() {
+            mDelegate.consume();
+        }
+
+        @Override
+        public int mark() {
+            return mDelegate.mark();
+        }
+
+        @Override
+        public void release(int marker) {
+            mDelegate.release(marker);
+        }
+
+        @Override
+        public int index() {
+            return mDelegate.index();
+        }
+
+        @Override
+        public void seek(int index) {
+            mDelegate.seek(index);
+        }
+
+        @Override
+        public int size() {
+            return mDelegate.size();
+        }
+
+        @Override
+        public String getSourceName() {
+            return mDelegate.getSourceName();
+        }
+    }
 }
@@ -0,0 +1,192 @@
+package com.tyron.code.language;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.rosemoe.sora.lang.styling.Span;
+import io.github.rosemoe.sora.lang.styling.Spans;
+import io.github.rosemoe.sora.text.CharPosition;
+import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
+
+/**
+ * The spans produced by an {@link AbstractCodeAnalyzer}, stored as one list per line.
+ *
+ * The lists of the lines are shared with the analyzer, which reuses the lists of the lines
+ * that did not change in its next run. They are never modified in place: edits and
+ * modifications replace the list of a line, and {@link Reader#getSpansOnLine(int)} returns
+ * copies because callers may change them.
+ */
+class LineSpans implements Spans {
+
+    private static final List<Span> EMPTY_LINE =
+            Collections.singletonList(Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
+
+    private final List<List<Span>> mLines;
+
+    LineSpans(@NonNull List<List<Span>> lines) {
+        mLines = new ArrayList<>(lines);
+    }
+
+    @Override
+    public void adjustOnInsert(CharPosition start, CharPosition end) {
+        if (start.line >= mLines.size()) {
+            return;
+        }
+        List<Span> before = new ArrayList<>();
+        List<Span> after = new ArrayList<>();
+        for (Span span : getLine(start.line)) {
+            if (span.column <= start.column) {
+                before.add(span);
+            } else {
+                Span moved = span.copy();
+                moved.column = span.column - start.column + end.column;
+                after.add(moved);
+            }
+        }
+        if (start.line == end.line) {
+            before.addAll(after);
+            mLines.set(start.line, before);
+            return;
+        }
+
+        // the inserted lines take the style in effect at the insertion point
+        long style = before.get(before.size() - 1).style;
+        mLines.set(start.line, before);
+        for (int line = start.line + 1; line < end.line; line++) {
+            mLines.add(line, createLine(style));
+        }
+        List<Span> last = new ArrayList<>();
+        if (after.isEmpty() || after.get(0).column != 0) {
+            last.add(Span.obtain(0, style));
+        }
+        last.addAll(after);
+        mLines.add(end.line, last);
+    }
+
+    @Override
+    public void adjustOnDelete(CharPosition start, CharPosition end) {
+        if (end.line >= mLines.size()) {
+            return;
+        }
+        List<Span> result = new ArrayList<>();
+        for (Span span : getLine(start.line)) {
+            if (span.column >= start.column) {
+                break;
+            }
+            result.add(span);
+        }
+
+        Span inEffect = null;
+        List<Span> after = new ArrayList<>();
+        for (Span span : getLine(end.line)) {
+            if (span.column <= end.column) {
+                inEffect = span;
+            } else {
+                Span moved = span.copy();
+                moved.column = span.column - end.column + start.column;
+                after.add(moved);
+            }
+        }
+        // the span in effect at the end of the deleted range now starts where it began
+        if (inEffect != null
+                && (result.isEmpty() || result.get(result.size() - 1).style != inEffect.style)) {
+            Span moved = inEffect.copy();
+            moved.column = start.column;
+            result.add(moved);
+        }
+        result.addAll(after);
+
+        mLines.set(start.line, result);
+        mLines.subList(start.line + 1, end.line + 1).clear();
+    }
+
+    @Override
+    public int getLineCount() {
+        return mLines.size();
+    }
+
+    @Override
+    public Reader read() {
+        return new ReaderImpl();
+    }
+
+    @Override
+    public Modifier modify() {
+        return new ModifierImpl();
+    }
+
+    @Override
+    public boolean supportsModify() {
+        return true;
+    }
+
+    private List<Span> getLine(int line) {
+        List<Span> spans = mLines.get(line);
+        return spans == null || spans.isEmpty() ? EMPTY_LINE : spans;
+    }
+
+    private static List<Span> createLine(long style) {
+        List<Span> spans = new ArrayList<>();
+        spans.add(Span.obtain(0, style));
+        return spans;
+    }
+
+    private class ReaderImpl implements Spans.Reader {
+
+        private List<Span> mCurrent;
+
+        @Override
+        public void moveToLine(int line) {
+            mCurrent = line < 0 || line >= mLines.size() ? null : getLine(line);
+        }
+
+        @Override
+        public int getSpanCount() {
+            return mCurrent == null ? 1 : mCurrent.size();
+        }
+
+        @Override
+        public Span getSpanAt(int index) {
+            return mCurrent == null
+                    ? Span.obtain(0, EditorColorScheme.TEXT_NORMAL)
+                    : mCurrent.get(index);
+        }
+
+        @Override
+        public List<Span> getSpansOnLine(int line) {
+            List<Span> spans = new ArrayList<>();
+            if (line < 0 || line >= mLines.size()) {
+                spans.add(Span.obtain(0, EditorColorScheme.TEXT_NORMAL));
+                return spans;
+            }
+            for (Span span : getLine(line)) {
+                spans.add(span.copy());
+            }
+            return spans;
+        }
+    }
+
+    private class ModifierImpl implements Spans.Modifier {
+
+        @Override
+        public void setSpansOnLine(int line, List<Span> spans) {
+            while (mLines.size() <= line) {
+                mLines.add(createLine(EditorColorScheme.TEXT_NORMAL));
+            }
+            mLines.set(line, spans);
+        }
+
+        @Override
+        public void addLineAt(int line, List<Span> spans) {
+            mLines.add(line, spans);
+        }
+
+        @Override
+        public void deleteLineAt(int line) {
+            mLines.remove(line);
+        }
+    }
+}
@@ -12,10 +12,9 @@ import com.tyron.code.language.CompletionItemWrapper;
 import com.tyron.code.language.EditorFormatter;
 import com.tyron.code.language.LanguageManager;
 import com.tyron.completion.CompletionParameters;
-import com.tyron.completion.java.JavaCompletionProvider;
 import com.tyron.completion.java.compiler.services.NBLog;
 import com.tyron.completion.java.parse.CompilationInfo;
-import com.tyron.completion.model.CompletionList;
+import com.tyron.completion.main.CompletionEngine;
 import com.tyron.editor.Editor;
 import com.tyron.language.api.CodeAssistLanguage;
 
@@ -156,12 +155,25 @@ public class JavaLanguage  implements Language, EditorFormatter, CodeAssistLangu
                 .setContents(content.getReference().toString())
                 .setPrefix(prefix)
                 .build();
-        JavaCompletionProvider provider = new JavaCompletionProvider();
-        CompletionList list = provider.complete(parameters);
-
+        // results of each provider are shown as soon as they are ready, the providers
+        // are canceled when they miss the deadline or the editor abandons this request
         publisher.setUpdateThreshold(0);
-        publisher.addItems(list.getItems().stream().map(CompletionItemWrapper::new)
-                .collect(Collectors.toList()));
+        CompletionEngine.getInstance().completeConcurrently(parameters,
+                CompletionEngine.DEFAULT_DEADLINE_MILLIS,
+                () -> isCancelled(publisher),
+                batch -> publisher.addItems(batch.getItems().stream()
+                        .map(CompletionItemWrapper::new)
+                        .collect(Collectors.toList())));
+        publisher.checkCancelled();
+    }
+
+    private static boolean isCancelled(CompletionPublisher publisher) {
+        try {
+            publisher.checkCancelled();
+            return false;
+        } catch (CompletionCancelledException e) {
+            return true;
+        }
     }
 
     @Override
@@ -9,16 +9,11 @@ import org.antlr.v4.runtime.Token;
 import java.util.Stack;
 
 import io.github.rosemoe.sora.lang.styling.CodeBlock;
-import io.github.rosemoe.sora.lang.styling.MappedSpans;
 import io.github.rosemoe.sora.lang.styling.Styles;
 import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
 
 public class JsonAnalyzer extends AbstractCodeAnalyzer<Object> {
 
-    private final Stack<CodeBlock> mBlockLines = new Stack<>();
-    private int mMaxSwitch;
-    private int mCurrSwitch;
-
     @Override
     public Lexer getLexer(CharStream input) {
         return new JSONLexer(input);
@@ -42,61 +37,84 @@ public class JsonAnalyzer extends AbstractCodeAnalyzer<Object> {
     }
 
     @Override
-    protected void beforeAnalyze() {
-        mBlockLines.clear();
-        mMaxSwitch = 1;
-        mCurrSwitch = 0;
+    public boolean onNextToken(Token currentToken, Styles styles, SpansBuilder colors) {
+        if (currentToken.getType() == JSONLexer.STRING) {
+            Token previousToken = getPreviousToken();
+            if (previousToken != null && previousToken.getType() == JSONLexer.COLON) {
+                colors.addIfNeeded(currentToken.getLine() - 1,
+                        currentToken.getCharPositionInLine(), EditorColorScheme.LITERAL);
+                return true;
+            }
+        }
+        return false;
     }
 
+    /**
+     * Only the changed lines are lexed, so the blocks are found by scanning the braces of the
+     * whole document outside of strings.
+     */
     @Override
-    public boolean onNextToken(Token currentToken, Styles styles, MappedSpans.Builder colors) {
-        int line = currentToken.getLine() - 1;
-        int column = currentToken.getCharPositionInLine();
+    protected void afterAnalyze(CharSequence content, Styles styles) {
+        Stack<CodeBlock> blockLines = new Stack<>();
+        int maxSwitch = 1;
+        int currSwitch = 0;
 
-        switch (currentToken.getType()) {
-            case JSONLexer.STRING:
-                Token previousToken = getPreviousToken();
-                if (previousToken != null) {
-                    if (previousToken.getType() == JSONLexer.COLON) {
-                        colors.addIfNeeded(line, column, EditorColorScheme.LITERAL);
-                        return true;
-                    }
+        int line = 0;
+        int column = 0;
+        boolean inString = false;
+        for (int i = 0; i < content.length(); i++, column++) {
+            char c = content.charAt(i);
+            if (c == '\n') {
+                line++;
+                column = -1;
+                inString = false;
+                continue;
+            }
+            if (inString) {
+                if (c == '\\' && i + 1 < content.length() && content.charAt(i + 1) != '\n') {
+                    i++;
+                    column++;
+                } else if (c == '"') {
+                    inString = false;
                 }
-                break;
-            case JSONLexer.RBRACE:
-                if (!mBlockLines.isEmpty()) {
-                    CodeBlock b = mBlockLines.pop();
-                    b.endLine = line;
-                    b.endColumn = column;
-                    if (b.startLine != b.endLine) {
-                        styles.addCodeBlock(b);
+                continue;
+            }
+
+            switch (c) {
+                case '"':
+                    inString = true;
+                    break;
+                case '}':
+                    if (!blockLines.isEmpty()) {
+                        CodeBlock b = blockLines.pop();
+                        b.endLine = line;
+                        b.endColumn = column;
+                        if (b.startLine != b.endLine) {
+                            styles.addCodeBlock(b);
+                        }
                     }
-                }
-                return false;
-            case JSONLexer.LBRACE:
-                if (mBlockLines.isEmpty()) {
-                    if (mCurrSwitch > mMaxSwitch) {
-                        mMaxSwitch = mCurrSwitch;
+                    break;
+                case '{':
+                    if (blockLines.isEmpty()) {
+                        if (currSwitch > maxSwitch) {
+                            maxSwitch = currSwitch;
+                        }
+                        currSwitch = 0;
                     }
-                    mCurrSwitch = 0;
-                }
-                mCurrSwitch++;
-                CodeBlock block = styles.obtainNewBlock();
-                block.startLine = line;
-                block.startColumn = column;
-                mBlockLines.push(block);
-                return false;
+                    currSwitch++;
+                    CodeBlock block = styles.obtainNewBlock();
+                    block.startLine = line;
+                    block.startColumn = column;
+                    blockLines.push(block);
+                    break;
+            }
         }
-        return false;
-    }
 
-    @Override
-    protected void afterAnalyze(CharSequence content, Styles styles, MappedSpans.Builder colors) {
-        if (mBlockLines.isEmpty()) {
-            if (mMaxSwitch > mCurrSwitch) {
-                mMaxSwitch = mCurrSwitch;
+        if (blockLines.isEmpty()) {
+            if (maxSwitch > currSwitch) {
+                maxSwitch = currSwitch;
             }
         }
-        styles.setSuppressSwitch(mMaxSwitch + 10);
+        styles.setSuppressSwitch(maxSwitch + 10);
     }
 }
@@ -60,9 +60,13 @@ import com.tyron.code.util.PopupMenuHelper;
 import com.tyron.common.SharedPreferenceKeys;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.common.util.AndroidUtilities;
+import com.tyron.completion.java.JavaCompilerProvider;
+import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.completion.java.parse.ReferenceIndex;
 import com.tyron.completion.java.util.DiagnosticUtil;
 import com.tyron.completion.java.util.JavaDataContextUtil;
 import com.tyron.completion.progress.ProgressManager;
+import com.tyron.completion.xml.util.XmlDocumentCache;
 import com.tyron.editor.CharPosition;
 
 import org.apache.commons.io.FileUtils;
@@ -473,6 +477,7 @@ public class CodeEditorFragment extends Fragment implements Savable,
                     () -> ProjectManager.getInstance().getCurrentProject().getModule(mCurrentFile)
                             .getFileManager().closeFileForSnapshot(mCurrentFile));
         }
+        XmlDocumentCache.remove(mCurrentFile);
         ApplicationLoader.getDefaultPreferences().unregisterOnSharedPreferenceChangeListener(this);
     }
 
@@ -516,6 +521,20 @@ public class CodeEditorFragment extends Fragment implements Savable,
         return mCanSave && !mReading;
     }
 
+    /**
+     * The cached compilation of another file that refers to the classes of this file has been
+     * compiled against its previous contents
+     */
+    private void invalidateDependents() {
+        JavaCompilerService compiler = JavaCompilerProvider.getCurrent();
+        if (compiler == null) {
+            return;
+        }
+        File file = mCurrentFile;
+        ProgressManager.getInstance().runNonCancelableAsync(() ->
+                compiler.invalidateDependents(file.toPath()));
+    }
+
     @Override
     public void save(boolean toDisk) {
         if (!mCanSave || mReading) {
@@ -527,6 +546,12 @@ public class CodeEditorFragment extends Fragment implements Savable,
             return;
         }
 
+        ReferenceIndex referenceIndex = ProjectManager.getInstance().getReferenceIndex(mCurrentFile);
+        if (referenceIndex != null) {
+            referenceIndex.update(mCurrentFile, mEditor.getText().toString());
+            invalidateDependents();
+        }
+
         if (ProjectManager.getInstance().getCurrentProject() != null && !toDisk) {
             ProjectManager.getInstance().getCurrentProject().getModule(mCurrentFile)
                     .getFileManager()
@@ -18,6 +18,7 @@ import com.tyron.code.ui.editor.EditorViewModel;
 import com.tyron.code.ui.editor.NoOpTextActionWindow;
 import com.tyron.code.ui.project.ProjectManager;
 import com.tyron.completion.xml.model.XmlCompletionType;
+import com.tyron.completion.xml.util.XmlDocumentCache;
 import com.tyron.completion.xml.util.XmlUtils;
 import com.tyron.editor.Caret;
 import com.tyron.editor.CharPosition;
@@ -217,7 +218,10 @@ public class CodeEditorView extends CodeEditor implements Editor {
                 }
                 boolean full = c == '>';
 
-                DOMDocument document = DOMParser.getInstance().parse(getText().toString(), "", null);
+                String text = getText().toString();
+                DOMDocument document = mCurrentFile != null
+                        ? XmlDocumentCache.getDocument(mCurrentFile, text)
+                        : DOMParser.getInstance().parse(text, "", null);
                 DOMNode nodeAt = document.findNodeAt(getCursor().getLeft());
                 if (!DOMUtils.isClosed(nodeAt) && nodeAt.getNodeName() != null) {
                     if (XmlUtils.getCompletionType(document, getCursor().getLeft()) ==
@@ -294,6 +294,9 @@ public class LayoutEditorFragment extends Fragment implements ProjectManager.OnP
         super.onDestroyView();
 
         ProjectManager.getInstance().removeOnProjectOpenListener(this);
+        if (mInflater != null) {
+            mInflater.dispose();
+        }
     }
 
     private Dialog exit(String title, String message) {
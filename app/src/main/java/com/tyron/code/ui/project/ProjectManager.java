@@ -36,16 +36,19 @@ import com.tyron.code.ui.editor.log.AppLogFragment;
 import com.tyron.code.util.ProjectUtils;
 import com.tyron.common.logging.IdeLog;
 import com.tyron.common.util.DebouncerStore;
-import com.tyron.completion.java.compiler.Parser;
 import com.tyron.completion.java.parse.CompilationInfo;
+import com.tyron.completion.java.parse.ReferenceIndex;
+import com.tyron.completion.java.parse.SourceIndexer;
 import com.tyron.completion.java.provider.CompletionEngine;
-import com.tyron.completion.java.provider.PruneMethodBodies;
 import com.tyron.completion.progress.ProgressManager;
 import com.tyron.completion.xml.task.InjectResourcesTask;
+import com.tyron.completion.xml.util.XmlDocumentCache;
+import com.tyron.completion.xml.v2.AndroidXmlCompletionProvider;
 import com.tyron.completion.xml.v2.events.XmlReparsedEvent;
 import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
 import com.tyron.completion.xml.v2.project.ResourceRepositoryManager;
 import com.tyron.kotlin.completion.KotlinEnvironment;
+import com.tyron.layoutpreview.ResourceManager;
 
 import org.apache.commons.io.FileUtils;
 import org.gradle.tooling.BuildActionExecuter;
@@ -67,8 +70,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
-import javax.tools.JavaFileObject;
-import javax.tools.SimpleJavaFileObject;
 
 public class ProjectManager {
 
@@ -124,6 +125,9 @@ public class ProjectManager {
                                boolean downloadLibs,
                                TaskListener mListener,
                                ILogger logger) {
+        if (mCurrentProject != null && !mCurrentProject.equals(project)) {
+            ResourceManager.clearCaches();
+        }
         mCurrentProject = project;
 
         boolean shouldReturn = false;
@@ -159,12 +163,23 @@ public class ProjectManager {
         };
         mCurrentProject.getEventManager().subscribeEvent(FileDeletedEvent.class, (event, u) -> {
             modifiedEventConsumer.accept(event.getDeletedFile());
+            XmlDocumentCache.remove(event.getDeletedFile());
+
+            ReferenceIndex referenceIndex = getReferenceIndex(event.getDeletedFile());
+            if (referenceIndex != null) {
+                referenceIndex.remove(event.getDeletedFile());
+            }
 
             mCurrentProject.getEventManager().dispatchEvent(new XmlReparsedEvent(event.getDeletedFile()));
         });
         // listen for newly created files and notify the resources repository
         mCurrentProject.getEventManager().subscribeEvent(FileCreatedEvent.class, (event, u) -> {
             modifiedEventConsumer.accept(event.getFile());
+
+            ReferenceIndex referenceIndex = getReferenceIndex(event.getFile());
+            if (referenceIndex != null) {
+                referenceIndex.update(event.getFile());
+            }
         });
         mCurrentProject.getEventManager().subscribeEvent(XmlReparsedEvent.class,
                 (event, unsubscribe) -> DebouncerStore.DEFAULT.registerOrGetDebouncer("ResourceInjector").debounce(300, () -> ProgressManager.getInstance().runNonCancelableAsync(() -> {
@@ -350,37 +365,50 @@ public class ProjectManager {
      * <p>
      * In-order to keep indexing as fast as possible, method bodies of each classes are removed.
      * When the file is opened in the editor, its contents will be re-parsed with method bodies
-     * included.
+     * included. The pruned files are cached so unchanged files are not parsed again when the
+     * project is reopened.
      */
     private void indexModule(Module module) throws IOException {
         module.open();
         module.index();
 
         JavaModule javaModule = (JavaModule) module;
-        for (File value : javaModule.getJavaFiles().values()) {
-            CompilationInfo info = CompilationInfo.get(module.getProject(), value);
-            if (info == null) {
-                continue;
-            }
-            info.updateImmediately(new SimpleJavaFileObject(value.toURI(),
-                    JavaFileObject.Kind.SOURCE) {
-                @Override
-                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-                    Parser parser = Parser.parseFile(module.getProject(), value.toPath());
-                    // During indexing, statements inside methods are not needed so
-                    // it is stripped to speed up the index process
-                    return new PruneMethodBodies(info.impl.getJavacTask()).scan(parser.root, 0L);
-                }
-            });
+        CompilationInfo info = CompilationInfo.get(module);
+        if (info != null) {
+            File cacheDir = new File(module.getBuildDirectory(), "intermediate/java-index");
+            new SourceIndexer(cacheDir).index(info, javaModule.getJavaFiles().values());
+        }
+
+        // references are indexed in the background, queries return partial results until done
+        ReferenceIndex referenceIndex = ReferenceIndex.get(module);
+        if (referenceIndex != null) {
+            referenceIndex.index(javaModule.getJavaFiles().values());
         }
 
         KotlinEnvironment kotlinEnvironment = KotlinEnvironment.Companion.get(module);
     }
 
+    /**
+     * @return The reference index of the module of the java file, null if the file is not a
+     * java file or it is not in a java module
+     */
+    @Nullable
+    public ReferenceIndex getReferenceIndex(@NonNull File file) {
+        Project project = mCurrentProject;
+        if (project == null || !file.getName().endsWith(".java")) {
+            return null;
+        }
+        return ReferenceIndex.get(project.getModule(file));
+    }
+
     public void closeProject(@NonNull Project project) {
+        for (Module module : project.getModules()) {
+            AndroidXmlCompletionProvider.releaseFrameworkResources(module);
+        }
         if (project.equals(mCurrentProject)) {
             mCurrentProject = null;
         }
+        ResourceManager.clearCaches();
     }
 
     public synchronized Project getCurrentProject() {
@@ -0,0 +1,119 @@
+package com.tyron.code.language;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import android.os.Bundle;
+
+import com.tyron.code.language.kotlin.KotlinLexer;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.Lexer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.github.rosemoe.sora.lang.styling.Spans;
+import io.github.rosemoe.sora.lang.styling.Styles;
+import io.github.rosemoe.sora.widget.schemes.EditorColorScheme;
+
+@RunWith(RobolectricTestRunner.class)
+public class AbstractCodeAnalyzerTest {
+
+    private static final String TEXT = "val a = 1\n" +
+                                       "/* first\n" +
+                                       "second\n" +
+                                       "third */\n" +
+                                       "val b = 2\n";
+
+    @Test
+    public void testEditInsideBlockComment() {
+        TestAnalyzer analyzer = new TestAnalyzer();
+        analyzer.highlight(TEXT);
+
+        // closes the comment on its second line
+        String edited = TEXT.replace("second", "*/ val second");
+        assertEquals(new TestAnalyzer().highlight(edited), analyzer.highlight(edited));
+
+        // and opens it again
+        assertEquals(new TestAnalyzer().highlight(TEXT), analyzer.highlight(TEXT));
+    }
+
+    @Test
+    public void testEditBeforeUnterminatedComment() {
+        // the lexer looks at the rest of the document for the end of the comment
+        String text = TEXT.replace("third */", "third");
+        TestAnalyzer analyzer = new TestAnalyzer();
+        analyzer.highlight(text);
+
+        String edited = text + "*/\n";
+        assertEquals(new TestAnalyzer().highlight(edited), analyzer.highlight(edited));
+    }
+
+    @Test
+    public void testInsertAndDeleteLines() {
+        TestAnalyzer analyzer = new TestAnalyzer();
+        analyzer.highlight(TEXT);
+
+        String inserted = TEXT.replace("val b", "val c = 3\n/* new */ val b");
+        assertEquals(new TestAnalyzer().highlight(inserted), analyzer.highlight(inserted));
+
+        String deleted = inserted.replace("second\nthird */\n", "*/");
+        assertEquals(new TestAnalyzer().highlight(deleted), analyzer.highlight(deleted));
+    }
+
+    private static class TestAnalyzer extends AbstractCodeAnalyzer<Object> {
+
+        @Override
+        public void setup() {
+            putColor(EditorColorScheme.COMMENT, KotlinLexer.DelimitedComment,
+                    KotlinLexer.LineComment);
+            putColor(EditorColorScheme.KEYWORD, KotlinLexer.VAL);
+            putColor(EditorColorScheme.LITERAL, KotlinLexer.IntegerLiteral);
+        }
+
+        @Override
+        public Lexer getLexer(CharStream input) {
+            return new KotlinLexer(input);
+        }
+
+        @Override
+        public void analyzeInBackground(CharSequence contents) {
+
+        }
+
+        @Override
+        public void rerun() {
+            // the test runs the analysis on its own thread
+        }
+
+        @Override
+        public Bundle getExtraArguments() {
+            Bundle bundle = new Bundle();
+            bundle.putBoolean("loaded", true);
+            return bundle;
+        }
+
+        /**
+         * @return The spans of each line as "column:style" strings
+         */
+        @SuppressWarnings("unchecked")
+        List<List<String>> highlight(String text) {
+            Styles styles = analyze(new StringBuilder(text), mock(Delegate.class));
+            Spans.Reader reader = styles.spans.read();
+            List<List<String>> lines = new ArrayList<>();
+            for (int line = 0; line < styles.spans.getLineCount(); line++) {
+                reader.moveToLine(line);
+                List<String> spans = new ArrayList<>();
+                for (int i = 0; i < reader.getSpanCount(); i++) {
+                    spans.add(reader.getSpanAt(i).column + ":" + reader.getSpanAt(i).style);
+                }
+                lines.add(spans);
+            }
+            return lines;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy;
 import org.gradle.internal.vfs.impl.VfsRootReference;
 import org.gradle.internal.watch.registry.FileWatcherRegistryFactory;
 import org.gradle.internal.watch.registry.impl.LinuxFileWatcherRegistryFactory;
+import org.gradle.internal.watch.registry.impl.NioFileWatcherRegistryFactory;
 import org.gradle.internal.watch.registry.impl.WindowsFileWatcherRegistryFactory;
 import org.gradle.internal.watch.vfs.BuildLifecycleAwareVirtualFileSystem;
 import org.gradle.internal.watch.vfs.FileChangeListeners;
@@ -62,6 +63,7 @@ import org.gradle.internal.watch.vfs.impl.LocationsWrittenByCurrentBuild;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
 
+import net.rubygrapefruit.platform.NativeIntegrationUnavailableException;
 import net.rubygrapefruit.platform.file.FileSystems;
 
 import org.jetbrains.annotations.Nullable;
@@ -205,11 +207,17 @@ public class VirtualFileSystemServices extends AbstractPluginServiceRegistry {
                 Predicate<String> watchingFilter
         ) {
             if (operatingSystem.isWindows()) {
-                return Optional.of(new WindowsFileWatcherRegistryFactory(watchingFilter));
-            } else {
-                // TODO: MacOS?
-                return Optional.of(new LinuxFileWatcherRegistryFactory(watchingFilter));
+                try {
+                    return Optional.of(new WindowsFileWatcherRegistryFactory(watchingFilter));
+                } catch (NativeIntegrationUnavailableException e) {
+                    LOGGER.info("Native file system watching is not available, using a watch service");
+                }
+            }
+            if (NioFileWatcherRegistryFactory.isSupported()) {
+                return Optional.of(new NioFileWatcherRegistryFactory(watchingFilter));
             }
+            // polls the watched hierarchies for changes
+            return Optional.of(new LinuxFileWatcherRegistryFactory(watchingFilter));
         }
 
         FileSystemAccess createFileSystemAccess(
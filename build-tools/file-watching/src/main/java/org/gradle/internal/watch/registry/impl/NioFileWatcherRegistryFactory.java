@@ -0,0 +1,330 @@
+package org.gradle.internal.watch.registry.impl;
+
+import static org.gradle.internal.watch.registry.impl.HierarchicalFileWatcherUpdater.FileSystemLocationToWatchValidator.NO_VALIDATION;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import org.gradle.internal.watch.registry.FileWatcherProbeRegistry;
+import org.gradle.internal.watch.registry.FileWatcherUpdater;
+
+import net.rubygrapefruit.platform.file.FileWatchEvent;
+import net.rubygrapefruit.platform.file.FileWatcher;
+import net.rubygrapefruit.platform.internal.jni.AbstractFileEventFunctions;
+import net.rubygrapefruit.platform.internal.jni.InsufficientResourcesForWatchingException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * File watcher registry backed by {@link WatchService}, used when the native file events
+ * library is not available.
+ *
+ * A watch service only reports the changes of the direct children of a directory, so every
+ * directory of a watched hierarchy is registered, including the ones created while it is
+ * watched. The watched locations are the watchable hierarchies like for the other hierarchical
+ * watchers, a change only invalidates the snapshots of the changed path.
+ *
+ * When a directory can't be registered, e.g. because the inotify watches limit has been
+ * reached, the changes below it would be missed, so watching fails and the virtual file system
+ * stops watching instead.
+ */
+public class NioFileWatcherRegistryFactory extends AbstractFileWatcherRegistryFactory<NioFileWatcherRegistryFactory.NioFileEventFunctions, NioFileWatcherRegistryFactory.NioFileWatcher> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NioFileWatcherRegistryFactory.class);
+
+    /**
+     * @return Whether the default file system supports watching for changes
+     */
+    public static boolean isSupported() {
+        try (WatchService ignored = FileSystems.getDefault().newWatchService()) {
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.debug("File watching with a watch service is not supported", e);
+            return false;
+        }
+    }
+
+    public NioFileWatcherRegistryFactory(Predicate<String> watchFilter) {
+        super(new NioFileEventFunctions(), watchFilter);
+    }
+
+    @Override
+    protected NioFileWatcher createFileWatcher(BlockingQueue<FileWatchEvent> fileEvents) throws InterruptedException {
+        return fileEventFunctions.newWatcher(fileEvents).start();
+    }
+
+    @Override
+    protected FileWatcherUpdater createFileWatcherUpdater(NioFileWatcher watcher, FileWatcherProbeRegistry probeRegistry, WatchableHierarchies watchableHierarchies) {
+        return new HierarchicalFileWatcherUpdater(watcher, NO_VALIDATION, probeRegistry, watchableHierarchies, root -> watcher.stopWatchingMovedPaths());
+    }
+
+    protected interface ChangeListener {
+        void onChange(FileWatchEvent.ChangeType type, Path path);
+
+        /**
+         * Called when a directory created while watching can't be watched
+         */
+        void onFailure(Throwable failure);
+    }
+
+    protected static class NioFileWatcher implements FileWatcher {
+
+        private final WatchService watchService;
+        private final ChangeListener listener;
+        private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+        private final Set<Path> watchedRoots = ConcurrentHashMap.newKeySet();
+        private final Thread thread;
+
+        public NioFileWatcher(ChangeListener listener) {
+            try {
+                this.watchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.listener = listener;
+            this.thread = new Thread(this::processEvents, "File watcher (watch service)");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        @Override
+        public void startWatching(Collection<File> roots) throws InsufficientResourcesForWatchingException {
+            for (File root : roots) {
+                Path path = root.toPath().toAbsolutePath();
+                if (watchedRoots.add(path)) {
+                    registerAll(path);
+                }
+            }
+        }
+
+        @Override
+        public boolean stopWatching(Collection<File> roots) {
+            boolean stopped = false;
+            for (File root : roots) {
+                Path path = root.toPath().toAbsolutePath();
+                if (watchedRoots.remove(path)) {
+                    unregisterAll(path);
+                    stopped = true;
+                }
+            }
+            return stopped;
+        }
+
+        /**
+         * Stops watching the roots that have been moved or deleted, the keys of their
+         * directories are no longer valid.
+         */
+        public Collection<File> stopWatchingMovedPaths() {
+            List<File> movedRoots = new ArrayList<>();
+            for (Path root : watchedRoots) {
+                if (!Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS)) {
+                    movedRoots.add(root.toFile());
+                }
+            }
+            stopWatching(movedRoots);
+            return movedRoots;
+        }
+
+        /**
+         * Registers the directory and all of its subdirectories
+         *
+         * @throws InsufficientResourcesForWatchingException if a directory can't be registered
+         */
+        private void registerAll(Path start) throws InsufficientResourcesForWatchingException {
+            if (!Files.isDirectory(start, LinkOption.NOFOLLOW_LINKS)) {
+                return;
+            }
+            try {
+                Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        try {
+                            WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                            watchedDirectories.put(key, dir);
+                            return FileVisitResult.CONTINUE;
+                        } catch (NoSuchFileException e) {
+                            // the directory has been removed while walking
+                            return FileVisitResult.SKIP_SUBTREE;
+                        } catch (IOException e) {
+                            throw new InsufficientResourcesForWatchingException(
+                                    "Unable to watch " + dir + ": " + e.getMessage());
+                        }
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                        // the directory has been removed while walking or can't be read
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException | ClosedWatchServiceException e) {
+                LOGGER.debug("Unable to watch {}", start, e);
+            }
+        }
+
+        private void unregisterAll(Path root) {
+            watchedDirectories.entrySet().removeIf(entry -> {
+                Path directory = entry.getValue();
+                if (!directory.startsWith(root) || isInWatchedRoot(directory)) {
+                    return false;
+                }
+                entry.getKey().cancel();
+                return true;
+            });
+        }
+
+        private boolean isInWatchedRoot(Path directory) {
+            for (Path root : watchedRoots) {
+                if (directory.startsWith(root)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void processEvents() {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watchService.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    return;
+                }
+
+                Path directory = watchedDirectories.get(key);
+                if (directory == null) {
+                    key.cancel();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (kind == OVERFLOW) {
+                        // events have been lost, including the creation of subdirectories that
+                        // are not registered yet, the whole directory has to be walked again
+                        if (register(directory)) {
+                            listener.onChange(FileWatchEvent.ChangeType.INVALIDATED, directory);
+                        }
+                        continue;
+                    }
+
+                    Path child = directory.resolve((Path) event.context());
+                    if (kind == ENTRY_CREATE) {
+                        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS) && !register(child)) {
+                            continue;
+                        }
+                        listener.onChange(FileWatchEvent.ChangeType.CREATED, child);
+                    } else if (kind == ENTRY_DELETE) {
+                        listener.onChange(FileWatchEvent.ChangeType.REMOVED, child);
+                    } else if (kind == ENTRY_MODIFY) {
+                        if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                            // the changes of its children are reported by its own key
+                            continue;
+                        }
+                        listener.onChange(FileWatchEvent.ChangeType.MODIFIED, child);
+                    }
+                }
+                if (!key.reset()) {
+                    // the directory has been deleted or is no longer accessible
+                    watchedDirectories.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Registers a directory found while processing the events, a failure is reported to the
+         * listener since there is no caller to throw it to.
+         *
+         * @return Whether the directory is watched
+         */
+        private boolean register(Path directory) {
+            try {
+                registerAll(directory);
+                return true;
+            } catch (InsufficientResourcesForWatchingException e) {
+                listener.onFailure(e);
+                return false;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                LOGGER.debug("Unable to close the watch service", e);
+            }
+            watchedDirectories.clear();
+            watchedRoots.clear();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            thread.join(unit.toMillis(timeout));
+            return !thread.isAlive();
+        }
+    }
+
+    protected static class NioFileEventFunctions extends AbstractFileEventFunctions<NioFileWatcher> {
+
+        @Override
+        public void invalidateLogLevelCache() {
+
+        }
+
+        @Override
+        public AbstractWatcherBuilder<NioFileWatcher> newWatcher(BlockingQueue<FileWatchEvent> blockingQueue) {
+            return new AbstractWatcherBuilder<NioFileWatcher>(blockingQueue) {
+                @Override
+                protected Object startWatcher(NativeFileWatcherCallback nativeFileWatcherCallback) {
+                    return new Object();
+                }
+
+                @Override
+                protected NioFileWatcher createWatcher(Object o,
+                                                       long l,
+                                                       TimeUnit timeUnit,
+                                                       NativeFileWatcherCallback nativeFileWatcherCallback) {
+                    return new NioFileWatcher(new ChangeListener() {
+                        @Override
+                        public void onChange(FileWatchEvent.ChangeType type, Path path) {
+                            nativeFileWatcherCallback.reportChangeEvent(type.ordinal(), path.toString());
+                        }
+
+                        @Override
+                        public void onFailure(Throwable failure) {
+                            nativeFileWatcherCallback.reportFailure(failure);
+                        }
+                    });
+                }
+            };
+        }
+    }
+}
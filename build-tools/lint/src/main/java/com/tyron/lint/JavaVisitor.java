@@ -7,6 +7,7 @@ import androidx.annotation.NonNull;
 import com.tyron.completion.java.compiler.CompilerContainer;
 import com.tyron.completion.java.CompilerProvider;
 import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.lint.api.Detector;
 import com.tyron.lint.api.Detector.JavaScanner;
 import com.tyron.lint.api.JavaContext;
@@ -64,27 +65,46 @@ public class JavaVisitor {
     }
 
     public void visitFile(JavaContext context) {
+        CompilerContainer container;
         try {
-            CompilerContainer container = mCompiler.compile(context.file.toPath());
-            container.run(task -> {
-                Tree compilationUnit = task.root();
-                context.setCompileTask(task);
+            container = mCompiler.compile(context.file.toPath());
+        } catch (ProcessCanceledException e) {
+            throw e;
+        } catch (Throwable e) {
+            Log.e("Lint", "Failed to compile file", e);
+            return;
+        }
+        container.run(task -> {
+            context.setCompileTask(task);
+            visitCompilationUnit(context);
+        });
+    }
 
-                for (VisitingDetector v : mAllDetectors) {
-                    v.setContext(context);
-                }
+    /**
+     * Runs the detectors on the compilation unit of the context, the context must already have
+     * its compile task set. A visitor keeps the state of the file it is visiting so it must
+     * not be shared between threads.
+     */
+    public void visitCompilationUnit(JavaContext context) {
+        try {
+            Tree compilationUnit = context.getCompilationUnit();
 
-                if (!mMethodDetectors.isEmpty()) {
-                    JavaVoidVisitor visitor = new DelegatingJavaVisitor(context);
-                    compilationUnit.accept(visitor, null);
-                } else if (!mTreeTypeDetectors.isEmpty()) {
-                    JavaVoidVisitor visitor = new DispatchVisitor();
-                    compilationUnit.accept(visitor, null);
-                }
-            });
+            for (VisitingDetector v : mAllDetectors) {
+                v.setContext(context);
+            }
+
+            if (!mMethodDetectors.isEmpty()) {
+                JavaVoidVisitor visitor = new DelegatingJavaVisitor(context);
+                compilationUnit.accept(visitor, null);
+            } else if (!mTreeTypeDetectors.isEmpty()) {
+                JavaVoidVisitor visitor = new DispatchVisitor();
+                compilationUnit.accept(visitor, null);
+            }
+        } catch (ProcessCanceledException e) {
+            throw e;
         } catch (Throwable e) {
-            Log.e("Lint", "Failed to analyze file", e);
-            ((JavaCompilerService) mCompiler).destroy();
+            // a failing detector says nothing about the state of the compiler
+            Log.e("Lint", "Failed to analyze file " + context.file, e);
         }
     }
 
@@ -7,6 +7,7 @@ import com.tyron.builder.project.api.JavaModule;
 import com.tyron.completion.java.compiler.CompileTask;
 import com.tyron.lint.client.Configuration;
 import com.tyron.lint.client.LintDriver;
+import com.tyron.lint.client.SuppressionScopes;
 
 import org.jetbrains.kotlin.com.intellij.psi.PsiAnnotation;
 import org.jetbrains.kotlin.com.intellij.psi.PsiAnonymousClass;
@@ -32,6 +33,8 @@ import java.io.File;
 public class JavaContext extends Context {
     static final String SUPPRESS_COMMENT_PREFIX = "//noinspection ";
     private CompileTask mCompileTask;
+    private CompilationUnitTree mCompilationUnit;
+    private SuppressionScopes mSuppressionScopes;
 
     public JavaContext(LintDriver driver, JavaModule project, File file, Configuration config) {
         super(driver, project, file, config);
@@ -39,16 +42,37 @@ public class JavaContext extends Context {
 
     public void setCompileTask(CompileTask root) {
         mCompileTask = root;
+        mSuppressionScopes = null;
     }
 
     public CompileTask getCompileTask() {
         return mCompileTask;
     }
 
+    /**
+     * Sets the compilation unit of this file, needed when the compile task contains more
+     * than one file
+     */
+    public void setCompilationUnit(CompilationUnitTree unit) {
+        mCompilationUnit = unit;
+        mSuppressionScopes = null;
+    }
+
     public CompilationUnitTree getCompilationUnit() {
+        if (mCompilationUnit != null) {
+            return mCompilationUnit;
+        }
         return mCompileTask.root();
     }
 
+    @NonNull
+    public SuppressionScopes getSuppressionScopes() {
+        if (mSuppressionScopes == null) {
+            mSuppressionScopes = SuppressionScopes.create(getCompilationUnit());
+        }
+        return mSuppressionScopes;
+    }
+
     public void report(
             @NonNull Issue issue,
             @Nullable Tree scope,
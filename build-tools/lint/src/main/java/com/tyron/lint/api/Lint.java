@@ -5,8 +5,14 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.sun.source.tree.CompilationUnitTree;
+import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.api.JavaModule;
+import com.tyron.common.util.AndroidUtilities;
+import com.tyron.completion.java.compiler.CompileTask;
+import com.tyron.completion.java.compiler.CompilerContainer;
 import com.tyron.completion.java.compiler.JavaCompilerService;
+import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.lint.JavaVisitor;
 import com.tyron.lint.checks.CallSuperDetector;
 import com.tyron.lint.checks.JavaPerformanceDetector;
@@ -17,19 +23,47 @@ import com.tyron.lint.client.IssueRegistry;
 import com.tyron.lint.client.LintClient;
 import com.tyron.lint.client.LintDriver;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Runs the registered detectors on the java files of a module.
+ *
+ * The files are compiled together in one batch and the detectors run on their compilation
+ * units one after another on the thread of the compile task. The detectors complete symbols
+ * and query types through javac, which is not thread safe, so the units are not visited in
+ * parallel. The issues found in a file are cached by the contents of the file and the
+ * registered detectors, scanning a file that did not change only reports them again.
+ * Changes to the other files of the module do not invalidate the cached issues of a file.
+ */
 public class Lint {
+
+    private static final int MAX_CACHED_FILES = 512;
+
     private final JavaModule mProject;
     private final JavaCompilerService mCompiler;
     private final List<Detector> mDetectors;
     private final LintClient mClient;
 
+    private final Map<File, FileResult> mResults =
+            new LinkedHashMap<File, FileResult>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<File, FileResult> eldest) {
+                    return size() > MAX_CACHED_FILES;
+                }
+            };
+
     public Lint(JavaCompilerService compiler, JavaModule project, LintClient client) {
         mCompiler = compiler;
         mProject = project;
@@ -42,8 +76,105 @@ public class Lint {
     }
 
     public void scanFile(File file) {
+        scanFiles(Collections.singletonList(file));
+    }
+
+    /**
+     * Scans all the java files of the module
+     */
+    public void scanModule() {
+        scanFiles(mProject.getJavaFiles().values());
+    }
+
+    public void scanFiles(Collection<File> files) {
         Instant start = Instant.now();
-        LintDriver driver = new LintDriver(new IssueRegistry() {
+        String detectorKey = getDetectorKey();
+
+        Map<File, String> changed = new HashMap<>();
+        List<SourceFileObject> sources = new ArrayList<>();
+        for (File file : files) {
+            SourceFileObject source = new SourceFileObject(file.toPath(), mProject);
+            CharSequence contents = source.getCharContent(true);
+            if (contents == null) {
+                continue;
+            }
+            String hash = hash(contents);
+            FileResult cached = mResults.get(file);
+            if (cached != null && cached.matches(hash, detectorKey)) {
+                cached.report(createContext(createDriver(mClient), file), mClient);
+                continue;
+            }
+            changed.put(file, hash);
+            sources.add(source);
+        }
+
+        if (!sources.isEmpty()) {
+            CompilerContainer container;
+            try {
+                container = mCompiler.compile(sources);
+            } catch (ProcessCanceledException e) {
+                throw e;
+            } catch (Throwable e) {
+                Log.e("Lint", "Failed to compile files", e);
+                return;
+            }
+            container.run(task -> scanCompilationUnits(task, changed, detectorKey));
+        }
+
+        Log.d("Lint", "Scanning " + files.size() + " files took " +
+                Duration.between(start, Instant.now()).toMillis() + " ms");
+    }
+
+    private void scanCompilationUnits(CompileTask task, Map<File, String> hashes, String detectorKey) {
+        for (CompilationUnitTree unit : task.roots) {
+            File file = new File(unit.getSourceFile().toUri());
+            String hash = hashes.get(file);
+            if (hash == null) {
+                // the compiler may have added files that were not requested
+                continue;
+            }
+            try {
+                scanCompilationUnit(task, unit, file, hash, detectorKey);
+            } catch (ProcessCanceledException e) {
+                throw e;
+            } catch (Throwable e) {
+                Log.e("Lint", "Failed to analyze file " + file, e);
+            }
+        }
+    }
+
+    private void scanCompilationUnit(CompileTask task,
+                                     CompilationUnitTree unit,
+                                     File file,
+                                     String hash,
+                                     String detectorKey) {
+        RecordingClient client = new RecordingClient(mClient);
+        JavaContext context = createContext(createDriver(client), file);
+        context.setCompileTask(task);
+        context.setCompilationUnit(unit);
+
+        // detectors keep the state of the file they visit, each file gets its own visitor
+        JavaVisitor visitor = new JavaVisitor(mCompiler, mDetectors);
+        visitor.visitCompilationUnit(context);
+
+        mResults.put(file, new FileResult(hash, detectorKey, client.mReports));
+    }
+
+    private String getDetectorKey() {
+        StringBuilder key = new StringBuilder();
+        for (Detector detector : mDetectors) {
+            key.append(detector.getClass().getName()).append(';');
+        }
+        return key.toString();
+    }
+
+    private static String hash(CharSequence contents) {
+        byte[] bytes = contents.toString().getBytes(StandardCharsets.UTF_8);
+        return AndroidUtilities.calculateMD5(new ByteArrayInputStream(bytes));
+    }
+
+    private LintDriver createDriver(LintClient client) {
+        return new LintDriver(new IssueRegistry() {
             @NonNull
             @Override
             public List<Issue> getIssues() {
@@ -54,8 +185,11 @@ public class Lint {
                         ToastDetector.ISSUE
                 );
             }
-        }, mClient);
-        JavaContext context = new JavaContext(driver, mProject, file, new Configuration() {
+        }, client);
+    }
+
+    private JavaContext createContext(LintDriver driver, File file) {
+        return new JavaContext(driver, mProject, file, new Configuration() {
             @Override
             public void ignore(@NonNull Context context, @NonNull Issue issue, @Nullable Location location, @NonNull String message) {
 
@@ -66,13 +200,83 @@ public class Lint {
 
             }
         });
-        JavaVisitor visitor = new JavaVisitor(mCompiler, mDetectors);
-        visitor.visitFile(context);
-
-        Log.d("Lint", "Scanning took " + Duration.between(start, Instant.now()).toMillis() + " ms");
     }
 
     public void registerDetector(Detector detector) {
         mDetectors.add(detector);
     }
+
+    private static class Report {
+        final Issue issue;
+        final Severity severity;
+        final Location location;
+        final String message;
+        final TextFormat format;
+
+        Report(Issue issue, Severity severity, Location location, String message, TextFormat format) {
+            this.issue = issue;
+            this.severity = severity;
+            this.location = location;
+            this.message = message;
+            this.format = format;
+        }
+    }
+
+    private static class FileResult {
+        private final String mHash;
+        private final String mDetectorKey;
+        private final List<Report> mReports;
+
+        FileResult(String hash, String detectorKey, List<Report> reports) {
+            mHash = hash;
+            mDetectorKey = detectorKey;
+            mReports = reports;
+        }
+
+        boolean matches(String hash, String detectorKey) {
+            return mHash.equals(hash) && mDetectorKey.equals(detectorKey);
+        }
+
+        void report(Context context, LintClient client) {
+            for (Report report : mReports) {
+                client.report(context, report.issue, report.severity, report.location,
+                        report.message, report.format);
+            }
+        }
+    }
+
+    /**
+     * Forwards the reports of a file to the client and keeps them so they can be reported
+     * again while the file does not change.
+     */
+    private static class RecordingClient extends LintClient {
+        private final LintClient mDelegate;
+        private final List<Report> mReports = new ArrayList<>();
+
+        RecordingClient(LintClient delegate) {
+            mDelegate = delegate;
+        }
+
+        @NonNull
+        @Override
+        public Class<? extends Detector> replaceDetector(@NonNull Class<? extends Detector> detectorClass) {
+            return mDelegate.replaceDetector(detectorClass);
+        }
+
+        @Override
+        public boolean checkForSuppressComments() {
+            return mDelegate.checkForSuppressComments();
+        }
+
+        @Override
+        public void report(@NonNull Context context, @NonNull Issue issue, @NonNull Severity severity, @Nullable Location location, @NonNull String message, @NonNull TextFormat format) {
+            mReports.add(new Report(issue, severity, location, message, format));
+            mDelegate.report(context, issue, severity, location, message, format);
+        }
+
+        @Override
+        public void log(Throwable t, String s, String name) {
+            mDelegate.log(t, s, name);
+        }
+    }
 }
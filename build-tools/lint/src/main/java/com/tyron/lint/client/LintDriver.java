@@ -13,14 +13,8 @@ import com.tyron.lint.api.Scope;
 import com.tyron.lint.api.Severity;
 import com.tyron.lint.api.TextFormat;
 
-import com.sun.source.tree.AnnotationTree;
-import com.sun.source.tree.ExpressionTree;
-import com.sun.source.tree.IdentifierTree;
-import com.sun.source.tree.LiteralTree;
-import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.ModifiersTree;
 import com.sun.source.tree.Tree;
-import com.sun.source.util.TreePath;
 
 import java.util.EnumSet;
 import java.util.List;
@@ -62,29 +56,16 @@ public class LintDriver {
         return mClient;
     }
 
+    /**
+     * Checks whether the given issue is suppressed at the given node, the suppressed scopes
+     * are computed once per compilation unit by the context.
+     */
     public boolean isSuppressed(@Nullable JavaContext context, @NonNull Issue issue,
                                 @Nullable Tree scope) {
-        boolean checkComments = mClient.checkForSuppressComments() &&
-                context != null && context.containsCommentSuppress();
         if (context == null) {
             return false;
         }
-        while (scope != null) {
-            if (scope instanceof MethodTree) {
-                if (isSuppressed(issue, ((MethodTree) scope).getModifiers())) {
-                    return true;
-                }
-            }
-
-            TreePath parentPath = TreePath.getPath(context.getCompilationUnit(), scope).getParentPath();
-            if (parentPath == null) {
-                break;
-            } else {
-                scope = parentPath.getLeaf();
-            }
-        }
-
-        return false;
+        return context.getSuppressionScopes().isSuppressed(issue, scope);
     }
 
     public boolean isSuppressed(@Nullable Issue issue, @Nullable ModifiersTree modifiers) {
@@ -92,37 +73,16 @@ public class LintDriver {
             return false;
         }
 
-        List<? extends AnnotationTree> annotations = modifiers.getAnnotations();
-        if (annotations == null) {
-            return false;
-        }
-
-        for (AnnotationTree annotation : annotations) {
-            IdentifierTree type = (IdentifierTree) annotation.getAnnotationType();
-            String typeName = type.getName().toString();
-            if (typeName.endsWith("SuppressLint")
-                || typeName.endsWith("SuppressWarnings")) {
-                List<? extends ExpressionTree> values = annotation.getArguments();
-                if (values != null) {
-                    for (ExpressionTree arg : values) {
-                        if (arg == null) {
-                            continue;
-                        }
-                        if (arg instanceof LiteralTree) {
-                            String value = String.valueOf(((LiteralTree) arg).getValue());
-                            if (matches(issue, value)) {
-                                return true;
-                            }
-                        }
-                    }
-                }
+        for (String id : SuppressionScopes.getSuppressedIds(modifiers)) {
+            if (matches(issue, id)) {
+                return true;
             }
         }
 
         return false;
     }
 
-    private static boolean matches(@Nullable Issue issue, @NonNull String id) {
+    static boolean matches(@Nullable Issue issue, @NonNull String id) {
         if (id.equalsIgnoreCase("all")) {
             return true;
         }
@@ -0,0 +1,137 @@
+package com.tyron.lint.client;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ModifiersTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import com.tyron.lint.api.Issue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The suppressed issue ids of every node of a compilation unit, computed in a single pass.
+ *
+ * A node is suppressed by the {@code SuppressLint} and {@code SuppressWarnings} annotations
+ * of its enclosing methods. Nodes that are not inside a suppressing method are not stored.
+ */
+public class SuppressionScopes {
+
+    private final Map<Tree, List<String>> mScopes;
+
+    private SuppressionScopes(Map<Tree, List<String>> scopes) {
+        mScopes = scopes;
+    }
+
+    @NonNull
+    public static SuppressionScopes create(@NonNull CompilationUnitTree unit) {
+        Map<Tree, List<String>> scopes = new IdentityHashMap<>();
+        new Scanner(scopes).scan(unit, null);
+        return new SuppressionScopes(scopes);
+    }
+
+    public boolean isSuppressed(@Nullable Issue issue, @Nullable Tree scope) {
+        if (scope == null) {
+            return false;
+        }
+        List<String> ids = mScopes.get(scope);
+        if (ids == null) {
+            return false;
+        }
+        for (String id : ids) {
+            if (LintDriver.matches(issue, id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The ids listed in the suppress annotations of the given modifiers
+     */
+    @NonNull
+    static List<String> getSuppressedIds(@Nullable ModifiersTree modifiers) {
+        if (modifiers == null || modifiers.getAnnotations() == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> ids = new ArrayList<>();
+        for (AnnotationTree annotation : modifiers.getAnnotations()) {
+            String typeName = annotation.getAnnotationType().toString();
+            if (!typeName.endsWith("SuppressLint") && !typeName.endsWith("SuppressWarnings")) {
+                continue;
+            }
+            List<? extends ExpressionTree> values = annotation.getArguments();
+            if (values == null) {
+                continue;
+            }
+            for (ExpressionTree arg : values) {
+                addIds(ids, arg);
+            }
+        }
+        return ids;
+    }
+
+    private static void addIds(List<String> ids, ExpressionTree value) {
+        if (value instanceof LiteralTree) {
+            ids.add(String.valueOf(((LiteralTree) value).getValue()));
+        } else if (value instanceof NewArrayTree) {
+            List<? extends ExpressionTree> initializers = ((NewArrayTree) value).getInitializers();
+            if (initializers != null) {
+                for (ExpressionTree initializer : initializers) {
+                    addIds(ids, initializer);
+                }
+            }
+        }
+    }
+
+    private static class Scanner extends TreeScanner<Void, Void> {
+
+        private final Map<Tree, List<String>> mScopes;
+
+        /**
+         * The ids suppressed at the current node, shared by all the nodes of the same scope.
+         */
+        private List<String> mCurrent = Collections.emptyList();
+
+        Scanner(Map<Tree, List<String>> scopes) {
+            mScopes = scopes;
+        }
+
+        @Override
+        public Void scan(Tree tree, Void unused) {
+            if (tree == null) {
+                return null;
+            }
+
+            List<String> previous = mCurrent;
+            if (tree instanceof MethodTree) {
+                List<String> ids = getSuppressedIds(((MethodTree) tree).getModifiers());
+                if (!ids.isEmpty()) {
+                    List<String> combined = new ArrayList<>(previous);
+                    combined.addAll(ids);
+                    mCurrent = combined;
+                }
+            }
+            if (!mCurrent.isEmpty()) {
+                mScopes.put(tree, mCurrent);
+            }
+            try {
+                return super.scan(tree, unused);
+            } finally {
+                mCurrent = previous;
+            }
+        }
+    }
+}
@@ -4,9 +4,12 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.tyron.builder.model.CodeAssistLibrary;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.builder.project.util.ShortNameIndex;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,9 +54,24 @@ public interface JavaModule extends Module {
     @Deprecated
     Set<String> getAllClasses();
 
+    /**
+     * @return The index of the source files of this module
+     */
     @NonNull
     PackageTrie getClassIndex();
 
+    /**
+     * @return The class indexes of the library jars of this module
+     */
+    @NonNull
+    Collection<JarClassIndex> getJarClassIndexes();
+
+    /**
+     * @return The index of the simple names of the source files and libraries of this module
+     */
+    @NonNull
+    ShortNameIndex getShortNameIndex();
+
     /**
      * @return The resources directory of the project. Note that
      * this is different from android's res directory
@@ -7,7 +7,9 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.tyron.builder.model.CodeAssistLibrary;
 import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.builder.project.util.ShortNameIndex;
 import com.tyron.common.util.StringSearch;
 
 import org.apache.commons.io.FileUtils;
@@ -18,19 +20,18 @@ import org.jetbrains.kotlin.com.intellij.util.ReflectionUtil;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
-import java.util.Enumeration;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
-    // Map of fully qualified names and the jar they are contained in
-    private final Map<String, File> mClassFiles;
     private final Map<String, File> mJavaFiles;
     private final Map<String, CodeAssistLibrary> mLibraryHashMap;
     private final Map<String, File> mInjectedClassesMap;
@@ -39,10 +40,15 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     // the index of all the class files in this module
     private final PackageTrie mClassIndex = new PackageTrie();
 
+    // the index of the classes of each library jar, keyed by the jar file
+    private final Map<File, JarClassIndex> mJarClassIndexes = new LinkedHashMap<>();
+
+    // the simple names of the source files and libraries of this module
+    private final ShortNameIndex mShortNameIndex = new ShortNameIndex();
+
     public JavaModuleImpl(File root) {
         super(root);
         mJavaFiles = new HashMap<>();
-        mClassFiles = new HashMap<>();
         mLibraries = new HashSet<>();
         mInjectedClassesMap = new HashMap<>();
         mLibraryHashMap = new HashMap<>();
@@ -54,6 +60,18 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         return mClassIndex;
     }
 
+    @NonNull
+    @Override
+    public Collection<JarClassIndex> getJarClassIndexes() {
+        return Collections.unmodifiableCollection(mJarClassIndexes.values());
+    }
+
+    @NonNull
+    @Override
+    public ShortNameIndex getShortNameIndex() {
+        return mShortNameIndex;
+    }
+
     @NonNull
     @Override
     public Map<String, File> getJavaFiles() {
@@ -68,7 +86,9 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
 
     @Override
     public void removeJavaFile(@NonNull String packageName) {
-        mJavaFiles.remove(packageName);
+        if (mJavaFiles.remove(packageName) != null) {
+            mShortNameIndex.remove(packageName);
+        }
         mClassIndex.remove(packageName);
     }
 
@@ -80,6 +100,7 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         String className = getFullyQualifiedName(javaFile);
         mJavaFiles.put(className, javaFile);
         mClassIndex.add(className);
+        mShortNameIndex.add(className);
     }
 
     @Override
@@ -97,7 +118,9 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     public Set<String> getAllClasses() {
         Set<String> classes = new HashSet<>();
         classes.addAll(mJavaFiles.keySet());
-        classes.addAll(mClassFiles.keySet());
+        for (JarClassIndex index : mJarClassIndexes.values()) {
+            index.forEachClass(classes::add);
+        }
         classes.addAll(mInjectedClassesMap.keySet());
         return classes;
     }
@@ -130,28 +153,24 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
         if (file == null) {
             return;
         }
-        try (JarFile jar = new JarFile(file)) {
-            Enumeration<JarEntry> entries = jar.entries();
-            while (entries.hasMoreElements()) {
-                JarEntry entry = entries.nextElement();
-
-                if (!entry.getName().endsWith(".class")) {
-                    continue;
-                }
-
-                // We only want top level classes, if it contains $ then
-                // its an inner class, we ignore it
-                if (entry.getName().contains("$")) {
-                    continue;
-                }
-
-                String packageName = entry.getName().replace("/", ".")
-                        .substring(0, entry.getName().length() - ".class".length());
-
-                mClassFiles.put(packageName, file);
-                mClassIndex.add(packageName);
-            }
+        JarClassIndex index = JarClassIndex.open(file, getJarIndexDirectory());
+        JarClassIndex previous = mJarClassIndexes.put(file, index);
+        if (previous != null) {
+            mShortNameIndex.removeAll(previous);
+        }
+        mShortNameIndex.addAll(index);
+    }
+
+    /**
+     * @return The directory where the class indexes of the library jars are stored, or null
+     * if this module does not have a build directory
+     */
+    @Nullable
+    protected File getJarIndexDirectory() {
+        if (getRootFile() == null || getSettings() == null) {
+            return null;
         }
+        return new File(getBuildDirectory(), "intermediate/jar-index");
     }
 
     @NonNull
@@ -254,6 +273,8 @@ public class JavaModuleImpl extends ModuleImpl implements JavaModule {
     public void clear() {
         mJavaFiles.clear();
         mLibraries.clear();
+        mJarClassIndexes.clear();
+        mShortNameIndex.clear();
         mLibraryHashMap.clear();
     }
 }
@@ -7,7 +7,9 @@ import com.tyron.builder.model.ModuleSettings;
 import com.tyron.builder.project.api.FileManager;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.impl.ModuleImpl;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
+import com.tyron.builder.project.util.ShortNameIndex;
 import com.tyron.common.util.StringSearch;
 
 import org.jetbrains.annotations.NotNull;
@@ -18,6 +20,7 @@ import org.jetbrains.kotlin.com.intellij.util.keyFMap.KeyFMap;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -32,6 +35,7 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
 
     private final KeyFMap mDataMap = KeyFMap.EMPTY_MAP;
     private final Map<String, File> mJavaFiles = new HashMap<>();
+    private final ShortNameIndex mShortNameIndex = new ShortNameIndex();
 
     private final FileManager mFileManager;
     private final File mRootDir;
@@ -57,6 +61,7 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
     @Override
     public void removeJavaFile(@NonNull String packageName) {
         mJavaFiles.remove(packageName);
+        mShortNameIndex.remove(packageName);
     }
 
     @Override
@@ -69,6 +74,7 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
             className = packageName + "." + javaFile.getName().replace(".java", "");
         }
         mJavaFiles.put(className, javaFile);
+        mShortNameIndex.add(className);
     }
 
     @Override
@@ -103,6 +109,18 @@ public class MockJavaModule extends ModuleImpl implements JavaModule {
         return new PackageTrie();
     }
 
+    @NonNull
+    @Override
+    public Collection<JarClassIndex> getJarClassIndexes() {
+        return Collections.emptyList();
+    }
+
+    @NonNull
+    @Override
+    public ShortNameIndex getShortNameIndex() {
+        return mShortNameIndex;
+    }
+
     @NonNull
     @Override
     public File getResourcesDir() {
@@ -0,0 +1,327 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.UnsignedBytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * A read only index of the top level class names inside a jar file.
+ *
+ * The index is stored in a binary file inside the cache directory and is memory mapped when
+ * opened, so reopening a project with the same jar does not need to scan the jar again.
+ * Lookups and prefix scans are done directly on the mapped file, strings are only created
+ * for the names that are returned to the caller.
+ *
+ * The file layout is:
+ * <pre>
+ *     int    magic
+ *     int    version
+ *     long   length of the jar
+ *     long   last modified time of the jar
+ *     int    count
+ *     int[]  offsets of each name, sorted by the unsigned UTF-8 bytes of the names
+ *     names  each name is stored as an unsigned short length followed by its UTF-8 bytes
+ * </pre>
+ */
+public class JarClassIndex {
+
+    private static final int MAGIC = 0x4A434958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+    private static final Comparator<byte[]> COMPARATOR = UnsignedBytes.lexicographicalComparator();
+
+    /**
+     * Open the index of the given jar, the index is created if it does not exist in the cache
+     * directory or if the jar has been modified since the index was created.
+     *
+     * @param jar      The jar file to index
+     * @param cacheDir The directory where the index is stored, if null the index is kept in
+     *                 memory and will not be persisted
+     */
+    @NonNull
+    public static JarClassIndex open(@NonNull File jar, @Nullable File cacheDir) throws IOException {
+        if (cacheDir == null) {
+            return new JarClassIndex(jar, ByteBuffer.wrap(createIndex(jar)));
+        }
+
+        File indexFile = getIndexFile(jar, cacheDir);
+        if (indexFile.exists()) {
+            ByteBuffer buffer = map(indexFile);
+            if (isValid(buffer, jar)) {
+                return new JarClassIndex(jar, buffer);
+            }
+        }
+
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            throw new IOException("Unable to create directory " + cacheDir);
+        }
+        byte[] bytes = createIndex(jar);
+        File temp = File.createTempFile(indexFile.getName(), ".tmp", cacheDir);
+        try (RandomAccessFile file = new RandomAccessFile(temp, "rw")) {
+            file.write(bytes);
+        }
+        if (!temp.renameTo(indexFile)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            return new JarClassIndex(jar, ByteBuffer.wrap(bytes));
+        }
+        return new JarClassIndex(jar, map(indexFile));
+    }
+
+    private static File getIndexFile(File jar, File cacheDir) {
+        String name = Hashing.sha256()
+                .hashString(jar.getAbsolutePath(), StandardCharsets.UTF_8)
+                .toString();
+        return new File(cacheDir, name + ".idx");
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static boolean isValid(ByteBuffer buffer, File jar) {
+        if (buffer.capacity() < HEADER_SIZE) {
+            return false;
+        }
+        return buffer.getInt(0) == MAGIC &&
+               buffer.getInt(4) == VERSION &&
+               buffer.getLong(8) == jar.length() &&
+               buffer.getLong(16) == jar.lastModified();
+    }
+
+    private static byte[] createIndex(File jar) throws IOException {
+        List<byte[]> names = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class")) {
+                    continue;
+                }
+
+                // We only want top level classes, if it contains $ then
+                // its an inner class, we ignore it
+                if (name.indexOf('$') != -1) {
+                    continue;
+                }
+
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                int length = bytes.length - ".class".length();
+                if (length > 0xFFFF) {
+                    continue;
+                }
+                byte[] className = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    className[i] = bytes[i] == '/' ? (byte) '.' : bytes[i];
+                }
+                names.add(className);
+            }
+        }
+        names.sort(COMPARATOR);
+
+        int count = 0;
+        int dataSize = 0;
+        byte[] previous = null;
+        for (byte[] name : names) {
+            if (previous == null || COMPARATOR.compare(previous, name) != 0) {
+                count++;
+                dataSize += 2 + name.length;
+            }
+            previous = name;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + count * 4 + dataSize);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(jar.length());
+        buffer.putLong(jar.lastModified());
+        buffer.putInt(count);
+
+        int offsetPosition = HEADER_SIZE;
+        int dataPosition = HEADER_SIZE + count * 4;
+        previous = null;
+        for (byte[] name : names) {
+            if (previous != null && COMPARATOR.compare(previous, name) == 0) {
+                continue;
+            }
+            previous = name;
+
+            buffer.putInt(offsetPosition, dataPosition);
+            offsetPosition += 4;
+
+            buffer.position(dataPosition);
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            dataPosition = buffer.position();
+        }
+        return buffer.array();
+    }
+
+    private final File mJar;
+    private final ByteBuffer mBuffer;
+    private final int mSize;
+
+    private JarClassIndex(File jar, ByteBuffer buffer) {
+        mJar = jar;
+        mBuffer = buffer;
+        mSize = buffer.getInt(24);
+    }
+
+    @NonNull
+    public File getJarFile() {
+        return mJar;
+    }
+
+    /**
+     * @return The number of classes in this index
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @return The fully qualified name of the class at the given index
+     */
+    @NonNull
+    public String getClassName(int index) {
+        int offset = offset(index);
+        int length = mBuffer.getShort(offset) & 0xFFFF;
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = mBuffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public boolean contains(@NonNull String fqn) {
+        byte[] key = fqn.getBytes(StandardCharsets.UTF_8);
+        int index = lowerBound(key);
+        return index < mSize && compare(index, key) == 0;
+    }
+
+    public void forEachClass(@NonNull Consumer<String> consumer) {
+        for (int i = 0; i < mSize; i++) {
+            consumer.accept(getClassName(i));
+        }
+    }
+
+    /**
+     * Passes every class whose fully qualified name starts with the given prefix to the
+     * consumer, in sorted order.
+     */
+    public void forEachWithPrefix(@NonNull String prefix, @NonNull Consumer<String> consumer) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        for (int i = lowerBound(key); i < mSize && startsWith(i, key); i++) {
+            consumer.accept(getClassName(i));
+        }
+    }
+
+    /**
+     * Passes every class that is inside the given package or its sub packages to the consumer.
+     * This has the same semantics as {@link PackageTrie#getMatchingPackages(String)}.
+     */
+    public void forEachInPackage(@NonNull String packageName,
+                                 @NonNull Consumer<String> consumer) {
+        if (contains(packageName)) {
+            consumer.accept(packageName);
+        }
+        forEachWithPrefix(packageName + ".", consumer);
+    }
+
+    /**
+     * Passes the first segment of every package in this index to the consumer, each segment
+     * is only passed once.
+     */
+    public void forEachTopLevelPackage(@NonNull Consumer<String> consumer) {
+        int index = 0;
+        while (index < mSize) {
+            int offset = offset(index);
+            int length = mBuffer.getShort(offset) & 0xFFFF;
+            int end = 0;
+            while (end < length && mBuffer.get(offset + 2 + end) != '.') {
+                end++;
+            }
+            if (end == length) {
+                // class in the default package
+                index++;
+                continue;
+            }
+
+            byte[] segment = new byte[end + 1];
+            for (int i = 0; i < end; i++) {
+                segment[i] = mBuffer.get(offset + 2 + i);
+            }
+            consumer.accept(new String(segment, 0, end, StandardCharsets.UTF_8));
+
+            // '/' is the byte right after '.', so this skips every name starting with segment.
+            segment[end] = '/';
+            index = lowerBound(segment);
+        }
+    }
+
+    private int offset(int index) {
+        return mBuffer.getInt(HEADER_SIZE + index * 4);
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = mSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int index, byte[] key) {
+        int offset = offset(index);
+        int length = mBuffer.getShort(offset) & 0xFFFF;
+        int min = Math.min(length, key.length);
+        for (int i = 0; i < min; i++) {
+            int a = mBuffer.get(offset + 2 + i) & 0xFF;
+            int b = key[i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    private boolean startsWith(int index, byte[] key) {
+        int offset = offset(index);
+        int length = mBuffer.getShort(offset) & 0xFFFF;
+        if (length < key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (mBuffer.get(offset + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
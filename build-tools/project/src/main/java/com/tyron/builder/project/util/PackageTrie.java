@@ -2,14 +2,15 @@ package com.tyron.builder.project.util;
 
 import androidx.annotation.NonNull;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
 
 /**
  * A trie that stores package segments to a node.
@@ -22,13 +23,42 @@ import java.util.function.Function;
  *     /  \
  * String Object
  * </p>
+ *
+ * Nodes are immutable, children are stored in arrays sorted by their segment and segments are
+ * interned so equal package names share the same string. Writes copy the path from the root
+ * to the modified node, this makes {@link #snapshot()} a constant time operation and the
+ * returned snapshot can be read from any thread while this trie is being written to.
  */
 public class PackageTrie {
 
-    private final Node mRoot;
+    /**
+     * Receives the fully qualified names of a query. The name is only valid during the call,
+     * use {@link CharSequence#toString()} to keep it.
+     */
+    public interface Visitor {
+        void visit(@NonNull CharSequence fqn);
+    }
+
+    private static final Interner<String> SEGMENTS = Interners.newWeakInterner();
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private volatile Node mRoot;
 
     public PackageTrie() {
-        mRoot = new Node();
+        mRoot = new Node("", false, NO_CHILDREN);
+    }
+
+    private PackageTrie(Node root) {
+        mRoot = root;
+    }
+
+    /**
+     * @return A read only view of the current state of this trie, later writes to this trie
+     * are not visible to the snapshot.
+     */
+    @NonNull
+    public PackageTrie snapshot() {
+        return new PackageTrie(mRoot);
     }
 
     /**
@@ -36,14 +66,26 @@ public class PackageTrie {
      *
      * @param fqn The fully qualified name of a class, including its name
      */
-    public void add(@NonNull String fqn) {
-        String[] parts = getParts(fqn);
-        Node current = mRoot;
-        for (String part : parts) {
-            current = current.getOrCreateChild(part);
+    public synchronized void add(@NonNull String fqn) {
+        mRoot = add(mRoot, fqn, 0);
+    }
+
+    private static Node add(Node node, String fqn, int start) {
+        if (start > fqn.length()) {
+            // this is the end node, so mark it as a leaf
+            return node.leaf ? node : new Node(node.segment, true, node.children);
+        }
+        int end = segmentEnd(fqn, start);
+        int index = indexOf(node.children, fqn, start, end);
+        if (index >= 0) {
+            Node child = node.children[index];
+            Node newChild = add(child, fqn, end + 1);
+            return newChild == child ? node : node.withChild(index, newChild);
         }
-        // this is the end node, so mark it as a leaf
-        current.isLeaf = true;
+
+        String segment = SEGMENTS.intern(fqn.substring(start, end));
+        Node child = add(new Node(segment, false, NO_CHILDREN), fqn, end + 1);
+        return node.insertChild(-(index + 1), child);
     }
 
     public void remove(@NonNull String fqn) {
@@ -56,161 +98,207 @@ public class PackageTrie {
      * If leafOnly is false, passing "java" to the package name will remove all the packages
      * starting with that package. e.g all java.lang, java.util packages
      *
-     * If leafOnly is true, only leaf nodes matching the leaf of the specified name will be deleted.
-     * The leaf of the package name is the last word after its dot.
+     * If leafOnly is true, only the class with the specified name will be deleted, packages
+     * that no longer contain any class are removed as well.
      *
      * @param fqn The package name
      * @param leafOnly Whether to delete the leaf only
      */
-    public void remove(@NonNull String fqn, boolean leafOnly) {
-        String[] parts = getParts(fqn);
-        Node current = mRoot;
-        for (int i = 0; i < parts.length; i++) {
-            String part = parts[i];
-            boolean isLeaf = i == parts.length - 1;
-
-            if (current == null) {
-                break;
-            }
-            if (current.getChildren() == null) {
-                current = null;
-            } else {
-                Node next = current.getChildren().get(part);
-                if (next != null && (isLeaf || !leafOnly)) {
-                    current.getChildren().remove(next.getValue());
-                }
-                current = next;
+    public synchronized void remove(@NonNull String fqn, boolean leafOnly) {
+        Node root = remove(mRoot, fqn, 0, leafOnly);
+        mRoot = root == null ? new Node("", false, NO_CHILDREN) : root;
+    }
+
+    private static Node remove(Node node, String fqn, int start, boolean leafOnly) {
+        if (start > fqn.length()) {
+            if (!leafOnly || node.children.length == 0) {
+                return null;
             }
+            return node.leaf ? new Node(node.segment, false, node.children) : node;
+        }
+        int end = segmentEnd(fqn, start);
+        int index = indexOf(node.children, fqn, start, end);
+        if (index < 0) {
+            return node;
+        }
+        Node child = node.children[index];
+        Node newChild = remove(child, fqn, end + 1, leafOnly);
+        if (newChild == child) {
+            return node;
         }
+        if (newChild != null) {
+            return node.withChild(index, newChild);
+        }
+        if (node.children.length == 1 && !node.leaf && start > 0) {
+            // this package is now empty
+            return null;
+        }
+        return node.removeChild(index);
+    }
+
+    /**
+     * @return Whether the fully qualified name of a class is in this index
+     */
+    public boolean contains(@NonNull String fqn) {
+        Node node = find(mRoot, fqn);
+        return node != null && node.leaf;
     }
 
     public List<String> getMatchingPackages(String packageQuery) {
         List<String> result = new ArrayList<>();
-        StringBuilder currentPackage = new StringBuilder();
-        String[] parts = getParts(packageQuery);
-        Node current = mRoot;
-        for (String part : parts) {
-            if (current == null || current.getChildren() == null || !current.getChildren().containsKey(part)) {
-                return result;
-            }
-
-            if (current.isLeaf) {
-                String fqn = currentPackage.length() > 0
-                        ? currentPackage + "." + part
-                        : part;
-                result.add(fqn);
-            } else {
-                boolean insertDot = currentPackage.length() > 0;
-                if (insertDot) {
-                    currentPackage.append('.');
-                }
-                currentPackage.append(part);
-            }
-
-            current = current.getChildren().get(part);
-        }
+        forEachMatchingPackage(packageQuery, fqn -> result.add(fqn.toString()));
+        return result;
+    }
 
-        if (current.getChildren() != null) {
-            for (Node node : current.getChildren().values()) {
-                recurse(node, currentPackage.toString(), result);
-            }
+    /**
+     * Visits the fully qualified names of all the classes inside the given package and its sub
+     * packages, including the package itself if it is a class.
+     */
+    public void forEachMatchingPackage(@NonNull String packageQuery, @NonNull Visitor visitor) {
+        Node node = find(mRoot, packageQuery);
+        if (node == null) {
+            return;
         }
-
-        return result;
+        StringBuilder builder = new StringBuilder(packageQuery);
+        visitLeaves(node, builder, visitor);
     }
 
     public Set<String> getTopLevelNonLeafNodes() {
-        if (mRoot.getChildren() == null) {
+        Node[] children = mRoot.children;
+        if (children.length == 0) {
             return Collections.emptySet();
         }
-
-        return mRoot.getChildren().keySet();
+        Set<String> result = new HashSet<>();
+        for (Node child : children) {
+            result.add(child.segment);
+        }
+        return result;
     }
 
     public Set<String> getLeafNodes() {
-        return new HashSet<>(getLeafNodes("", mRoot));
+        Set<String> result = new HashSet<>();
+        forEachLeafNode(fqn -> result.add(fqn.toString()));
+        return result;
     }
 
-    private Set<String> getLeafNodes(String currentPackage, Node current) {
-        if (current.isLeaf) {
-            return Collections.singleton(currentPackage);
-        } else {
-            if (current.getChildren() == null || current.getChildren().isEmpty()) {
-                return Collections.emptySet();
-            }
-            Set<String> leafNodes = new HashSet<>();
-            for (Node value : current.getChildren().values()) {
-                String newPackage = currentPackage.isEmpty()
-                        ? value.getValue()
-                        : currentPackage + "." + value.getValue();
-                leafNodes.addAll(getLeafNodes(newPackage, value));
-            }
-            return leafNodes;
+    /**
+     * Visits the fully qualified names of all the classes in this index.
+     */
+    public void forEachLeafNode(@NonNull Visitor visitor) {
+        StringBuilder builder = new StringBuilder();
+        for (Node child : mRoot.children) {
+            builder.setLength(0);
+            builder.append(child.segment);
+            visitLeaves(child, builder, visitor);
         }
     }
 
-    private void recurse(Node node, String currentPackage, List<String> result) {
-        if (node.isLeaf) {
-            String newResult = currentPackage.length() > 0
-                    ? currentPackage + "." + node.getValue()
-                    : node.getValue();
-            result.add(newResult);
-        } else {
-            currentPackage = currentPackage.isEmpty()
-                    ? node.getValue()
-                    : currentPackage + "." + node.getValue();
+    private static void visitLeaves(Node node, StringBuilder builder, Visitor visitor) {
+        if (node.leaf) {
+            visitor.visit(builder);
         }
+        int length = builder.length();
+        for (Node child : node.children) {
+            builder.append('.').append(child.segment);
+            visitLeaves(child, builder, visitor);
+            builder.setLength(length);
+        }
+    }
 
-        if (node.getChildren() == null) {
-            return;
+    private static Node find(Node root, String fqn) {
+        Node current = root;
+        int start = 0;
+        while (current != null && start <= fqn.length()) {
+            int end = segmentEnd(fqn, start);
+            int index = indexOf(current.children, fqn, start, end);
+            current = index >= 0 ? current.children[index] : null;
+            start = end + 1;
         }
-        for (Node child : node.getChildren().values()) {
-            recurse(child, currentPackage, result);
+        return current;
+    }
+
+    private static int segmentEnd(String fqn, int start) {
+        int end = fqn.indexOf('.', start);
+        return end == -1 ? fqn.length() : end;
+    }
+
+    /**
+     * Binary search the children for the segment of the name from start to end.
+     *
+     * @return the index of the child, or (-(insertion point) - 1) if not found
+     */
+    private static int indexOf(Node[] children, String name, int start, int end) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = compare(children[mid].segment, name, start, end);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
         }
+        return -(low + 1);
     }
 
-    private String[] getParts(String fqn) {
-        if (fqn.contains(".")) {
-            return fqn.split("\\.");
+    private static int compare(String segment, String name, int start, int end) {
+        int length = end - start;
+        int min = Math.min(segment.length(), length);
+        for (int i = 0; i < min; i++) {
+            char a = segment.charAt(i);
+            char b = name.charAt(start + i);
+            if (a != b) {
+                return a - b;
+            }
         }
-        return new String[]{fqn};
+        return segment.length() - length;
     }
 
     private static class Node {
 
-        private Map<String, Node> mChildren;
-
-        private boolean isLeaf;
-
-        private String mValue;
+        private final String segment;
 
-        public Node() {
+        private final boolean leaf;
 
-        }
+        private final Node[] children;
 
-        public Node(String value) {
-            mValue = value;
+        Node(String segment, boolean leaf, Node[] children) {
+            this.segment = segment;
+            this.leaf = leaf;
+            this.children = children;
         }
 
-        public Node getOrCreateChild(String part) {
-            if (mChildren == null) {
-                mChildren = new HashMap<>();
-            }
-
-            return mChildren.computeIfAbsent(part, Node::new);
+        Node withChild(int index, Node child) {
+            Node[] newChildren = children.clone();
+            newChildren[index] = child;
+            return new Node(segment, leaf, newChildren);
         }
 
-        public Map<String, Node> getChildren() {
-            return mChildren;
+        Node insertChild(int index, Node child) {
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            return new Node(segment, leaf, newChildren);
         }
 
-        public String getValue() {
-            return mValue;
+        Node removeChild(int index) {
+            if (children.length == 1) {
+                return new Node(segment, leaf, NO_CHILDREN);
+            }
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            return new Node(segment, leaf, newChildren);
         }
 
         @Override
         public String toString() {
-            return "Node{" + "isLeaf=" + isLeaf + ", mValue='" + mValue + '\'' + '}';
+            return "Node{" + "isLeaf=" + leaf + ", mValue='" + segment + '\'' + ", children=" +
+                   Arrays.toString(children) + '}';
         }
     }
 }
@@ -0,0 +1,504 @@
+package com.tyron.builder.project.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * An index from the simple names of classes to their fully qualified names.
+ *
+ * Classes are also indexed by their camel hump initials, e.g. {@code ALM} for
+ * {@code ArrayListMultimap}, so abbreviations can be completed without scanning every class.
+ * The index is updated incrementally as classes are added and removed, queries only visit
+ * the entries that match.
+ *
+ * The classes of a library jar are not copied into the index. The simple name tables of a
+ * jar are sorted arrays of the positions of its classes in the {@link JarClassIndex}, built
+ * the first time the jar is queried.
+ */
+public class ShortNameIndex {
+
+    /**
+     * How a class matches a query, in order of relevance
+     */
+    public enum MatchKind {
+        /**
+         * The simple name is the query
+         */
+        EXACT,
+        /**
+         * The simple name starts with the query
+         */
+        PREFIX,
+        /**
+         * The camel hump initials of the simple name start with the query
+         */
+        CAMEL_HUMP
+    }
+
+    public interface MatchConsumer {
+        void accept(@NonNull String fqn, @NonNull MatchKind kind);
+    }
+
+    /**
+     * Orders the matches of a kind, the same order is used by every index so the results of
+     * several indexes can be merged.
+     */
+    public static final Comparator<String> MATCH_ORDER = (a, b) -> {
+        int result = String.CASE_INSENSITIVE_ORDER.compare(getSimpleName(a), getSimpleName(b));
+        return result != 0 ? result : a.compareTo(b);
+    };
+
+    /**
+     * Simple names sorted case insensitively, so a prefix query is a single range scan for both
+     * case sensitive and insensitive matching.
+     */
+    private final NavigableMap<String, Set<String>> mSimpleNames =
+            new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final NavigableMap<String, Set<String>> mCamelHumps = new TreeMap<>();
+
+    private final Map<JarClassIndex, JarNames> mJars = new IdentityHashMap<>();
+
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+
+    /**
+     * Add the fully qualified name of a class to this index
+     */
+    public void add(@NonNull String fqn) {
+        mLock.writeLock().lock();
+        try {
+            String simpleName = getSimpleName(fqn);
+            put(mSimpleNames, simpleName, fqn);
+
+            String camelHumps = getCamelHumps(simpleName);
+            if (camelHumps.length() > 1) {
+                put(mCamelHumps, camelHumps, fqn);
+            }
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void remove(@NonNull String fqn) {
+        mLock.writeLock().lock();
+        try {
+            String simpleName = getSimpleName(fqn);
+            delete(mSimpleNames, simpleName, fqn);
+            delete(mCamelHumps, getCamelHumps(simpleName), fqn);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add the classes of a library jar to this index, the jar is not read until it is queried
+     */
+    public void addAll(@NonNull JarClassIndex jarIndex) {
+        mLock.writeLock().lock();
+        try {
+            mJars.put(jarIndex, new JarNames(jarIndex));
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(@NonNull JarClassIndex jarIndex) {
+        mLock.writeLock().lock();
+        try {
+            mJars.remove(jarIndex);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        mLock.writeLock().lock();
+        try {
+            mSimpleNames.clear();
+            mCamelHumps.clear();
+            mJars.clear();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The fully qualified names of the classes with exactly the given simple name
+     */
+    @NonNull
+    public Set<String> getClassNames(@NonNull String simpleName) {
+        mLock.readLock().lock();
+        try {
+            Set<String> result = new TreeSet<>();
+            Set<String> classNames = mSimpleNames.get(simpleName);
+            if (classNames != null) {
+                for (String className : classNames) {
+                    if (simpleName.equals(getSimpleName(className))) {
+                        result.add(className);
+                    }
+                }
+            }
+            for (JarNames jar : mJars.values()) {
+                jar.collectPrefix(simpleName, true, Integer.MAX_VALUE, (fqn, kind) -> {
+                    if (kind == MatchKind.EXACT) {
+                        result.add(fqn);
+                    }
+                });
+            }
+            return result;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Passes at most {@code limit} classes whose simple name starts with the query, or whose
+     * camel hump initials start with the query, to the consumer. Exact matches are passed
+     * first, followed by prefix matches and then camel hump matches.
+     *
+     * @return Whether the results have been truncated because of the limit
+     */
+    public boolean getTopN(@NonNull String query,
+                           boolean caseSensitive,
+                           int limit,
+                           @NonNull Consumer<String> consumer) {
+        int[] count = {0};
+        boolean truncated = collect(query, caseSensitive, limit, (fqn, kind) -> {
+            // the matches are passed in order of relevance
+            if (count[0]++ < limit) {
+                consumer.accept(fqn);
+            }
+        });
+        return truncated || count[0] > limit;
+    }
+
+    /**
+     * Passes the classes that match the query to the consumer along with how they match. At
+     * most {@code limit} matches of each kind are passed, the first ones in
+     * {@link #MATCH_ORDER}, so the best {@code limit} matches of several indexes can be found
+     * by merging their results. A class is only passed once, with its most relevant kind.
+     *
+     * @return Whether matches have been left out because of the limit
+     */
+    public boolean collect(@NonNull String query,
+                           boolean caseSensitive,
+                           int limit,
+                           @NonNull MatchConsumer consumer) {
+        mLock.readLock().lock();
+        try {
+            List<String> exact = new ArrayList<>();
+            List<String> prefix = new ArrayList<>();
+            boolean truncated = collectPrefix(mSimpleNames, query, caseSensitive, limit,
+                    (fqn, kind) -> (kind == MatchKind.EXACT ? exact : prefix).add(fqn));
+            for (JarNames jar : mJars.values()) {
+                truncated |= jar.collectPrefix(query, caseSensitive, limit,
+                        (fqn, kind) -> (kind == MatchKind.EXACT ? exact : prefix).add(fqn));
+            }
+            truncated |= pass(exact, MatchKind.EXACT, limit, consumer);
+            truncated |= pass(prefix, MatchKind.PREFIX, limit, consumer);
+
+            if (isCamelHumpQuery(query)) {
+                List<String> camelHumps = new ArrayList<>();
+                truncated |= collectCamelHumps(mCamelHumps, query, limit, camelHumps::add);
+                for (JarNames jar : mJars.values()) {
+                    truncated |= jar.collectCamelHumps(query, limit, camelHumps::add);
+                }
+                truncated |= pass(camelHumps, MatchKind.CAMEL_HUMP, limit, consumer);
+            }
+            return truncated;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    private static boolean pass(List<String> matches,
+                                MatchKind kind,
+                                int limit,
+                                MatchConsumer consumer) {
+        matches.sort(MATCH_ORDER);
+        for (int i = 0; i < matches.size(); i++) {
+            if (i >= limit) {
+                return true;
+            }
+            consumer.accept(matches.get(i), kind);
+        }
+        return false;
+    }
+
+    /**
+     * Passes at most {@code limit} exact and {@code limit} prefix matches of the simple names
+     * to the consumer, the scan stops at the first match over the limit.
+     *
+     * @return Whether matches have been left out because of the limit
+     */
+    private static boolean collectPrefix(NavigableMap<String, Set<String>> map,
+                                         String query,
+                                         boolean caseSensitive,
+                                         int limit,
+                                         MatchConsumer consumer) {
+        int prefixCount = 0;
+        int exactCount = 0;
+        // a key sorts before its extensions, so the exact match is the first key of the range
+        for (Map.Entry<String, Set<String>> entry : map.tailMap(query, true).entrySet()) {
+            if (!entry.getKey().regionMatches(true, 0, query, 0, query.length())) {
+                break;
+            }
+            for (String fqn : entry.getValue()) {
+                // names that only differ by case share the same entry of the simple name map
+                MatchKind kind = getPrefixMatch(getSimpleName(fqn), query, caseSensitive);
+                if (kind == MatchKind.EXACT) {
+                    if (exactCount++ >= limit) {
+                        return true;
+                    }
+                } else if (kind == MatchKind.PREFIX) {
+                    // names equal to the query sort before their extensions, so no exact match
+                    // can follow a prefix match
+                    if (prefixCount++ >= limit) {
+                        return true;
+                    }
+                } else {
+                    continue;
+                }
+                consumer.accept(fqn, kind);
+            }
+        }
+        return false;
+    }
+
+    private static boolean collectCamelHumps(NavigableMap<String, Set<String>> map,
+                                             String query,
+                                             int limit,
+                                             Consumer<String> consumer) {
+        int count = 0;
+        for (Map.Entry<String, Set<String>> entry : map.tailMap(query, true).entrySet()) {
+            if (!entry.getKey().startsWith(query)) {
+                break;
+            }
+            for (String fqn : entry.getValue()) {
+                if (isPrefixMatch(getSimpleName(fqn), query)) {
+                    // already passed as a prefix match
+                    continue;
+                }
+                if (count++ >= limit) {
+                    return true;
+                }
+                consumer.accept(fqn);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return How the simple name matches the query, null if it does not start with it
+     */
+    @Nullable
+    private static MatchKind getPrefixMatch(String simpleName, String query, boolean caseSensitive) {
+        if (caseSensitive) {
+            if (!simpleName.startsWith(query)) {
+                return null;
+            }
+            return simpleName.length() == query.length() ? MatchKind.EXACT : MatchKind.PREFIX;
+        }
+        if (!isPrefixMatch(simpleName, query)) {
+            return null;
+        }
+        return simpleName.length() == query.length() ? MatchKind.EXACT : MatchKind.PREFIX;
+    }
+
+    private static boolean isPrefixMatch(String simpleName, String query) {
+        return simpleName.regionMatches(true, 0, query, 0, query.length());
+    }
+
+    private static boolean isCamelHumpQuery(String query) {
+        if (query.length() < 2) {
+            return false;
+        }
+        for (int i = 0; i < query.length(); i++) {
+            if (!Character.isUpperCase(query.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void put(Map<String, Set<String>> map, String key, String fqn) {
+        Set<String> classNames = map.get(key);
+        if (classNames == null) {
+            classNames = new TreeSet<>();
+            map.put(key, classNames);
+        }
+        classNames.add(fqn);
+    }
+
+    private static void delete(Map<String, Set<String>> map, String key, String fqn) {
+        Set<String> classNames = map.get(key);
+        if (classNames == null) {
+            return;
+        }
+        classNames.remove(fqn);
+        if (classNames.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    @NonNull
+    static String getSimpleName(@NonNull String fqn) {
+        return fqn.substring(fqn.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * @return The upper case letters of the simple name, e.g. {@code ALM} for
+     * {@code ArrayListMultimap}
+     */
+    @NonNull
+    static String getCamelHumps(@NonNull String simpleName) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < simpleName.length(); i++) {
+            char c = simpleName.charAt(i);
+            if (Character.isUpperCase(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The simple name tables of a library jar, built on the first query.
+     */
+    private static class JarNames {
+
+        private final JarClassIndex mIndex;
+
+        /**
+         * The positions of the classes in the jar index, sorted by simple name
+         */
+        private int[] mBySimpleName;
+        /**
+         * The positions of the classes with at least two camel hump initials, sorted by their
+         * initials
+         */
+        private int[] mByCamelHumps;
+
+        JarNames(JarClassIndex index) {
+            mIndex = index;
+        }
+
+        private synchronized void build() {
+            if (mBySimpleName != null) {
+                return;
+            }
+            String[] simpleNames = new String[mIndex.size()];
+            String[] camelHumps = new String[mIndex.size()];
+            List<Integer> positions = new ArrayList<>(simpleNames.length);
+            List<Integer> humpPositions = new ArrayList<>();
+            for (int i = 0; i < simpleNames.length; i++) {
+                simpleNames[i] = getSimpleName(mIndex.getClassName(i));
+                camelHumps[i] = getCamelHumps(simpleNames[i]);
+                positions.add(i);
+                if (camelHumps[i].length() > 1) {
+                    humpPositions.add(i);
+                }
+            }
+            // the jar index is sorted by fully qualified name, so are classes with the same name
+            positions.sort((a, b) -> {
+                int result = String.CASE_INSENSITIVE_ORDER.compare(simpleNames[a], simpleNames[b]);
+                return result != 0 ? result : Integer.compare(a, b);
+            });
+            humpPositions.sort((a, b) -> camelHumps[a].compareTo(camelHumps[b]));
+            mByCamelHumps = toArray(humpPositions);
+            mBySimpleName = toArray(positions);
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] array = new int[list.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = list.get(i);
+            }
+            return array;
+        }
+
+        boolean collectPrefix(String query, boolean caseSensitive, int limit, MatchConsumer consumer) {
+            build();
+            int exactCount = 0;
+            int prefixCount = 0;
+            int low = 0;
+            int high = mBySimpleName.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (String.CASE_INSENSITIVE_ORDER.compare(simpleName(mBySimpleName[mid]), query) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < mBySimpleName.length; i++) {
+                String fqn = mIndex.getClassName(mBySimpleName[i]);
+                String simpleName = getSimpleName(fqn);
+                if (!isPrefixMatch(simpleName, query)) {
+                    break;
+                }
+                MatchKind kind = getPrefixMatch(simpleName, query, caseSensitive);
+                if (kind == MatchKind.EXACT) {
+                    if (exactCount++ >= limit) {
+                        return true;
+                    }
+                } else if (kind == MatchKind.PREFIX) {
+                    if (prefixCount++ >= limit) {
+                        return true;
+                    }
+                } else {
+                    continue;
+                }
+                consumer.accept(fqn, kind);
+            }
+            return false;
+        }
+
+        boolean collectCamelHumps(String query, int limit, Consumer<String> consumer) {
+            build();
+            int low = 0;
+            int high = mByCamelHumps.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (getCamelHumps(simpleName(mByCamelHumps[mid])).compareTo(query) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            int count = 0;
+            for (int i = low; i < mByCamelHumps.length; i++) {
+                String fqn = mIndex.getClassName(mByCamelHumps[i]);
+                String simpleName = getSimpleName(fqn);
+                if (!getCamelHumps(simpleName).startsWith(query)) {
+                    break;
+                }
+                if (isPrefixMatch(simpleName, query)) {
+                    continue;
+                }
+                if (count++ >= limit) {
+                    return true;
+                }
+                consumer.accept(fqn);
+            }
+            return false;
+        }
+
+        private String simpleName(int position) {
+            return getSimpleName(mIndex.getClassName(position));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.tyron.builder.project.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class JarClassIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testQueries() throws IOException {
+        File jar = createJar("java/lang/String.class", "java/lang/Object.class",
+                "java/util/List.class", "java/util/List$Inner.class",
+                "android/app/Activity.class", "Default.class", "META-INF/MANIFEST.MF");
+        JarClassIndex index = JarClassIndex.open(jar, mFolder.newFolder("cache"));
+
+        assert index.size() == 5;
+        assert index.contains("java.lang.String");
+        assert !index.contains("java.lang.Str");
+        assert !index.contains("java.util.List$Inner");
+
+        List<String> classes = new ArrayList<>();
+        index.forEachInPackage("java", classes::add);
+        assert classes.size() == 3 : classes;
+
+        List<String> packages = new ArrayList<>();
+        index.forEachTopLevelPackage(packages::add);
+        assert packages.size() == 2 : packages;
+        assert packages.contains("java");
+        assert packages.contains("android");
+    }
+
+    @Test
+    public void testPersisted() throws IOException {
+        File jar = createJar("java/lang/String.class");
+        File cacheDir = mFolder.newFolder("cache");
+
+        JarClassIndex.open(jar, cacheDir);
+        File[] files = cacheDir.listFiles();
+        assert files != null && files.length == 1;
+        long lastModified = files[0].lastModified();
+
+        JarClassIndex index = JarClassIndex.open(jar, cacheDir);
+        assert index.contains("java.lang.String");
+        assert files[0].lastModified() == lastModified;
+    }
+
+    private File createJar(String... entries) throws IOException {
+        File jar = mFolder.newFile("test.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
@@ -2,6 +2,7 @@ package com.tyron.builder.project.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class PackageTrieTest {
@@ -47,4 +48,52 @@ public class PackageTrieTest {
         List<String> packages = trie.getMatchingPackages("a");
         assert packages.size() == 1;
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRemoveKeepsSiblings() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("a.b.C");
+        trie.add("a.b.D");
+        trie.add("a.e.F");
+        trie.remove("a.b.C");
+
+        assert !trie.contains("a.b.C");
+        assert trie.contains("a.b.D");
+
+        trie.remove("a.b.D");
+        List<String> packages = trie.getMatchingPackages("a");
+        assert packages.size() == 1 : packages;
+        assert trie.getMatchingPackages("a.b").isEmpty();
+    }
+
+    @Test
+    public void testSnapshot() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("java.lang.String");
+
+        PackageTrie snapshot = trie.snapshot();
+        trie.add("java.lang.Object");
+        trie.remove("java.lang.String");
+
+        assert snapshot.contains("java.lang.String");
+        assert !snapshot.contains("java.lang.Object");
+        assert trie.contains("java.lang.Object");
+        assert snapshot.getLeafNodes().size() == 1;
+    }
+
+    @Test
+    public void testVisitor() {
+        PackageTrie trie = new PackageTrie();
+        trie.add("java.util.List");
+        trie.add("java.util.concurrent.Future");
+        trie.add("android.app.Activity");
+
+        List<String> names = new ArrayList<>();
+        trie.forEachMatchingPackage("java.util", fqn -> names.add(fqn.toString()));
+        assert names.size() == 2 : names;
+        assert names.contains("java.util.concurrent.Future");
+
+        assert trie.getLeafNodes().size() == 3;
+        assert trie.getTopLevelNonLeafNodes().size() == 2;
+    }
+}
@@ -0,0 +1,135 @@
+package com.tyron.builder.project.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+public class ShortNameIndexTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testSimpleNames() {
+        ShortNameIndex index = new ShortNameIndex();
+        index.add("java.util.List");
+        index.add("java.awt.List");
+        index.add("java.util.LinkedList");
+
+        Set<String> classNames = index.getClassNames("List");
+        assert classNames.size() == 2 : classNames;
+        assert classNames.contains("java.util.List");
+        assert classNames.contains("java.awt.List");
+
+        index.remove("java.awt.List");
+        assert index.getClassNames("List").size() == 1;
+        assert index.getClassNames("list").isEmpty();
+    }
+
+    @Test
+    public void testPrefix() {
+        ShortNameIndex index = new ShortNameIndex();
+        index.add("java.util.ListIterator");
+        index.add("java.util.List");
+        index.add("java.util.Map");
+        index.add("test.listener");
+
+        List<String> result = new ArrayList<>();
+        assert !index.getTopN("List", true, 10, result::add);
+        assert result.size() == 2 : result;
+        assert result.get(0).equals("java.util.List");
+
+        result.clear();
+        index.getTopN("list", false, 10, result::add);
+        assert result.size() == 3 : result;
+
+        result.clear();
+        assert index.getTopN("list", false, 1, result::add);
+        assert result.size() == 1;
+    }
+
+    @Test
+    public void testLimit() {
+        ShortNameIndex index = new ShortNameIndex();
+        index.add("java.util.List");
+        index.add("java.util.ListIterator");
+        index.add("java.awt.ListBox");
+
+        List<ShortNameIndex.MatchKind> kinds = new ArrayList<>();
+        assert !index.collect("List", true, 2, (fqn, kind) -> kinds.add(kind));
+        assert kinds.size() == 3 : kinds;
+
+        kinds.clear();
+        assert index.collect("List", true, 1, (fqn, kind) -> kinds.add(kind));
+        assert kinds.size() == 2 : kinds;
+        assert kinds.get(0) == ShortNameIndex.MatchKind.EXACT;
+    }
+
+    @Test
+    public void testCamelHumps() {
+        ShortNameIndex index = new ShortNameIndex();
+        index.add("com.google.common.collect.ArrayListMultimap");
+        index.add("java.util.ArrayList");
+
+        List<String> result = new ArrayList<>();
+        index.getTopN("ALM", true, 10, result::add);
+        assert result.size() == 1 : result;
+        assert result.get(0).equals("com.google.common.collect.ArrayListMultimap");
+
+        result.clear();
+        index.getTopN("AL", true, 10, result::add);
+        assert result.size() == 2 : result;
+
+        index.remove("com.google.common.collect.ArrayListMultimap");
+        result.clear();
+        index.getTopN("ALM", true, 10, result::add);
+        assert result.isEmpty();
+    }
+
+    @Test
+    public void testJar() throws IOException {
+        File jar = createJar("java/util/List.class", "java/util/ListIterator.class",
+                "java/util/AbstractList.class", "java/awt/List.class", "test/listener.class");
+        JarClassIndex jarIndex = JarClassIndex.open(jar, mFolder.newFolder("cache"));
+
+        ShortNameIndex index = new ShortNameIndex();
+        index.add("test.Lister");
+        index.addAll(jarIndex);
+
+        assert index.getClassNames("List").size() == 2;
+
+        List<String> result = new ArrayList<>();
+        index.getTopN("List", true, 10, result::add);
+        assert result.size() == 4 : result;
+        // exact matches are ranked before the prefix matches of the source classes
+        assert result.get(0).equals("java.awt.List") : result;
+        assert result.get(1).equals("java.util.List") : result;
+
+        result.clear();
+        index.getTopN("AL", true, 10, result::add);
+        assert result.size() == 1 && result.get(0).equals("java.util.AbstractList") : result;
+
+        index.removeAll(jarIndex);
+        assert index.getClassNames("List").isEmpty();
+    }
+
+    private File createJar(String... entries) throws IOException {
+        File jar = mFolder.newFile("test.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
@@ -1,9 +1,10 @@
 package com.tyron.completion;
 
-import me.xdrop.fuzzywuzzy.FuzzySearch;
-
 /**
  * Logic of matching a completion name with a given completion prefix
+ *
+ * Matching does not allocate, case insensitive comparisons are done per character and the
+ * buffer used by the fuzzy score is reused by each thread.
  */
 public class CompletionPrefixMatcher {
 
@@ -12,6 +13,8 @@ public class CompletionPrefixMatcher {
      */
     private static final int MINIMUM_SCORE = 70;
 
+    private static final ThreadLocal<int[]> sScoreBuffer = new ThreadLocal<>();
+
     /**
      * How well does the candidate name match the completion prefix.
      *
@@ -22,6 +25,7 @@ public class CompletionPrefixMatcher {
     public enum MatchLevel {
         NOT_MATCH,
         PARTIAL_MATCH,
+        CAMEL_CASE_MATCH,
         CASE_INSENSITIVE_PREFIX,
         CASE_SENSITIVE_PREFIX,
         CASE_INSENSITIVE_EQUAL,
@@ -35,16 +39,114 @@ public class CompletionPrefixMatcher {
                     : MatchLevel.CASE_SENSITIVE_PREFIX;
         }
 
-        if (candidateName.toLowerCase().startsWith(completionPrefix.toLowerCase())) {
+        if (candidateName.regionMatches(true, 0, completionPrefix, 0,
+                completionPrefix.length())) {
             return candidateName.length() == completionPrefix.length()
                     ? MatchLevel.CASE_INSENSITIVE_EQUAL
                     : MatchLevel.CASE_INSENSITIVE_PREFIX;
         }
 
-        int score = FuzzySearch.ratio(candidateName, completionPrefix);
-        if (score > MINIMUM_SCORE) {
+        if (matchesCamelCase(candidateName, completionPrefix)) {
+            return MatchLevel.CAMEL_CASE_MATCH;
+        }
+
+        if (ratio(candidateName, completionPrefix) > MINIMUM_SCORE) {
             return MatchLevel.PARTIAL_MATCH;
         }
         return MatchLevel.NOT_MATCH;
     }
+
+    /**
+     * Whether each character of the prefix matches the candidate either by continuing the
+     * current word or by starting a new word, e.g. {@code gSV} matches {@code getSomeValue}
+     * and {@code ALM} matches {@code ArrayListMultimap}. Upper case characters of the prefix
+     * can only match the start of a word.
+     */
+    public static boolean matchesCamelCase(String candidateName, String completionPrefix) {
+        if (completionPrefix.isEmpty()) {
+            return true;
+        }
+        if (candidateName.isEmpty() ||
+            !equalsIgnoreCase(candidateName.charAt(0), completionPrefix.charAt(0))) {
+            return false;
+        }
+
+        int index = 1;
+        for (int i = 1; i < completionPrefix.length(); i++) {
+            char c = completionPrefix.charAt(i);
+            if (index < candidateName.length() &&
+                equalsIgnoreCase(candidateName.charAt(index), c) &&
+                (!Character.isUpperCase(c) || isWordStart(candidateName, index))) {
+                index++;
+                continue;
+            }
+
+            // jump to the next word that starts with the character
+            int next = index;
+            while (next < candidateName.length() &&
+                   !(isWordStart(candidateName, next) &&
+                     equalsIgnoreCase(candidateName.charAt(next), c))) {
+                next++;
+            }
+            if (next == candidateName.length()) {
+                return false;
+            }
+            index = next + 1;
+        }
+        return true;
+    }
+
+    private static boolean isWordStart(String name, int index) {
+        if (index == 0) {
+            return true;
+        }
+        char c = name.charAt(index);
+        char previous = name.charAt(index - 1);
+        return Character.isUpperCase(c) || (previous == '_' && c != '_') ||
+               (Character.isDigit(c) && !Character.isDigit(previous));
+    }
+
+    private static boolean equalsIgnoreCase(char a, char b) {
+        return a == b || Character.toLowerCase(a) == Character.toLowerCase(b);
+    }
+
+    /**
+     * The similarity of the two strings from 0 to 100. This is the same score as
+     * {@code FuzzySearch.ratio}, it is computed from the longest common subsequence using
+     * a single row that is reused across calls.
+     */
+    static int ratio(String first, String second) {
+        int total = first.length() + second.length();
+        if (total == 0) {
+            return 100;
+        }
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+
+        int[] row = sScoreBuffer.get();
+        if (row == null || row.length < second.length() + 1) {
+            row = new int[Math.max(second.length() + 1, 64)];
+            sScoreBuffer.set(row);
+        }
+        for (int j = 0; j <= second.length(); j++) {
+            row[j] = 0;
+        }
+
+        for (int i = 1; i <= first.length(); i++) {
+            char c = first.charAt(i - 1);
+            int diagonal = 0;
+            for (int j = 1; j <= second.length(); j++) {
+                int above = row[j];
+                if (c == second.charAt(j - 1)) {
+                    row[j] = diagonal + 1;
+                } else if (row[j - 1] > above) {
+                    row[j] = row[j - 1];
+                }
+                diagonal = above;
+            }
+        }
+        int commonLength = row[second.length()];
+        return Math.round(200f * commonLength / total);
+    }
 }
@@ -10,9 +10,19 @@ import com.tyron.completion.model.CompletionList;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.editor.Editor;
 
+import com.tyron.completion.progress.ProgressIndicator;
+import com.tyron.completion.progress.ProgressManager;
+
 import java.io.File;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -29,6 +39,18 @@ public class CompletionEngine {
         return sInstance;
     }
 
+    /**
+     * The default time given to all the providers of a request in
+     * {@link #completeConcurrently(CompletionParameters, long, BooleanSupplier, Consumer)}
+     */
+    public static final long DEFAULT_DEADLINE_MILLIS = 500;
+
+    /**
+     * How often the calling thread checks whether the request has been canceled while waiting
+     * for the providers
+     */
+    private static final long CANCEL_CHECK_INTERVAL_MILLIS = 20;
+
     private final Logger logger = IdeLog.getCurrentLogger(this);
 
     public CompletionEngine() {
@@ -73,15 +95,122 @@ public class CompletionEngine {
                 if (e instanceof ProcessCanceledException) {
                     throw e;
                 }
+                logFailure(parameters, e);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Runs every provider of the parameters concurrently on the {@link ProgressManager} pool.
+     * Each result is passed to the consumer as soon as its provider finishes, so a slow
+     * provider does not delay the results of the others. Providers that have not finished
+     * when the deadline passes or when the request is canceled are canceled through their
+     * progress indicators, and the returned list is marked as incomplete.
+     *
+     * <p>The calling thread does not need to be a {@link ProgressManager} thread, the given
+     * cancel check is polled while waiting and the running providers are canceled as soon
+     * as it returns true.</p>
+     *
+     * @param parameters     The parameters of this completion request
+     * @param deadlineMillis The time in milliseconds the providers are given to finish
+     * @param isCanceled     Whether the request has been canceled by its caller
+     * @param batchConsumer  Receives the result of each provider on the calling thread
+     * @return The merged results of the providers that finished in time, marked as
+     * incomplete if any provider did not
+     */
+    public CompletionList completeConcurrently(CompletionParameters parameters,
+                                               long deadlineMillis,
+                                               BooleanSupplier isCanceled,
+                                               Consumer<CompletionList> batchConsumer) {
+        Project project = parameters.getProject();
+        if (project.isCompiling()) {
+            return CompletionList.EMPTY;
+        }
+
+        CompletionList list = new CompletionList();
+        list.items = new ArrayList<>();
+        // results while indexing may be missing items, don't let them be cached
+        list.isIncomplete = project.isIndexing();
+
+        List<CompletionProvider> providers = CompletionProvider.forParameters(parameters);
+        if (providers.isEmpty()) {
+            return list;
+        }
+
+        BlockingQueue<ProviderResult> results = new LinkedBlockingQueue<>();
+        Map<CompletionProvider, ProgressIndicator> running = new IdentityHashMap<>();
+        for (CompletionProvider provider : providers) {
+            ProgressIndicator indicator = new ProgressIndicator();
+            running.put(provider, indicator);
+            ProgressManager.getInstance().runAsync(() -> {
+                CompletionList result = null;
+                try {
+                    result = provider.complete(parameters);
+                } catch (ProcessCanceledException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    logFailure(parameters, e);
+                }
+                results.add(new ProviderResult(provider, result));
+            }, i -> results.add(new ProviderResult(provider, null)), indicator);
+        }
 
-                String message = "Failed to complete: \n" +
-                                 "index: " + index + "\n" +
-                                 "prefix: " + prefix + "\n" +
-                                 "File: " + file.getName() + "\n" +
-                                 "Stack trace: " + Throwables.getStackTraceAsString(e);
-                logger.severe(message);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        try {
+            while (!running.isEmpty() && !isCanceled.getAsBoolean()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                ProviderResult result = results.poll(
+                        Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(CANCEL_CHECK_INTERVAL_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    continue;
+                }
+                running.remove(result.provider);
+
+                CompletionList complete = result.list;
+                if (complete == null) {
+                    continue;
+                }
+                if (complete.isIncomplete) {
+                    list.isIncomplete = true;
+                }
+                list.items.addAll(complete.items);
+                batchConsumer.accept(complete);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // the deadline has passed, the request has been canceled or the consumer threw
+            if (!running.isEmpty()) {
+                list.isIncomplete = true;
+                for (ProgressIndicator indicator : running.values()) {
+                    indicator.cancel();
+                }
             }
         }
         return list;
     }
+
+    private void logFailure(CompletionParameters parameters, Throwable e) {
+        String message = "Failed to complete: \n" +
+                         "index: " + parameters.getIndex() + "\n" +
+                         "prefix: " + parameters.getPrefix() + "\n" +
+                         "File: " + parameters.getFile().getName() + "\n" +
+                         "Stack trace: " + Throwables.getStackTraceAsString(e);
+        logger.severe(message);
+    }
+
+    private static class ProviderResult {
+        final CompletionProvider provider;
+        final CompletionList list;
+
+        ProviderResult(CompletionProvider provider, CompletionList list) {
+            this.provider = provider;
+            this.list = list;
+        }
+    }
 }
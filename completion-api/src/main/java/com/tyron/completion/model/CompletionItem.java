@@ -22,9 +22,7 @@ public class CompletionItem implements Comparable<CompletionItem> {
             Comparator.comparing((CompletionItem item) -> item.getMatchLevel()
                     .ordinal(), Comparator.reverseOrder())
                     .thenComparing(CompletionItem::getSortText)
-                    .thenComparing(it -> it.getFilterTexts()
-                            .isEmpty() ? it.getLabel() : it.getFilterTexts()
-                            .get(0));
+                    .thenComparing(CompletionItem::getFilterText);
 
 
     public static CompletionItem create(String label, String detail, String commitText) {
@@ -87,6 +85,31 @@ public class CompletionItem implements Comparable<CompletionItem> {
         filterTexts.add(text);
     }
 
+    /**
+     * @return The first filter text of this item, or its label if it has none. Unlike
+     * {@link #getFilterTexts()} this does not copy the filter texts.
+     */
+    public String getFilterText() {
+        if (filterTexts.isEmpty()) {
+            return label;
+        }
+        return filterTexts.get(0);
+    }
+
+    /**
+     * @return The number of filter texts, an item without filter texts is matched by its label
+     */
+    int getFilterTextCount() {
+        return filterTexts.isEmpty() ? 1 : filterTexts.size();
+    }
+
+    String getFilterText(int index) {
+        if (filterTexts.isEmpty()) {
+            return label;
+        }
+        return filterTexts.get(index);
+    }
+
     public String getSortText() {
         return sortText;
     }
@@ -12,7 +12,6 @@ import com.tyron.completion.CompletionProvider;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
@@ -31,6 +30,12 @@ public class CompletionList {
 
     public static final CompletionList EMPTY = new CompletionList();
 
+    /**
+     * The maximum number of items in a built list, the popup only shows a few dozen items
+     * so sorting every candidate is not needed.
+     */
+    public static final int MAX_ITEMS = 100;
+
     public boolean isIncomplete = false;
 
     public List<CompletionItem> items = new ArrayList<>();
@@ -94,20 +99,17 @@ public class CompletionList {
         }
 
         public Builder addItem(CompletionItem item) {
-            List<MatchLevel> matchLevels = new ArrayList<>();
-            for (String filterText : item.getFilterTexts()) {
-                MatchLevel matchLevel =
-                        CompletionPrefixMatcher.computeMatchLevel(filterText, completionPrefix);
-                if (matchLevel == MatchLevel.NOT_MATCH) {
-                    continue;
+            MatchLevel matchLevel = MatchLevel.NOT_MATCH;
+            for (int i = 0; i < item.getFilterTextCount(); i++) {
+                MatchLevel level = CompletionPrefixMatcher.computeMatchLevel(
+                        item.getFilterText(i), completionPrefix);
+                if (level.ordinal() > matchLevel.ordinal()) {
+                    matchLevel = level;
                 }
-                matchLevels.add(matchLevel);
             }
-            if (matchLevels.isEmpty()) {
+            if (matchLevel == MatchLevel.NOT_MATCH) {
                 return this;
             }
-            Collections.sort(matchLevels);
-            MatchLevel matchLevel = matchLevels.get(matchLevels.size() - 1);
             item.setMatchLevel(matchLevel);
             items.add(item);
             return this;
@@ -125,12 +127,89 @@ public class CompletionList {
             return incomplete;
         }
 
+        /**
+         * Only the best {@link #MAX_ITEMS} items are kept and the list is marked as incomplete
+         * if items are dropped. Items that compare equal keep the order they were added in.
+         */
         @SuppressWarnings("NewApi")
         public CompletionList build() {
             CompletionList list = new CompletionList();
             list.isIncomplete = this.incomplete;
-            list.items = ITEM_ORDERING.immutableSortedCopy(items);
+            if (items.size() > MAX_ITEMS) {
+                list.isIncomplete = true;
+                list.items = selectTop(items, MAX_ITEMS);
+            } else {
+                list.items = ITEM_ORDERING.immutableSortedCopy(items);
+            }
             return list;
         }
+
+        /**
+         * Selects the best k items with a bounded max heap of their indices, the worst of the
+         * selected items is at the root so it can be replaced by a better item.
+         */
+        private static List<CompletionItem> selectTop(List<CompletionItem> items, int k) {
+            int[] heap = new int[k];
+            int size = 0;
+            for (int i = 0; i < items.size(); i++) {
+                if (size < k) {
+                    heap[size] = i;
+                    siftUp(items, heap, size);
+                    size++;
+                } else if (compare(items, i, heap[0]) < 0) {
+                    heap[0] = i;
+                    siftDown(items, heap, 0, size);
+                }
+            }
+
+            CompletionItem[] result = new CompletionItem[size];
+            for (int end = size - 1; end >= 0; end--) {
+                result[end] = items.get(heap[0]);
+                heap[0] = heap[end];
+                siftDown(items, heap, 0, end);
+            }
+            return ImmutableList.copyOf(result);
+        }
+
+        private static void siftUp(List<CompletionItem> items, int[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (compare(items, heap[index], heap[parent]) <= 0) {
+                    return;
+                }
+                swap(heap, index, parent);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(List<CompletionItem> items, int[] heap, int index, int size) {
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && compare(items, heap[left], heap[largest]) > 0) {
+                    largest = left;
+                }
+                if (right < size && compare(items, heap[right], heap[largest]) > 0) {
+                    largest = right;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(heap, index, largest);
+                index = largest;
+            }
+        }
+
+        private static int compare(List<CompletionItem> items, int first, int second) {
+            int result = CompletionItem.COMPARATOR.compare(items.get(first), items.get(second));
+            return result != 0 ? result : Integer.compare(first, second);
+        }
+
+        private static void swap(int[] heap, int first, int second) {
+            int temp = heap[first];
+            heap[first] = heap[second];
+            heap[second] = temp;
+        }
     }
 }
@@ -42,7 +42,8 @@ public class ProgressManager {
     private final Map<Thread, ProgressIndicator> mThreadToIndicator;
 
     public ProgressManager() {
-        mThreadToIndicator = new WeakHashMap<>();
+        // tasks register themselves from the threads of the pool
+        mThreadToIndicator = Collections.synchronizedMap(new WeakHashMap<>());
         if (TestUtil.isDalvik()) {
             mMainHandler = new DefaultHandlerInterface(new Handler(Looper.getMainLooper()));
         } else {
@@ -151,6 +152,24 @@ public class ProgressManager {
         mThreadToIndicator.put(thread, indicator);
     }
 
+    /**
+     * Cancels the task running on the given thread only if it has been started from
+     * {@link #runAsync(Runnable, Consumer, ProgressIndicator)}. Unlike
+     * {@link #cancelThread(Thread)}, this does not leave a canceled indicator behind for
+     * threads that are not running a cancelable task.
+     *
+     * @param thread The thread to cancel
+     * @return true if a running task has been canceled
+     */
+    public boolean cancelIfRunning(Thread thread) {
+        ProgressIndicator indicator = mThreadToIndicator.get(thread);
+        if (indicator == null || !indicator.isRunning()) {
+            return false;
+        }
+        indicator.cancel();
+        return true;
+    }
+
     private void doCheckCanceled() {
         ProgressIndicator indicator = mThreadToIndicator.get(Thread.currentThread());
         if (indicator != null) {
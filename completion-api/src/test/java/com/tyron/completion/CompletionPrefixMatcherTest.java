@@ -0,0 +1,49 @@
+package com.tyron.completion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.tyron.completion.CompletionPrefixMatcher.MatchLevel;
+
+import org.junit.Test;
+
+public class CompletionPrefixMatcherTest {
+
+    @Test
+    public void testPrefix() {
+        assertEquals(MatchLevel.CASE_SENSITIVE_EQUAL,
+                CompletionPrefixMatcher.computeMatchLevel("toString", "toString"));
+        assertEquals(MatchLevel.CASE_SENSITIVE_PREFIX,
+                CompletionPrefixMatcher.computeMatchLevel("toString", "toS"));
+        assertEquals(MatchLevel.CASE_INSENSITIVE_EQUAL,
+                CompletionPrefixMatcher.computeMatchLevel("toString", "TOSTRING"));
+        assertEquals(MatchLevel.CASE_INSENSITIVE_PREFIX,
+                CompletionPrefixMatcher.computeMatchLevel("toString", "tos"));
+    }
+
+    @Test
+    public void testCamelCase() {
+        assertTrue(CompletionPrefixMatcher.matchesCamelCase("ArrayListMultimap", "ALM"));
+        assertTrue(CompletionPrefixMatcher.matchesCamelCase("getSomeValue", "gSV"));
+        assertTrue(CompletionPrefixMatcher.matchesCamelCase("getSomeValue", "getVal"));
+        assertTrue(CompletionPrefixMatcher.matchesCamelCase("MAX_VALUE", "MV"));
+        assertFalse(CompletionPrefixMatcher.matchesCamelCase("getSomeValue", "gX"));
+        assertFalse(CompletionPrefixMatcher.matchesCamelCase("getSomeValue", "sV"));
+
+        assertEquals(MatchLevel.CAMEL_CASE_MATCH,
+                CompletionPrefixMatcher.computeMatchLevel("ArrayListMultimap", "ALM"));
+    }
+
+    @Test
+    public void testRatio() {
+        // same scores as FuzzySearch.ratio
+        assertEquals(100, CompletionPrefixMatcher.ratio("test", "test"));
+        assertEquals(0, CompletionPrefixMatcher.ratio("abc", "xyz"));
+        assertEquals(92, CompletionPrefixMatcher.ratio("setText", "seText"));
+        assertEquals(MatchLevel.PARTIAL_MATCH,
+                CompletionPrefixMatcher.computeMatchLevel("setText", "setTetx"));
+        assertEquals(MatchLevel.NOT_MATCH,
+                CompletionPrefixMatcher.computeMatchLevel("setText", "xyz"));
+    }
+}
@@ -11,9 +11,30 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+
+/**
+ * Resolves the transitive dependencies of a list of poms.
+ *
+ * The poms of the dependency graph are first fetched in parallel, at most
+ * {@link #MAX_PARALLEL_REQUESTS} at a time, so the repository has them in memory when
+ * the graph is walked again to pick the versions of the conflicting libraries.
+ */
 public class DependencyResolver {
 
+    private static final int MAX_PARALLEL_REQUESTS = 8;
+
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(
+            MAX_PARALLEL_REQUESTS, r -> {
+                Thread thread = new Thread(r, "DependencyResolver");
+                thread.setDaemon(true);
+                return thread;
+            });
+
     private final RepositoryManager repository;
     private final Map<Pom, String> resolvedPoms;
 
@@ -60,12 +81,53 @@ public class DependencyResolver {
      * the conflicting libraries
      */
     public List<Pom> resolve(List<Pom> declaredDependencies) {
+        fetchAll(declaredDependencies);
         for (Pom pom : declaredDependencies) {
             resolve(pom);
         }
         return new ArrayList<>(resolvedPoms.keySet());
     }
 
+    /**
+     * Fetches the poms of the dependency graph of the given poms, the same pom is only
+     * requested once. Returns once every reachable pom has been fetched.
+     */
+    private void fetchAll(List<Pom> poms) {
+        Set<String> visited = ConcurrentHashMap.newKeySet();
+        Phaser phaser = new Phaser(1);
+        for (Pom pom : poms) {
+            visited.add(pom.getDeclarationString());
+        }
+        for (Pom pom : poms) {
+            fetchDependencies(pom, pom.getExcludes(), visited, phaser);
+        }
+        phaser.arriveAndAwaitAdvance();
+    }
+
+    private void fetchDependencies(Pom pom, List<Dependency> excludes, Set<String> visited, Phaser phaser) {
+        for (Dependency dependency : pom.getDependencies()) {
+            if ("test".equals(dependency.getScope()) || isExcluded(excludes, dependency)) {
+                continue;
+            }
+            String declaration = dependency.toString();
+            if (!visited.add(declaration)) {
+                continue;
+            }
+
+            phaser.register();
+            sExecutor.execute(() -> {
+                try {
+                    Pom fetched = repository.getPom(declaration);
+                    if (fetched != null) {
+                        fetchDependencies(fetched, excludes, visited, phaser);
+                    }
+                } finally {
+                    phaser.arriveAndDeregister();
+                }
+            });
+        }
+    }
+
     private void resolve(Pom pom) {
         if (resolvedPoms.containsKey(pom)) {
             if (pom.isUserDefined()) {
@@ -96,31 +158,7 @@ public class DependencyResolver {
                 continue;
             }
 
-            boolean excluded = excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
-                if (ex == null) {
-                    return false;
-                }
-                if (ex.getGroupId() == null) {
-                    return false;
-                }
-                if (!ex.getGroupId().equals(dependency.getGroupId())) {
-                    return false;
-                }
-
-                if (ex.getArtifactId() == null) {
-                    return false;
-                }
-
-                if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
-                    return false;
-                }
-                if (TextUtils.isEmpty(ex.getVersionName())) {
-                    return true;
-                }
-                return ex.getVersionName().equals(dependency.getVersionName());
-            });
-
-            if (excluded) {
+            if (isExcluded(excludes, dependency)) {
                 continue;
             }
 
@@ -139,6 +177,29 @@ public class DependencyResolver {
         resolvedPoms.put(pom, pom.getVersionName());
     }
 
+    private static boolean isExcluded(List<Dependency> excludes, Dependency dependency) {
+        return excludes.stream().filter(Objects::nonNull).anyMatch(ex -> {
+            if (ex.getGroupId() == null) {
+                return false;
+            }
+            if (!ex.getGroupId().equals(dependency.getGroupId())) {
+                return false;
+            }
+
+            if (ex.getArtifactId() == null) {
+                return false;
+            }
+
+            if (!ex.getArtifactId().equals(dependency.getArtifactId())) {
+                return false;
+            }
+            if (TextUtils.isEmpty(ex.getVersionName())) {
+                return true;
+            }
+            return ex.getVersionName().equals(dependency.getVersionName());
+        });
+    }
+
     private int getHigherVersion(String firstVersion, String secondVersion) {
         ComparableVersion firstComparableVersion = new ComparableVersion(firstVersion);
         ComparableVersion secondComparableVersion = new ComparableVersion(secondVersion);
@@ -11,7 +11,8 @@ import java.io.IOException;
 public interface RepositoryManager {
 
     /**
-     * Retrieve the pom file either from cache or from the network
+     * Retrieve the pom file either from cache or from the network. May be called from
+     * multiple threads, a pom that is being fetched by another thread is not fetched again.
      * @param declaration Declaration string in this format {@code groupId:artifactId:version}
      * @return null if the pom file is not found on the cache or the urls
      */
@@ -10,8 +10,6 @@ import com.tyron.resolver.model.Pom;
 import com.tyron.resolver.parser.PomParser;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.SuffixFileFilter;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.xml.sax.SAXException;
 import org.xmlpull.v1.XmlPullParserException;
 
@@ -20,10 +18,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.jar.JarFile;
 import java.util.logging.Logger;
 import java.util.zip.ZipFile;
@@ -36,11 +37,16 @@ public class RepositoryManagerImpl implements RepositoryManager {
 
     private File cacheDir;
     private final List<Repository> repositories;
-    private final List<Pom> pomFiles;
+
+    /**
+     * The poms that have been parsed or are being fetched, keyed by
+     * {@code groupId:artifactId:version}
+     */
+    private final Map<String, CompletableFuture<Pom>> pomFiles;
 
     public RepositoryManagerImpl() {
-        this.repositories = new ArrayList<>();
-        this.pomFiles = new ArrayList<>();
+        this.repositories = new CopyOnWriteArrayList<>();
+        this.pomFiles = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -50,39 +56,76 @@ public class RepositoryManagerImpl implements RepositoryManager {
         if (pomNames == null) {
             return null;
         }
-        for (Pom pom : pomFiles) {
-            if (!pomNames[0].equals(pom.getGroupId())) {
-                continue;
-            }
-            if (!pomNames[1].equals(pom.getArtifactId())) {
-                continue;
+        String key = pomNames[0] + ":" + pomNames[1] + ":" + pomNames[2];
+
+        // another thread may already be fetching this pom, wait for it instead of
+        // fetching it again
+        CompletableFuture<Pom> future = new CompletableFuture<>();
+        CompletableFuture<Pom> existing = pomFiles.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        Pom pom = null;
+        try {
+            pom = loadPom(pomNames);
+        } finally {
+            if (pom == null) {
+                // not cached, the pom may be found on a later lookup
+                pomFiles.remove(key, future);
             }
-            if (!pomNames[2].equals(pom.getVersionName())) {
-                continue;
+            future.complete(pom);
+        }
+        return pom;
+    }
+
+    /**
+     * Parses the pom from the disk cache of the repositories, if none of the repositories
+     * have it cached, it is fetched from their urls.
+     */
+    @Nullable
+    private Pom loadPom(String[] names) {
+        String path = getPathFromDeclaration(names) + ".pom";
+        for (Repository repository : repositories) {
+            try {
+                File file = repository.getCachedFile(path);
+                if (file != null && file.exists()) {
+                    return parsePom(names, FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // ignored, try to fetch it from the urls
             }
-            return pom;
         }
-        return getPomFromUrls(pomNames);
+        return getPomFromUrls(names);
     }
 
     private Pom getPomFromUrls(String[] names) {
-        InputStream is = getFromUrls(getPathFromDeclaration(names) + ".pom");
-        if (is != null) {
-            String contents;
-            try {
-                contents = CharStreams.toString(new InputStreamReader(is));
-                Pom parsed = new PomParser(this).parse(contents);
-                parsed.setGroupId(names[0]);
-                parsed.setArtifactId(names[1]);
-                parsed.setVersionName(names[2]);
-                pomFiles.add(parsed);
-                return parsed;
-            } catch (IOException | XmlPullParserException | SAXException e) {
-                String message = "Failed to parse input stream.\n" +
-                                 "Declaration: " + Arrays.toString(names) + "\n" +
-                                 "Reason: " + e.getMessage();
-                sLogger.severe(message);
+        try (InputStream is = getFromUrls(getPathFromDeclaration(names) + ".pom")) {
+            if (is != null) {
+                return parsePom(names, CharStreams.toString(new InputStreamReader(is)));
             }
+        } catch (IOException e) {
+            sLogger.warning("Failed to read " + Arrays.toString(names) + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    @Nullable
+    private Pom parsePom(String[] names, String contents) {
+        try {
+            Pom parsed = new PomParser(this).parse(contents);
+            if (parsed == null) {
+                return null;
+            }
+            parsed.setGroupId(names[0]);
+            parsed.setArtifactId(names[1]);
+            parsed.setVersionName(names[2]);
+            return parsed;
+        } catch (IOException | XmlPullParserException | SAXException e) {
+            String message = "Failed to parse input stream.\n" +
+                             "Declaration: " + Arrays.toString(names) + "\n" +
+                             "Reason: " + e.getMessage();
+            sLogger.severe(message);
         }
         return null;
     }
@@ -203,30 +246,9 @@ public class RepositoryManagerImpl implements RepositoryManager {
             throw new IllegalStateException("Cache directory is not set.");
         }
 
+        // the cached poms are parsed when they are first requested
         for (Repository repository : repositories) {
             repository.setCacheDirectory(cacheDir);
-
-            File rootDirectory = repository.getRootDirectory();
-            if (rootDirectory == null || !rootDirectory.exists()) {
-                continue;
-            }
-            Iterator<File> pomFiles = FileUtils.iterateFiles(rootDirectory,
-                    new SuffixFileFilter(".pom"), TrueFileFilter.INSTANCE);
-
-            // save pom files for later
-            while (pomFiles.hasNext()) {
-                File pom = pomFiles.next();
-                PomParser parser = new PomParser(this);
-                try {
-                    Pom parsed = parser.parse(pom);
-                    this.pomFiles.add(parsed);
-                } catch (XmlPullParserException | IOException | SAXException e) {
-                    // ignored
-                    // TODO: should the file be deleted if its corrupt?
-                    sLogger.severe("Unable to parse file " + pom + "\n" +
-                                   "Reason: " + e.getMessage());
-                }
-            }
         }
     }
 }
@@ -3,6 +3,7 @@ package com.tyron.resolver;
 import com.google.common.collect.ImmutableList;
 import com.tyron.common.TestUtil;
 import com.tyron.resolver.model.Pom;
+import com.tyron.resolver.repository.LocalRepository;
 import com.tyron.resolver.repository.RepositoryManager;
 import com.tyron.resolver.repository.RepositoryManagerImpl;
 
@@ -11,6 +12,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class DependencyResolverTest {
@@ -60,4 +62,59 @@ public class DependencyResolverTest {
 
         FileUtils.forceDelete(cacheDir);
     }
+
+    @Test
+    public void testLocalRepository() throws IOException {
+        File cacheDir = new File(TestUtil.getResourcesDirectory(), "local-cache");
+        File root = new File(cacheDir, "local");
+        writePom(root, "com.example", "app", "1.0",
+                "com.example:core:1.0", "com.example:ui:1.0");
+        writePom(root, "com.example", "ui", "1.0", "com.example:core:2.0");
+        writePom(root, "com.example", "core", "1.0");
+        writePom(root, "com.example", "core", "2.0");
+
+        RepositoryManager repository = new RepositoryManagerImpl();
+        repository.addRepository(new LocalRepository("local"));
+        repository.setCacheDirectory(cacheDir);
+        repository.initialize();
+
+        Pom app = repository.getPom("com.example:app:1.0");
+        assert app != null;
+        // poms are cached by their coordinates
+        assert app == repository.getPom("com.example:app:1.0");
+
+        DependencyResolver resolver = new DependencyResolver(repository);
+        List<Pom> resolvedPoms = resolver.resolve(ImmutableList.of(app));
+        assert resolvedPoms.size() == 3;
+
+        // the higher version of core is picked
+        Pom core = resolvedPoms.get(resolvedPoms.indexOf(Pom.valueOf("com.example", "core", "1.0")));
+        assert core.getVersionName().equals("2.0");
+
+        FileUtils.forceDelete(cacheDir);
+    }
+
+    private void writePom(File root, String groupId, String artifactId, String version,
+                          String... dependencies) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<project>\n");
+        sb.append("  <groupId>").append(groupId).append("</groupId>\n");
+        sb.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+        sb.append("  <version>").append(version).append("</version>\n");
+        sb.append("  <dependencies>\n");
+        for (String dependency : dependencies) {
+            String[] names = dependency.split(":");
+            sb.append("    <dependency>\n");
+            sb.append("      <groupId>").append(names[0]).append("</groupId>\n");
+            sb.append("      <artifactId>").append(names[1]).append("</artifactId>\n");
+            sb.append("      <version>").append(names[2]).append("</version>\n");
+            sb.append("    </dependency>\n");
+        }
+        sb.append("  </dependencies>\n");
+        sb.append("</project>\n");
+
+        String path = groupId.replace('.', '/') + "/" + artifactId + "/" + version + "/" +
+                      artifactId + "-" + version + ".pom";
+        FileUtils.writeStringToFile(new File(root, path), sb.toString(), StandardCharsets.UTF_8);
+    }
 }
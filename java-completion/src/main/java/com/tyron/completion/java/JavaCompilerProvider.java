@@ -33,6 +33,18 @@ public class JavaCompilerProvider extends CompilerProvider<JavaCompilerService>
         return provider.getCompiler(project, module);
     }
 
+    /**
+     * @return The compiler service in use, null if none has been created yet
+     */
+    @Nullable
+    public static JavaCompilerService getCurrent() {
+        Object index = CompilerService.getInstance().getIndex(KEY);
+        if (!(index instanceof JavaCompilerProvider)) {
+            return null;
+        }
+        return ((JavaCompilerProvider) index).mProvider;
+    }
+
     private volatile JavaCompilerService mProvider;
     private final Set<File> mCachedPaths;
 
@@ -66,7 +66,11 @@ import javax.tools.SimpleJavaFileObject;
 
 public class JavaCompletionProvider extends CompletionProvider {
 
-    private CachedCompletion mCachedCompletion;
+    /**
+     * The result of the last completed request. Requests may overlap, each request reads
+     * it once and only replaces it when it has finished without being canceled.
+     */
+    private volatile CachedCompletion mCachedCompletion;
 
     @SuppressWarnings("ALL")
     public JavaCompletionProvider() {
@@ -85,9 +89,10 @@ public class JavaCompletionProvider extends CompletionProvider {
         }
         checkCanceled();
 
-        if (isIncrementalCompletion(mCachedCompletion, params)) {
+        CachedCompletion cachedCompletion = mCachedCompletion;
+        if (isIncrementalCompletion(cachedCompletion, params)) {
             String partial = partialIdentifier(params.getPrefix(), params.getPrefix().length());
-            CompletionList cachedList = mCachedCompletion.getCompletionList();
+            CompletionList cachedList = cachedCompletion.getCompletionList();
             CompletionList copy = CompletionList.copy(cachedList, partial);
 
             // if the cached completion is incomplete,
@@ -101,6 +106,8 @@ public class JavaCompletionProvider extends CompletionProvider {
         CompletionList.Builder complete = null;
         try {
             complete = completeV2(params);
+        } catch (ProcessCanceledException e) {
+            throw e;
         } catch (Throwable t) {
             IdeLog.getCurrentLogger(getClass()).severe("Failed to complete: " +
                                                        Throwables.getStackTraceAsString(t));
@@ -115,6 +122,8 @@ public class JavaCompletionProvider extends CompletionProvider {
             newPrefix = partialIdentifier(params.getPrefix(), params.getPrefix().length());
         }
 
+        // a canceled request may have been cut short, don't let it replace the cache
+        checkCanceled();
         mCachedCompletion =
                 new CachedCompletion(params.getFile(), params.getLine(), params.getColumn(),
                         newPrefix, list);
@@ -129,18 +138,20 @@ public class JavaCompletionProvider extends CompletionProvider {
 
         JavacTaskImpl javacTask = compilationInfo.impl.getJavacTask();
         Context context = javacTask.getContext();
+        StringBuilder pruned = new StringBuilder(
+                new FileContentFixer(context).fixFileContent(parameters.getContents())
+        );
+        int toInsert = StringSearch.endOfLine(pruned, (int) parameters.getIndex());
+        String contents = pruned.insert(toInsert, ';').toString();
         SimpleJavaFileObject fileObject = new SimpleJavaFileObject(parameters.getFile().toURI(), JavaFileObject.Kind.SOURCE) {
                     @Override
                     public CharSequence getCharContent(boolean ignoreEncodingErrors) {
-                        StringBuilder pruned = new StringBuilder(
-                                new FileContentFixer(context).fixFileContent(parameters.getContents())
-                        );
-                        int toInsert = StringSearch.endOfLine(pruned, (int) parameters.getIndex());
-                        return pruned.insert(toInsert, ';');
+                        return contents;
                     }
                 };
 
-        JCTree.JCCompilationUnit unit = compilationInfo.updateImmediately(fileObject);
+        // edits confined to a single method body only reparse and attribute that method
+        JCTree.JCCompilationUnit unit = compilationInfo.updateIncrementally(fileObject, contents);
         if (unit == null) {
             return null;
         }
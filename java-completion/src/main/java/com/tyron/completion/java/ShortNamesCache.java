@@ -1,17 +1,27 @@
 package com.tyron.completion.java;
 
-import com.tyron.builder.model.CodeAssistLibrary;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
-import com.tyron.builder.project.impl.JavaModuleImpl;
+import com.tyron.builder.project.util.JarClassIndex;
+import com.tyron.builder.project.util.ShortNameIndex;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Deque;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.WeakHashMap;
+import java.util.function.Consumer;
 
 /**
  * Allows to retrieve java classes in a project by non-qualified names
@@ -28,13 +38,51 @@ public class ShortNamesCache {
         return cache;
     }
 
+    private static volatile JarClassIndex sJdkIndex;
+
     /**
-     * module used to store JDK indexes
+     * @return The class index of the android jar, the index is persisted next to the jar
+     * so it is only created once.
      */
-    private static final JavaModule JDK_MODULE = new JavaModuleImpl(null);
+    @Nullable
+    private static JarClassIndex getJdkIndex() {
+        if (sJdkIndex == null) {
+            synchronized (ShortNamesCache.class) {
+                if (sJdkIndex == null) {
+                    File androidJar = CompletionModule.getAndroidJar();
+                    if (androidJar == null) {
+                        return null;
+                    }
+                    try {
+                        sJdkIndex = JarClassIndex.open(androidJar,
+                                new File(androidJar.getParentFile(), "jar-index"));
+                    } catch (IOException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return sJdkIndex;
+    }
 
-    static {
-        JDK_MODULE.addLibrary(CodeAssistLibrary.forJar(Objects.requireNonNull(CompletionModule.getAndroidJar())));
+    private static volatile ShortNameIndex sJdkShortNameIndex;
+
+    @Nullable
+    private static ShortNameIndex getJdkShortNameIndex() {
+        if (sJdkShortNameIndex == null) {
+            synchronized (ShortNamesCache.class) {
+                if (sJdkShortNameIndex == null) {
+                    JarClassIndex jdkIndex = getJdkIndex();
+                    if (jdkIndex == null) {
+                        return null;
+                    }
+                    ShortNameIndex index = new ShortNameIndex();
+                    index.addAll(jdkIndex);
+                    sJdkShortNameIndex = index;
+                }
+            }
+        }
+        return sJdkShortNameIndex;
     }
 
     private final Module module;
@@ -44,38 +92,120 @@ public class ShortNamesCache {
     }
 
     /**
-     * Returns the list of fully qualified names of all classes in the project and (optionally)
-     * libraries.
+     * @return The fully qualified names of the classes with the given simple name in this
+     * module, its dependencies and the JDK
      */
-    public String[] getAllClassNames() {
-        if (!(module instanceof JavaModule)) {
-            return new String[0];
+    @NonNull
+    public Set<String> getClassesByName(@NonNull String simpleName) {
+        Set<String> classNames = new TreeSet<>();
+        for (ShortNameIndex index : getShortNameIndexes()) {
+            classNames.addAll(index.getClassNames(simpleName));
         }
+        return classNames;
+    }
 
-        Set<String> classNames = new HashSet<>();
+    /**
+     * Passes at most {@code limit} classes whose simple name or camel hump initials start with
+     * the given prefix to the consumer. The matches of every index are ranked together, exact
+     * matches first, then prefix matches and then camel hump matches, before they are cut to
+     * the limit so a class of the JDK is not pushed out by the matches of a library.
+     *
+     * @return Whether there are more matching classes than the limit
+     * @see ShortNameIndex#collect(String, boolean, int, ShortNameIndex.MatchConsumer)
+     */
+    public boolean processClassNames(@NonNull String prefix,
+                                     boolean caseSensitive,
+                                     int limit,
+                                     @NonNull Consumer<String> consumer) {
+        Map<ShortNameIndex.MatchKind, Set<String>> matches =
+                new EnumMap<>(ShortNameIndex.MatchKind.class);
+        for (ShortNameIndex.MatchKind kind : ShortNameIndex.MatchKind.values()) {
+            matches.put(kind, new TreeSet<>(ShortNameIndex.MATCH_ORDER));
+        }
+        boolean truncated = false;
+        for (ShortNameIndex index : getShortNameIndexes()) {
+            truncated |= index.collect(prefix, caseSensitive, limit,
+                    (fqn, kind) -> matches.get(kind).add(fqn));
+        }
+
+        int count = 0;
+        for (Set<String> classNames : matches.values()) {
+            for (String className : classNames) {
+                if (count++ >= limit) {
+                    return true;
+                }
+                consumer.accept(className);
+            }
+        }
+        return truncated;
+    }
+
+    private Collection<ShortNameIndex> getShortNameIndexes() {
+        List<ShortNameIndex> indexes = new ArrayList<>();
+        if (!(module instanceof JavaModule)) {
+            return indexes;
+        }
+        for (Module current : getModules()) {
+            if (current instanceof JavaModule) {
+                indexes.add(((JavaModule) current).getShortNameIndex());
+            }
+        }
+        ShortNameIndex jdkIndex = getJdkShortNameIndex();
+        if (jdkIndex != null) {
+            indexes.add(jdkIndex);
+        }
+        return indexes;
+    }
 
+    /**
+     * @return This module and all the modules it depends on, transitively
+     */
+    private List<Module> getModules() {
+        List<Module> modules = new ArrayList<>();
         Deque<Module> queue = new LinkedList<>();
         Set<Module> visitedModules = new HashSet<>();
         queue.addLast(module);
 
         while (!queue.isEmpty()) {
             Module current = queue.removeFirst();
-
-            if (current instanceof JavaModule) {
-                JavaModule javaModule = (JavaModule) current;
-                classNames.addAll(javaModule.getClassIndex().getLeafNodes());
-            }
+            modules.add(current);
 
             visitedModules.add(current);
             for (String path : current.getModuleDependencies()) {
                 Module dependingModule = current.getProject().getModuleByName(path);
                 if (dependingModule != null && !visitedModules.contains(dependingModule)) {
+                    visitedModules.add(dependingModule);
                     queue.addLast(dependingModule);
                 }
             }
         }
+        return modules;
+    }
 
-        classNames.addAll(JDK_MODULE.getClassIndex().getLeafNodes());
+    /**
+     * Returns the list of fully qualified names of all classes in the project and (optionally)
+     * libraries.
+     */
+    public String[] getAllClassNames() {
+        if (!(module instanceof JavaModule)) {
+            return new String[0];
+        }
+
+        Set<String> classNames = new HashSet<>();
+        for (Module current : getModules()) {
+            if (current instanceof JavaModule) {
+                JavaModule javaModule = (JavaModule) current;
+                javaModule.getClassIndex().forEachLeafNode(fqn -> classNames.add(fqn.toString()));
+                for (JarClassIndex jarIndex : javaModule.getJarClassIndexes()) {
+                    jarIndex.forEachClass(classNames::add);
+                }
+            }
+        }
+
+        JarClassIndex jdkIndex = getJdkIndex();
+        if (jdkIndex != null) {
+            jdkIndex.forEachClass(classNames::add);
+        }
         return classNames.toArray(new String[0]);
     }
 }
@@ -9,6 +9,7 @@ import com.tyron.actions.AnAction;
 import com.tyron.actions.AnActionEvent;
 import com.tyron.actions.CommonDataKeys;
 import com.tyron.actions.Presentation;
+import com.tyron.completion.java.ShortNamesCache;
 import com.tyron.completion.java.compiler.JavaCompilerService;
 import com.tyron.completion.java.R;
 import com.tyron.completion.java.action.CommonJavaContextKeys;
@@ -25,9 +26,8 @@ import com.sun.tools.javac.api.ClientCodeWrapper;
 import com.sun.tools.javac.util.JCDiagnostic;
 
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 public class ImportClassAction extends AnAction {
@@ -68,12 +68,8 @@ public class ImportClassAction extends AnAction {
         }
 
         String simpleName = String.valueOf(diagnosticSourceUnwrapper.d.getArgs()[1]);
-        List<String> classNames = new ArrayList<>();
-        for (String qualifiedName : compiler.publicTopLevelTypes()) {
-            if (qualifiedName.endsWith("." + simpleName)) {
-                classNames.add(qualifiedName);
-            }
-        }
+        Set<String> classNames = ShortNamesCache.getInstance(compiler.getCurrentModule())
+                .getClassesByName(simpleName);
 
         if (classNames.isEmpty()) {
             return;
@@ -106,13 +102,12 @@ public class ImportClassAction extends AnAction {
         Path file = e.getRequiredData(CommonDataKeys.FILE).toPath();
 
         Map<String, JavaRewrite> map = new TreeMap<>();
-        for (String qualifiedName : compiler.publicTopLevelTypes()) {
-            if (qualifiedName.endsWith("." + simpleName)) {
-                String title = e.getDataContext().getString(R.string.import_class_name, qualifiedName);
-//                JavaRewrite2 addImport = new AddImport(file.toFile(), qualifiedName);
-//                map.put(title, addImport);
-                throw new UnsupportedOperationException();
-            }
+        ShortNamesCache cache = ShortNamesCache.getInstance(compiler.getCurrentModule());
+        for (String qualifiedName : cache.getClassesByName(simpleName)) {
+            String title = e.getDataContext().getString(R.string.import_class_name, qualifiedName);
+//            JavaRewrite2 addImport = new AddImport(file.toFile(), qualifiedName);
+//            map.put(title, addImport);
+            throw new UnsupportedOperationException();
         }
 
         if (map.size() == 1) {
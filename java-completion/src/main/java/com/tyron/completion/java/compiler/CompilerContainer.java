@@ -2,8 +2,6 @@ package com.tyron.completion.java.compiler;
 
 import android.util.Log;
 
-import androidx.annotation.GuardedBy;
-
 import com.sun.source.util.JavacTask;
 import com.sun.tools.javac.api.JavacTaskImpl;
 import com.sun.tools.javac.util.Context;
@@ -12,10 +10,7 @@ import com.tyron.completion.java.compiler.services.CancelService;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 import kotlin.jvm.functions.Function1;
@@ -26,12 +21,12 @@ import kotlin.jvm.functions.Function1;
  * A read is when the {@link CompileTask} is being accessed to get information about the parse tree.
  * A write is when the {@link CompileTask} is being changed from a compile call
  *
- * Any threads are allowed to read only if there is no thread that is currently writing.
- * If there is a thread that is currently writing, all other threads that attempts to read
- * will be blocked until the write thread has finished.
+ * javac is not thread safe, so only one thread may read or write at a time. Each container
+ * has its own compiler, so containers of different projects do not wait for each other.
  *
- * Only one thread is allowed to write at a time, during a write operation all threads that
- * attempts to read will be blocked until the thread writing has finished.
+ * When a writer arrives, the reader that is still running on the previous compile task is
+ * canceled through the {@link ProgressManager} so that the writer does not have to wait for
+ * stale results. The lock is fair, so a waiting writer is not overtaken by later readers.
  */
 public class CompilerContainer {
 
@@ -39,12 +34,25 @@ public class CompilerContainer {
 
     private volatile boolean mIsWriting;
 
-    private static final Semaphore semaphore = new Semaphore(1);
+    private final ReentrantLock mLock = new ReentrantLock(true);
+
+    /**
+     * The thread that is currently reading the compile task, used to cancel a stale reader
+     * when a new compilation is requested.
+     */
+    private volatile Thread mReader;
 
     private volatile CompileTask mCompileTask;
 
+    /**
+     * Incremented every time a new compile task is published.
+     */
+    private volatile long mVersion;
+
     public CompilerContainer() {
-        System.out.println("New instance created - CompilerContainer");
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "New instance created - CompilerContainer");
+        }
     }
 
     private void cancel() {
@@ -67,6 +75,39 @@ public class CompilerContainer {
                 (ReusableCompiler.CancelServiceImpl) ReusableCompiler.CancelServiceImpl.instance(context);
     }
 
+    /**
+     * Cancels the reader that is still using the previous compile task. A reader that is not
+     * running as a cancelable task is left alone and will be waited on by the writer.
+     */
+    private void cancelReader() {
+        Thread reader = mReader;
+        if (reader != null && reader != Thread.currentThread()) {
+            ProgressManager.getInstance().cancelIfRunning(reader);
+        }
+    }
+
+    private CompileTask acquireRead() {
+        mLock.lock();
+        if (mLock.getHoldCount() == 1) {
+            mReader = Thread.currentThread();
+        }
+        return mCompileTask;
+    }
+
+    private void releaseRead(CompileTask task) {
+        try {
+            // the outermost read closes the compile task so the compiler can be reused
+            if (mLock.getHoldCount() == 1) {
+                mReader = null;
+                if (task != null) {
+                    task.close();
+                }
+            }
+        } finally {
+            mLock.unlock();
+        }
+    }
+
     /**
      * This is for codes that will use the compile information,
      * it ensures that all other threads accessing the compile information
@@ -74,58 +115,49 @@ public class CompilerContainer {
      */
     public void run(Consumer<CompileTask> consumer) {
         cancel();
-        semaphore.acquireUninterruptibly();
+        CompileTask task = acquireRead();
         try {
-            consumer.accept(mCompileTask);
+            consumer.accept(task);
         } finally {
-            mCompileTask.close();
-            semaphore.release();
+            releaseRead(task);
         }
     }
 
     public <T> T get(Function1<CompileTask, T> fun) {
         cancel();
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new ProcessCanceledException();
-        }
-
-        try {
-            return fun.invoke(mCompileTask);
-        } finally {
-            mCompileTask.close();
-            semaphore.release();
-        }
+        return getWithLock(fun);
     }
 
     public <T> T getWithLock(Function1<CompileTask, T> fun) {
+        CompileTask task = acquireRead();
         try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            throw new ProcessCanceledException();
-        }
-
-        try {
-            return fun.invoke(mCompileTask);
+            return fun.invoke(task);
         } finally {
-            mCompileTask.close();
-            semaphore.release();
+            releaseRead(task);
         }
+    }
 
+    public boolean isWriting() {
+        return mIsWriting || mLock.hasQueuedThreads();
     }
 
-    public synchronized boolean isWriting() {
-        return mIsWriting || semaphore.hasQueuedThreads();
+    /**
+     * @return The version of the currently published compile task, this changes every time
+     * a compilation is published through {@link #setCompileTask(CompileTask)}
+     */
+    public long getVersion() {
+        return mVersion;
     }
 
     void initialize(Runnable runnable) {
+        mIsWriting = true;
+        cancelReader();
         try {
-            semaphore.acquire();
+            mLock.lockInterruptibly();
         } catch (InterruptedException e) {
+            mIsWriting = false;
             throw new ProcessCanceledException();
         }
-        mIsWriting = true;
         try {
             // ensure that compile task is closed
             if (mCompileTask != null) {
@@ -137,12 +169,13 @@ public class CompilerContainer {
             runnable.run();
         } finally {
             mIsWriting = false;
-            semaphore.release();
+            mLock.unlock();
         }
     }
 
     void setCompileTask(CompileTask task) {
         mCompileTask = task;
+        mVersion++;
     }
 
     private static void assertNotClosed(CompileTask task) {
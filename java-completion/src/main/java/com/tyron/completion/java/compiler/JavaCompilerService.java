@@ -12,6 +12,7 @@ import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
+import com.tyron.builder.project.util.JarClassIndex;
 import com.tyron.builder.project.util.PackageTrie;
 import com.tyron.common.util.Cache;
 import com.tyron.common.util.StringSearch;
@@ -27,6 +28,7 @@ import javax.tools.StandardLocation;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.tools.javac.file.PathFileObject;
 import com.tyron.completion.java.compiler.services.CancelAbort;
+import com.tyron.completion.java.parse.ReferenceIndex;
 import com.tyron.completion.progress.ProcessCanceledException;
 
 import java.io.File;
@@ -131,6 +133,26 @@ public class JavaCompilerService implements CompilerProvider {
         }
     }
 
+    /**
+     * Invalidates the cached compilation if one of its files may refer to a class declared in
+     * the given file, it has been compiled against the previous contents of the file.
+     */
+    public synchronized void invalidateDependents(Path file) {
+        if (cachedModified.isEmpty()) {
+            return;
+        }
+        Set<Path> dependents = new HashSet<>();
+        for (ReferenceIndex index : getReferenceIndexes()) {
+            for (String className : index.getDeclaredClasses(file)) {
+                Collections.addAll(dependents, findTypeReferences(className));
+            }
+        }
+        dependents.remove(file);
+        if (!dependents.isEmpty()) {
+            cachedModified.keySet().removeIf(source -> dependents.contains(Paths.get(source.toUri())));
+        }
+    }
+
     public void invalidate(Path source) {
         invalidate(Collections.singletonList(new SourceFileObject(source)));
     }
@@ -236,7 +258,10 @@ public class JavaCompilerService implements CompilerProvider {
         for (Module module : mProject.getDependencies(mCurrentModule)) {
             if (module instanceof JavaModule) {
                 PackageTrie classIndex = ((JavaModule) module).getClassIndex();
-                classes.addAll(classIndex.getMatchingPackages(packageName));
+                classIndex.forEachMatchingPackage(packageName, fqn -> classes.add(fqn.toString()));
+                for (JarClassIndex jarIndex : ((JavaModule) module).getJarClassIndexes()) {
+                    jarIndex.forEachInPackage(packageName, classes::add);
+                }
             }
         }
         return classes;
@@ -255,6 +280,13 @@ public class JavaCompilerService implements CompilerProvider {
                         packages.add(node);
                     }
                 }
+                for (JarClassIndex jarIndex : ((JavaModule) module).getJarClassIndexes()) {
+                    jarIndex.forEachTopLevelPackage(node -> {
+                        if (filter.test(node)) {
+                            packages.add(node);
+                        }
+                    });
+                }
             }
         }
         return packages;
@@ -267,7 +299,11 @@ public class JavaCompilerService implements CompilerProvider {
 
     @Override
     public Iterable<Path> search(String query) {
-        return null;
+        Set<Path> files = new HashSet<>();
+        for (ReferenceIndex index : getReferenceIndexes()) {
+            files.addAll(index.search(query));
+        }
+        return files;
     }
 
     /**
@@ -423,12 +459,35 @@ public class JavaCompilerService implements CompilerProvider {
 
     @Override
     public Path[] findTypeReferences(String className) {
-        return null;
+        Set<Path> files = new HashSet<>();
+        for (ReferenceIndex index : getReferenceIndexes()) {
+            files.addAll(index.findTypeReferences(className));
+        }
+        return files.toArray(new Path[0]);
     }
 
     @Override
     public Path[] findMemberReferences(String className, String memberName) {
-        return null;
+        Set<Path> files = new HashSet<>();
+        for (ReferenceIndex index : getReferenceIndexes()) {
+            files.addAll(index.findMemberReferences(className, memberName));
+        }
+        return files.toArray(new Path[0]);
+    }
+
+    /**
+     * References can come from any module that depends on the current module, so every module
+     * of the project is searched.
+     */
+    private List<ReferenceIndex> getReferenceIndexes() {
+        List<ReferenceIndex> indexes = new ArrayList<>();
+        for (Module module : mProject.getModules()) {
+            ReferenceIndex index = ReferenceIndex.get(module);
+            if (index != null) {
+                indexes.add(index);
+            }
+        }
+        return indexes;
     }
 
     private final Cache<String, ParseTask> parseCache = new Cache<>();
@@ -17,6 +17,13 @@ public class NBTreeMaker extends TreeMaker {
         context.put(treeMakerKey, (Context.Factory<TreeMaker>) NBTreeMaker::new);
     }
 
+    /**
+     * Registers a tree maker that uses the symbols and types of another context.
+     */
+    public static void preRegister(Context context, TreeMaker shared) {
+        context.put(treeMakerKey, shared.forToplevel(null));
+    }
+
     private final Names names;
     private final Types types;
     private final Symtab syms;
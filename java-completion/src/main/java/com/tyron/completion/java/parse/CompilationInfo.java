@@ -1,5 +1,7 @@
 package com.tyron.completion.java.parse;
 
+import android.util.Log;
+
 import androidx.annotation.NonNull;
 
 import com.sun.source.tree.CompilationUnitTree;
@@ -10,14 +12,19 @@ import com.sun.tools.javac.api.JavacTrees;
 import com.sun.tools.javac.code.Symbol;
 import com.sun.tools.javac.comp.MemberEnter;
 import com.sun.tools.javac.main.JavaCompiler;
+import com.sun.tools.javac.tree.JCTree;
+import com.sun.tools.javac.tree.JCTree.JCClassDecl;
 import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.JCTree.JCMethodDecl;
+import com.sun.tools.javac.tree.TreeInfo;
+import com.sun.tools.javac.util.Context;
 import com.sun.tools.javac.util.Pair;
+import com.sun.tools.javac.util.Position;
 import com.tyron.builder.model.CodeAssistAndroidLibrary;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.JavaModule;
 import com.tyron.builder.project.api.Module;
 import com.tyron.builder.project.impl.AndroidModuleImpl;
-import com.tyron.common.util.DebouncerStore;
 import com.tyron.completion.java.compiler.services.NBEnter;
 import com.tyron.completion.java.compiler.services.NBLog;
 
@@ -34,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -45,6 +53,8 @@ import javax.tools.JavaFileObject;
 
 public class CompilationInfo {
 
+    private static final String TAG = CompilationInfo.class.getSimpleName();
+
     public static final Key<CompilationInfo> COMPILATION_INFO_KEY = Key.create("compilationInfo");
 
     public static CompilationInfo get(Module module) {
@@ -81,11 +91,19 @@ public class CompilationInfo {
     }
 
     public final CompilationInfoImpl impl;
-    private final Map<URI, JCCompilationUnit> compiledMap = new HashMap<>();
+    private final Map<URI, JCCompilationUnit> compiledMap = new ConcurrentHashMap<>();
+
+    private final CompilationUpdateQueue updateQueue = new CompilationUpdateQueue(this::doUpdate);
 
-    private final DebouncerStore<String> debouncerStore = DebouncerStore.DEFAULT;
+    /**
+     * The contents that the compilation units in {@link #compiledMap} were parsed from, only
+     * known for units that have been updated through {@link #updateIncrementally}.
+     */
+    private final Map<URI, String> contentsMap = new ConcurrentHashMap<>();
+    private final PartialReparser partialReparser = new DefaultPartialReparser();
 
     private final Object parseLock = new Object();
+    private volatile ConcurrentParser concurrentParser;
     private Trees trees;
 
     public CompilationInfo(final CompilationInfoImpl impl) {
@@ -103,6 +121,114 @@ public class CompilationInfo {
         }
     }
 
+    /**
+     * Updates the compilation unit of the given file, if the difference between the contents
+     * of the previous update and the new contents is confined to a single method body, only
+     * that method body is reparsed and attributed against the cached compilation unit.
+     * Otherwise this falls back to {@link #updateImmediately(JavaFileObject)}.
+     *
+     * @param fileObject the file to update, its contents must be equal to {@code contents}
+     * @param contents   the current contents of the file
+     * @return the updated compilation unit, or null if the update failed
+     */
+    public JCCompilationUnit updateIncrementally(JavaFileObject fileObject, String contents) {
+        URI uri = fileObject.toUri();
+        if (!updateQueue.isPending(uri)) {
+            synchronized (parseLock) {
+                JCCompilationUnit unit = compiledMap.get(uri);
+                String previous = contentsMap.get(uri);
+                if (unit != null && previous != null && reparseMethod(unit, previous, contents)) {
+                    contentsMap.put(uri, contents);
+                    return unit;
+                }
+            }
+        }
+
+        CompletableFuture<JCCompilationUnit> future = new CompletableFuture<>();
+        update(fileObject, 0, unit -> {
+            // consumers are run on the update thread before the next update starts
+            if (unit != null) {
+                contentsMap.put(uri, contents);
+            }
+            future.complete(unit);
+        });
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    private boolean reparseMethod(JCCompilationUnit unit, String previous, String contents) {
+        int start = 0;
+        int length = Math.min(previous.length(), contents.length());
+        while (start < length && previous.charAt(start) == contents.charAt(start)) {
+            start++;
+        }
+        if (start == previous.length() && start == contents.length()) {
+            return true;
+        }
+
+        int previousEnd = previous.length();
+        int newEnd = contents.length();
+        while (previousEnd > start && newEnd > start &&
+               previous.charAt(previousEnd - 1) == contents.charAt(newEnd - 1)) {
+            previousEnd--;
+            newEnd--;
+        }
+
+        JCMethodDecl method = findEnclosingMethod(unit.getTypeDecls(), unit, start, previousEnd);
+        if (method == null) {
+            return false;
+        }
+
+        int bodyStart = TreeInfo.getStartPos(method.body);
+        int bodyEnd = TreeInfo.getEndPos(method.body, unit.endPositions);
+        int delta = contents.length() - previous.length();
+        String newBody = contents.substring(bodyStart, bodyEnd + delta);
+        try {
+            if (!partialReparser.reparseMethod(impl, contents, unit, method, newBody)) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        unit.lineMap = Position.makeLineMap(contents.toCharArray(), contents.length(), true);
+        return true;
+    }
+
+    /**
+     * Find the method whose body strictly contains the given range, local and anonymous classes
+     * are not searched since their symbols can not be reused after a reparse.
+     */
+    private static JCMethodDecl findEnclosingMethod(List<? extends JCTree> trees,
+                                                    JCCompilationUnit unit,
+                                                    int start,
+                                                    int end) {
+        for (JCTree tree : trees) {
+            if (tree instanceof JCClassDecl) {
+                JCClassDecl classDecl = (JCClassDecl) tree;
+                if (TreeInfo.getStartPos(classDecl) > start ||
+                    TreeInfo.getEndPos(classDecl, unit.endPositions) < end) {
+                    continue;
+                }
+                return findEnclosingMethod(classDecl.getMembers(), unit, start, end);
+            }
+            if (tree instanceof JCMethodDecl) {
+                JCMethodDecl method = (JCMethodDecl) tree;
+                if (method.body == null) {
+                    continue;
+                }
+                int bodyStart = TreeInfo.getStartPos(method.body);
+                int bodyEnd = TreeInfo.getEndPos(method.body, unit.endPositions);
+                if (bodyStart < start && end < bodyEnd) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
     public void update(JavaFileObject fileObject) {
         this.update(fileObject, 300, __ -> {
         });
@@ -113,62 +239,112 @@ public class CompilationInfo {
         });
     }
 
-    public synchronized void update(JavaFileObject fileObject,
-                                    long delay,
-                                    Consumer<JCCompilationUnit> treeConsumer) {
-        debouncerStore.registerOrGetDebouncer("update").debounce(delay, () -> {
+    public void update(JavaFileObject fileObject,
+                       long delay,
+                       Consumer<JCCompilationUnit> treeConsumer) {
+        updateQueue.schedule(fileObject, delay, treeConsumer);
+    }
+
+    /**
+     * Parses the file on the calling thread without using the javac context, so any number of
+     * files can be parsed at the same time. The unit must be {@link #enter entered} before its
+     * symbols can be used.
+     */
+    public JCCompilationUnit parse(JavaFileObject fileObject) throws IOException {
+        ConcurrentParser parser = concurrentParser;
+        if (parser == null) {
             synchronized (parseLock) {
-                try {
-                    JavacTaskImpl javacTask = impl.getJavacTask();
+                if (concurrentParser == null) {
+                    concurrentParser = new ConcurrentParser(impl.getJavacTask().getContext());
+                }
+                parser = concurrentParser;
+            }
+        }
+        return parser.parse(fileObject);
+    }
+
+    /**
+     * Schedules a unit returned by {@link #parse(JavaFileObject)} to replace the previous unit
+     * of the file. Unlike {@link #update}, the unit is only entered and not attributed, this
+     * is meant for indexed files whose method bodies have been pruned.
+     */
+    public void enter(JavaFileObject fileObject,
+                      JCCompilationUnit unit,
+                      Consumer<JCCompilationUnit> treeConsumer) {
+        updateQueue.schedule(fileObject, unit, 0, treeConsumer);
+    }
 
-                    NBLog log = NBLog.instance(javacTask.getContext());
-                    log.useSource(fileObject);
+    public CompilationUpdateQueue getUpdateQueue() {
+        return updateQueue;
+    }
 
-                    Set<Pair<JavaFileObject, Integer>> toRemove = new HashSet<>();
-                    for (Pair<JavaFileObject, Integer> pair : log.getRecorded()) {
-                        if (pair.fst.toUri().equals(fileObject.toUri())) {
-                            toRemove.add(pair);
-                        }
-                    }
-                    log.getRecorded().removeAll(toRemove);
-                    log.removeDiagnostics(fileObject.toUri());
-                    log.removeFileObject(fileObject);
+    /**
+     * Runs the action with the javac context while no file is being parsed or attributed, so
+     * the action may modify the symbol table.
+     */
+    public void runWithContext(Consumer<Context> action) {
+        synchronized (parseLock) {
+            action.accept(impl.getJavacTask().getContext());
+        }
+    }
+
+    private JCCompilationUnit doUpdate(JavaFileObject fileObject, JCCompilationUnit parsed) {
+        synchronized (parseLock) {
+            contentsMap.remove(fileObject.toUri());
+            try {
+                JavacTaskImpl javacTask = impl.getJavacTask();
 
+                NBLog log = NBLog.instance(javacTask.getContext());
+                log.useSource(fileObject);
 
-                    JCCompilationUnit previous = compiledMap.get(fileObject.toUri());
-                    if (previous != null) {
-                        NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
-                        enter.unenter(previous, previous);
-                        enter.removeCompilationUnit(fileObject);
+                Set<Pair<JavaFileObject, Integer>> toRemove = new HashSet<>();
+                for (Pair<JavaFileObject, Integer> pair : log.getRecorded()) {
+                    if (pair.fst.toUri().equals(fileObject.toUri())) {
+                        toRemove.add(pair);
                     }
+                }
+                log.getRecorded().removeAll(toRemove);
+                log.removeDiagnostics(fileObject.toUri());
+                log.removeFileObject(fileObject);
+
 
+                JCCompilationUnit previous = compiledMap.get(fileObject.toUri());
+                if (previous != null) {
+                    NBEnter enter = (NBEnter) NBEnter.instance(javacTask.getContext());
+                    enter.unenter(previous, previous);
+                    enter.removeCompilationUnit(fileObject);
+                }
+
+                JCCompilationUnit unit = parsed;
+                if (unit == null) {
                     // reparse the whole file
-                    JCCompilationUnit unit;
                     try {
                         JavaCompiler compiler = JavaCompiler.instance(javacTask.getContext());
                         unit = compiler.parse(fileObject);
                     } catch (Exception e) {
                         throw new RuntimeException(e);
                     }
+                }
 
-                    Iterable<? extends Element> enter = javacTask.enter(List.of(unit));
+                Iterable<? extends Element> enter = javacTask.enter(List.of(unit));
 
-                    if (previous != null) {
-                        unit.packge = previous.packge;
-                    }
+                if (previous != null) {
+                    unit.packge = previous.packge;
+                }
 
-                    Iterable<? extends Element> analyze = javacTask.analyze(enter);
+                if (parsed == null) {
+                    javacTask.analyze(enter);
+                }
 
-                    JCCompilationUnit newUnit = unit;
-                    compiledMap.put(fileObject.toUri(), newUnit);
+                JCCompilationUnit newUnit = unit;
+                compiledMap.put(fileObject.toUri(), newUnit);
 
-                    treeConsumer.accept(unit);
-                } catch (Throwable t) {
-                    System.out.println(t);
-                    treeConsumer.accept(null);
-                }
+                return unit;
+            } catch (Throwable t) {
+                Log.e(TAG, "Failed to update " + fileObject.toUri(), t);
+                return null;
             }
-        });
+        }
     }
 
     public JCCompilationUnit getCompilationUnit(JavaFileObject fileObject) {
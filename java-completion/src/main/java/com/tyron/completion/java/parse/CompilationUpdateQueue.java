@@ -0,0 +1,174 @@
+package com.tyron.completion.java.parse;
+
+import android.util.Log;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.tyron.completion.java.BuildConfig;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+
+import javax.tools.JavaFileObject;
+
+/**
+ * Schedules reparse requests of {@link CompilationInfo} per file.
+ *
+ * Repeated requests for the same file are coalesced into a single update that uses the
+ * latest {@link JavaFileObject}, every consumer that was registered for the coalesced
+ * requests will receive the result. Requests for different files never cancel each other.
+ *
+ * All updates run on a single background thread since the underlying javac context is not
+ * thread safe, the thread is shared by every queue so queues that are no longer used do not
+ * need to be shut down.
+ */
+public class CompilationUpdateQueue {
+
+    private static final String TAG = CompilationUpdateQueue.class.getSimpleName();
+
+    private static final ScheduledExecutorService sExecutor =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "CompilationUpdateQueue");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final BiFunction<JavaFileObject, JCCompilationUnit, JCCompilationUnit> mUpdater;
+
+    @GuardedBy("this")
+    private final Map<URI, PendingUpdate> mPending = new HashMap<>();
+
+    private volatile long mLastLatency;
+    private volatile long mMaxLatency;
+
+    /**
+     * @param updater called with the file to update and the unit it was already parsed to, or
+     *                null if the file still has to be parsed
+     */
+    public CompilationUpdateQueue(
+            @NonNull BiFunction<JavaFileObject, JCCompilationUnit, JCCompilationUnit> updater) {
+        mUpdater = updater;
+    }
+
+    /**
+     * Schedule an update for the given file. If there is already a pending update for this
+     * file that has not yet started, it is replaced by this request and its consumers will
+     * receive the result of this update instead.
+     *
+     * @param fileObject the file to update
+     * @param delay      the delay in milliseconds before the update is run
+     * @param consumer   called with the new compilation unit, or null if the update failed
+     */
+    public void schedule(@NonNull JavaFileObject fileObject,
+                         long delay,
+                         @NonNull Consumer<JCCompilationUnit> consumer) {
+        schedule(fileObject, null, delay, consumer);
+    }
+
+    /**
+     * Schedule an update for the given file that has already been parsed to the given unit.
+     *
+     * @see #schedule(JavaFileObject, long, Consumer)
+     */
+    public synchronized void schedule(@NonNull JavaFileObject fileObject,
+                                      @Nullable JCCompilationUnit parsed,
+                                      long delay,
+                                      @NonNull Consumer<JCCompilationUnit> consumer) {
+        URI uri = fileObject.toUri();
+        PendingUpdate update = new PendingUpdate(fileObject, parsed);
+        update.consumers.add(consumer);
+
+        PendingUpdate previous = mPending.get(uri);
+        if (previous != null && previous.future.cancel(false)) {
+            update.requestTime = previous.requestTime;
+            update.consumers.addAll(0, previous.consumers);
+        }
+
+        mPending.put(uri, update);
+        update.future = sExecutor.schedule(() -> run(uri, update), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(URI uri, PendingUpdate update) {
+        synchronized (this) {
+            if (mPending.get(uri) == update) {
+                mPending.remove(uri);
+            }
+        }
+
+        JCCompilationUnit unit = null;
+        try {
+            unit = mUpdater.apply(update.fileObject, update.parsed);
+        } catch (Throwable t) {
+            Log.e(TAG, "Failed to update " + uri, t);
+        } finally {
+            long latency = System.currentTimeMillis() - update.requestTime;
+            mLastLatency = latency;
+            mMaxLatency = Math.max(mMaxLatency, latency);
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Updated " + uri + " in " + latency + "ms, coalesced " +
+                           update.consumers.size() + " request(s), " + getQueueDepth() +
+                           " pending");
+            }
+        }
+
+        for (Consumer<JCCompilationUnit> consumer : update.consumers) {
+            consumer.accept(unit);
+        }
+    }
+
+    /**
+     * @return The number of files that are waiting to be updated
+     */
+    public synchronized int getQueueDepth() {
+        return mPending.size();
+    }
+
+    /**
+     * @return Whether the given file has an update that has not yet started
+     */
+    public synchronized boolean isPending(@NonNull URI uri) {
+        return mPending.containsKey(uri);
+    }
+
+    /**
+     * @return The time in milliseconds from the first coalesced request to the end of the
+     * most recent update
+     */
+    public long getLastLatency() {
+        return mLastLatency;
+    }
+
+    /**
+     * @return The highest latency in milliseconds seen by this queue
+     */
+    public long getMaxLatency() {
+        return mMaxLatency;
+    }
+
+    private static class PendingUpdate {
+        final JavaFileObject fileObject;
+        @Nullable
+        final JCCompilationUnit parsed;
+        final List<Consumer<JCCompilationUnit>> consumers = new ArrayList<>();
+        long requestTime = System.currentTimeMillis();
+        @Nullable
+        ScheduledFuture<?> future;
+
+        PendingUpdate(JavaFileObject fileObject, @Nullable JCCompilationUnit parsed) {
+            this.fileObject = fileObject;
+            this.parsed = parsed;
+        }
+    }
+}
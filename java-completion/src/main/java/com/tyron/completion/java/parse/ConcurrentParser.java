@@ -0,0 +1,123 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.NonNull;
+
+import com.sun.tools.javac.api.JavacTrees;
+import com.sun.tools.javac.parser.JavacParser;
+import com.sun.tools.javac.parser.ParserFactory;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.tree.TreeMaker;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.Log;
+import com.sun.tools.javac.util.Name;
+import com.sun.tools.javac.util.Names;
+import com.sun.tools.javac.util.Options;
+import com.sun.tools.javac.util.SharedNameTable;
+import com.tyron.completion.java.compiler.services.NBParserFactory;
+import com.tyron.completion.java.compiler.services.NBTreeMaker;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaFileObject;
+
+/**
+ * Parses files on any thread, outside of the javac context of a {@link CompilationInfo}.
+ *
+ * Each parse uses a context of its own that only contains the parser, these contexts share
+ * the {@link Names} of the main context so the parsed trees can be entered into it later.
+ * The main context must have been created with {@link #preRegister(Context)}. Syntax errors
+ * are not reported.
+ */
+class ConcurrentParser {
+
+    /**
+     * Registers names that can be used by several threads, must be called before anything
+     * else is created in the context.
+     */
+    static void preRegister(Context context) {
+        context.put(Names.namesKey, (Context.Factory<Names>) SynchronizedNames::new);
+    }
+
+    private final Names mNames;
+    private final TreeMaker mTreeMaker;
+    private final JavacTrees mTrees;
+    private final Options mOptions;
+    private final Queue<Context> mContexts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Must be created while no other thread uses the main context.
+     */
+    ConcurrentParser(@NonNull Context mainContext) {
+        mNames = Names.instance(mainContext);
+        if (!(mNames instanceof SynchronizedNames)) {
+            throw new IllegalArgumentException("The names of the context are not thread safe");
+        }
+        mTreeMaker = TreeMaker.instance(mainContext);
+        mTrees = JavacTrees.instance(mainContext);
+        mOptions = Options.instance(mainContext);
+    }
+
+    @NonNull
+    JCCompilationUnit parse(@NonNull JavaFileObject fileObject) throws IOException {
+        CharSequence contents = fileObject.getCharContent(true);
+        Context context = mContexts.poll();
+        if (context == null) {
+            context = createContext();
+        }
+        Log log = Log.instance(context);
+        JavaFileObject prev = log.useSource(fileObject);
+        try {
+            JavacParser parser = ParserFactory.instance(context).newParser(contents, true, true,
+                    true, fileObject.isNameCompatible("module-info", JavaFileObject.Kind.SOURCE));
+            JCCompilationUnit unit = parser.parseCompilationUnit();
+            unit.sourcefile = fileObject;
+            return unit;
+        } finally {
+            log.useSource(prev);
+            mContexts.add(context);
+        }
+    }
+
+    private Context createContext() {
+        Context context = new Context();
+        context.put(Names.namesKey, mNames);
+        context.put(DiagnosticListener.class, d -> {
+        });
+        Options.instance(context).putAll(mOptions);
+        // these only read the symbol table of the main context, the trees are needed by the
+        // doc comment parser which is not used while parsing
+        NBTreeMaker.preRegister(context, mTreeMaker);
+        context.put(JavacTrees.class, mTrees);
+        NBParserFactory.preRegister(context);
+        return context;
+    }
+
+    /**
+     * The name table is shared by the contexts of every thread that parses.
+     */
+    private static class SynchronizedNames extends Names {
+
+        SynchronizedNames(Context context) {
+            super(context);
+            context.put(namesKey, this);
+        }
+
+        @Override
+        protected Name.Table createTable(Options options) {
+            return new SharedNameTable(this) {
+                @Override
+                public synchronized Name fromChars(char[] cs, int start, int len) {
+                    return super.fromChars(cs, start, len);
+                }
+
+                @Override
+                public synchronized Name fromUtf(byte[] cs, int start, int len) {
+                    return super.fromUtf(cs, start, len);
+                }
+            };
+        }
+    }
+}
@@ -53,6 +53,7 @@ public class JavacParser {
             final DiagnosticListener<? super JavaFileObject> diagnosticListener,
             final boolean detached) {
         Context context = new Context();
+        ConcurrentParser.preRegister(context);
         NBLog.preRegister(context, new PrintWriter(new NullWriter()));
 
         List<String> options = new ArrayList<>();
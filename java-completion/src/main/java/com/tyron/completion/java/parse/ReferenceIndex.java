@@ -0,0 +1,334 @@
+package com.tyron.completion.java.parse;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.JavacTool;
+import com.tyron.builder.model.SourceFileObject;
+import com.tyron.builder.project.api.JavaModule;
+import com.tyron.builder.project.api.Module;
+
+import org.apache.commons.io.FileUtils;
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An index of the names that each source file of a module refers to.
+ *
+ * Files are parsed without attribution on a background thread, the index records the package,
+ * the imports and every identifier and member name used by the file. Queries return the files
+ * that may contain a reference, callers that need the exact locations only have to compile
+ * those files. The index is backed by concurrent maps so it can be queried from any thread
+ * without holding the compiler lock.
+ */
+public class ReferenceIndex {
+
+    private static final String TAG = ReferenceIndex.class.getSimpleName();
+
+    public static final Key<ReferenceIndex> REFERENCE_INDEX_KEY = Key.create("referenceIndex");
+
+    @Nullable
+    public static ReferenceIndex get(@Nullable Module module) {
+        if (!(module instanceof JavaModule)) {
+            return null;
+        }
+        synchronized (module) {
+            ReferenceIndex index = module.getUserData(REFERENCE_INDEX_KEY);
+            if (index == null) {
+                index = new ReferenceIndex();
+                module.putUserData(REFERENCE_INDEX_KEY, index);
+            }
+            return index;
+        }
+    }
+
+    private static final JavacTool sTool = JavacTool.create();
+
+    private final Map<Path, FileReferences> mFiles = new ConcurrentHashMap<>();
+
+    /**
+     * The names referenced in the files mapped to the files that refer to them, sorted so
+     * prefix searches are a range scan.
+     */
+    private final NavigableMap<String, Set<Path>> mNames = new ConcurrentSkipListMap<>();
+
+    /**
+     * Shared by every index, a single thread keeps the updates of a file in order.
+     */
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ReferenceIndex");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Index the given files in the background, files that are already indexed are indexed
+     * again.
+     */
+    public void index(@NonNull Collection<File> files) {
+        for (File file : files) {
+            update(file);
+        }
+    }
+
+    /**
+     * Index the file in the background, its contents are read from the disk
+     */
+    public void update(@NonNull File file) {
+        sExecutor.execute(() -> {
+            try {
+                String contents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+                doUpdate(file.toPath(), contents);
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read " + file, e);
+            }
+        });
+    }
+
+    /**
+     * Index the given contents of the file in the background
+     */
+    public void update(@NonNull File file, @NonNull String contents) {
+        sExecutor.execute(() -> doUpdate(file.toPath(), contents));
+    }
+
+    public void remove(@NonNull File file) {
+        sExecutor.execute(() -> doRemove(file.toPath()));
+    }
+
+    /**
+     * @return The fully qualified names of the top level classes declared in the file, empty if
+     * the file has not been indexed
+     */
+    @NonNull
+    public Set<String> getDeclaredClasses(@NonNull Path file) {
+        FileReferences references = mFiles.get(file);
+        if (references == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(references.declaredClasses);
+    }
+
+    /**
+     * @param className The fully qualified name of the class
+     * @return The files that may refer to the class
+     */
+    @NonNull
+    public Set<Path> findTypeReferences(@NonNull String className) {
+        int index = className.lastIndexOf('.');
+        String simpleName = className.substring(index + 1);
+
+        Set<Path> result = new HashSet<>();
+        for (Path file : getFiles(simpleName)) {
+            FileReferences references = mFiles.get(file);
+            if (references != null && references.mayReferTo(className)) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The type of a receiver is not known without attribution so this returns every file that
+     * uses the member name, callers should compile the files to check the receiver.
+     *
+     * @param className  The fully qualified name of the class that declares the member
+     * @param memberName The name of the field or method
+     * @return The files that may refer to the member
+     */
+    @NonNull
+    public Set<Path> findMemberReferences(@NonNull String className, @NonNull String memberName) {
+        return new HashSet<>(getFiles(memberName));
+    }
+
+    /**
+     * @return The files that use a name that starts with the query
+     */
+    @NonNull
+    public Set<Path> search(@NonNull String query) {
+        Set<Path> result = new HashSet<>();
+        for (Map.Entry<String, Set<Path>> entry : mNames.tailMap(query, true).entrySet()) {
+            if (!entry.getKey().startsWith(query)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+
+    private Set<Path> getFiles(String name) {
+        Set<Path> files = mNames.get(name);
+        if (files == null) {
+            return Collections.emptySet();
+        }
+        return files;
+    }
+
+    private void doUpdate(Path file, String contents) {
+        FileReferences references;
+        try {
+            references = scan(file, contents);
+        } catch (Throwable e) {
+            Log.w(TAG, "Unable to index " + file, e);
+            return;
+        }
+
+        FileReferences old = mFiles.put(file, references);
+        if (old != null) {
+            for (String name : old.names) {
+                if (!references.names.contains(name)) {
+                    removeName(name, file);
+                }
+            }
+        }
+        for (String name : references.names) {
+            mNames.computeIfAbsent(name, __ -> ConcurrentHashMap.newKeySet()).add(file);
+        }
+    }
+
+    private void doRemove(Path file) {
+        FileReferences old = mFiles.remove(file);
+        if (old == null) {
+            return;
+        }
+        for (String name : old.names) {
+            removeName(name, file);
+        }
+    }
+
+    private void removeName(String name, Path file) {
+        mNames.computeIfPresent(name, (__, files) -> {
+            files.remove(file);
+            return files.isEmpty() ? null : files;
+        });
+    }
+
+    private static FileReferences scan(Path file, String contents) throws IOException {
+        SourceFileObject fileObject = new SourceFileObject(file, contents, Instant.now());
+        JavacTask task = sTool.getTask(null, null, d -> {
+        }, Collections.emptyList(), null, Collections.singletonList(fileObject));
+        CompilationUnitTree root = task.parse().iterator().next();
+
+        FileReferences references = new FileReferences();
+        if (root.getPackageName() != null) {
+            references.packageName = root.getPackageName().toString();
+        }
+        for (ImportTree importTree : root.getImports()) {
+            String name = importTree.getQualifiedIdentifier().toString();
+            if (name.endsWith(".*")) {
+                references.onDemandImports.add(name.substring(0, name.length() - 2));
+            } else {
+                references.imports.add(name);
+            }
+        }
+        for (Tree typeDecl : root.getTypeDecls()) {
+            if (typeDecl instanceof ClassTree) {
+                String name = ((ClassTree) typeDecl).getSimpleName().toString();
+                references.declaredClasses.add(references.packageName.isEmpty()
+                        ? name : references.packageName + "." + name);
+            }
+        }
+        new ReferenceScanner().scan(root, references);
+        return references;
+    }
+
+    private static class ReferenceScanner extends TreeScanner<Void, FileReferences> {
+
+        @Override
+        public Void visitImport(ImportTree node, FileReferences references) {
+            // only the simple name of an import is a reference, the package is not
+            Tree identifier = node.getQualifiedIdentifier();
+            if (identifier instanceof MemberSelectTree) {
+                references.names.add(((MemberSelectTree) identifier).getIdentifier().toString());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIdentifier(IdentifierTree node, FileReferences references) {
+            references.names.add(node.getName().toString());
+            return null;
+        }
+
+        @Override
+        public Void visitMemberSelect(MemberSelectTree node, FileReferences references) {
+            references.names.add(node.getIdentifier().toString());
+            if (isQualifiedName(node.getExpression())) {
+                references.qualifiedNames.add(node.toString());
+            }
+            return super.visitMemberSelect(node, references);
+        }
+
+        @Override
+        public Void visitMemberReference(MemberReferenceTree node, FileReferences references) {
+            references.names.add(node.getName().toString());
+            return super.visitMemberReference(node, references);
+        }
+
+        private static boolean isQualifiedName(Tree tree) {
+            while (tree instanceof MemberSelectTree) {
+                tree = ((MemberSelectTree) tree).getExpression();
+            }
+            return tree instanceof IdentifierTree;
+        }
+    }
+
+    private static class FileReferences {
+        String packageName = "";
+        final Set<String> imports = new HashSet<>();
+        final Set<String> onDemandImports = new HashSet<>();
+        final Set<String> qualifiedNames = new HashSet<>();
+        final Set<String> names = new HashSet<>();
+        final Set<String> declaredClasses = new HashSet<>();
+
+        /**
+         * Whether the simple name used in this file can resolve to the given class. Nested
+         * classes are matched through any of their outer classes, member classes inherited from
+         * a superclass that is not imported are not known without attribution.
+         */
+        boolean mayReferTo(String className) {
+            if (imports.contains(className) || qualifiedNames.contains(className)) {
+                return true;
+            }
+            // the package or any outer class of the class, the classes of java.lang are
+            // imported implicitly
+            for (int index = className.lastIndexOf('.'); index != -1;
+                 index = className.lastIndexOf('.', index - 1)) {
+                String qualifier = className.substring(0, index);
+                if (packageName.equals(qualifier) || "java.lang".equals(qualifier) ||
+                    imports.contains(qualifier) || onDemandImports.contains(qualifier)) {
+                    return true;
+                }
+            }
+            // a class in the default package
+            return packageName.isEmpty() && className.indexOf('.') == -1;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.tyron.completion.java.parse;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.util.JavacTask;
+import com.sun.tools.javac.tree.JCTree.JCCompilationUnit;
+import com.sun.tools.javac.api.JavacTool;
+import com.tyron.builder.model.SourceFileObject;
+import com.tyron.completion.java.provider.PruneMethodBodies;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Indexes the source files of a module into a {@link CompilationInfo}.
+ *
+ * Files are pruned of their method bodies and the pruned stubs are parsed in parallel, only
+ * entering the stubs into the shared javac context is done serially through the
+ * {@link CompilationUpdateQueue}, they are not attributed. Pruned stubs are stored in the
+ * cache directory keyed by the hash of the file contents, so files that have not changed
+ * since the last index do not have to be pruned again.
+ */
+public class SourceIndexer {
+
+    private static final String TAG = SourceIndexer.class.getSimpleName();
+    private static final String STUB_EXTENSION = ".stub";
+
+    private static final JavacTool sTool = JavacTool.create();
+
+    private final File mCacheDir;
+    private final ForkJoinPool mPool;
+
+    public SourceIndexer(@NonNull File cacheDir) {
+        this(cacheDir, ForkJoinPool.commonPool());
+    }
+
+    public SourceIndexer(@NonNull File cacheDir, @NonNull ForkJoinPool pool) {
+        mCacheDir = cacheDir;
+        mPool = pool;
+    }
+
+    /**
+     * Index the given files, this method blocks until every file has been entered.
+     *
+     * @param info  the compilation info to enter the pruned files to
+     * @param files the java source files to index
+     */
+    public void index(@NonNull CompilationInfo info, @NonNull Collection<File> files) {
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            Log.w(TAG, "Unable to create cache directory " + mCacheDir);
+        }
+
+        List<ForkJoinTask<Stub>> tasks = new ArrayList<>(files.size());
+        for (File file : files) {
+            tasks.add(mPool.submit(() -> parseStub(info, file)));
+        }
+
+        Set<String> usedStubs = new HashSet<>();
+        CountDownLatch latch = new CountDownLatch(tasks.size());
+        for (ForkJoinTask<Stub> task : tasks) {
+            Stub stub;
+            try {
+                stub = task.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.w(TAG, "Failed to parse file", e);
+                stub = null;
+            }
+            if (stub == null) {
+                latch.countDown();
+                continue;
+            }
+
+            usedStubs.add(stub.hash + STUB_EXTENSION);
+            info.enter(stub.fileObject, stub.unit, __ -> latch.countDown());
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        deleteUnusedStubs(usedStubs);
+    }
+
+    @Nullable
+    private Stub parseStub(CompilationInfo info, File file) throws IOException {
+        Stub stub = loadStub(file);
+        if (stub != null) {
+            stub.unit = info.parse(stub.fileObject);
+        }
+        return stub;
+    }
+
+    @Nullable
+    private Stub loadStub(File file) {
+        String contents;
+        try {
+            contents = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to read " + file, e);
+            return null;
+        }
+
+        String hash = Hashing.sha256().hashString(contents, StandardCharsets.UTF_8).toString();
+        File stubFile = new File(mCacheDir, hash + STUB_EXTENSION);
+        if (stubFile.exists()) {
+            try {
+                return new Stub(file, hash,
+                        FileUtils.readFileToString(stubFile, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                Log.w(TAG, "Unable to read cached stub of " + file, e);
+            }
+        }
+
+        String pruned = prune(file, contents);
+        writeStub(stubFile, pruned);
+        return new Stub(file, hash, pruned);
+    }
+
+    private static String prune(File file, String contents) {
+        SourceFileObject fileObject = new SourceFileObject(file.toPath(), contents, Instant.now());
+        JavacTask task = sTool.getTask(null, null, d -> {
+        }, Collections.emptyList(), null, Collections.singletonList(fileObject));
+        try {
+            CompilationUnitTree root = task.parse().iterator().next();
+            // During indexing, statements inside methods are not needed so
+            // it is stripped to speed up the index process
+            return new PruneMethodBodies(task).scan(root, 0L).toString();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeStub(File stubFile, String pruned) {
+        File temp = new File(mCacheDir, stubFile.getName() + ".tmp" + Thread.currentThread().getId());
+        try {
+            FileUtils.writeStringToFile(temp, pruned, StandardCharsets.UTF_8);
+            if (!temp.renameTo(stubFile)) {
+                FileUtils.deleteQuietly(temp);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to cache stub " + stubFile, e);
+            FileUtils.deleteQuietly(temp);
+        }
+    }
+
+    private void deleteUnusedStubs(Set<String> usedStubs) {
+        File[] children = mCacheDir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (!usedStubs.contains(child.getName())) {
+                FileUtils.deleteQuietly(child);
+            }
+        }
+    }
+
+    private static class Stub {
+        final String hash;
+        final JavaFileObject fileObject;
+        JCCompilationUnit unit;
+
+        Stub(File file, String hash, String contents) {
+            this.hash = hash;
+            this.fileObject = new SimpleJavaFileObject(file.toURI(), JavaFileObject.Kind.SOURCE) {
+                @Override
+                public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    return contents;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.tyron.completion.java.parse;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Scope.WriteableScope;
+import com.sun.tools.javac.code.Source;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Symbol.ClassSymbol;
+import com.sun.tools.javac.code.Symbol.ModuleSymbol;
+import com.sun.tools.javac.code.Symbol.PackageSymbol;
+import com.sun.tools.javac.code.Symbol.VarSymbol;
+import com.sun.tools.javac.code.Symtab;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.comp.Modules;
+import com.sun.tools.javac.util.Context;
+import com.sun.tools.javac.util.List;
+import com.sun.tools.javac.util.Names;
+import com.tyron.builder.project.api.Module;
+
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Enters the {@code R} class of a module directly into the symbol table of its javac context.
+ *
+ * The fields are not generated as source, each update only enters the fields that were added
+ * and removes the fields that were removed since the previous update, so new resources are
+ * visible to code completion without compiling an R.java file. The values of the fields are
+ * not the ones AAPT2 assigns, each {@code int} field is given a unique sequential constant so
+ * it can still be used in a {@code switch} case or as an annotation argument.
+ */
+public class SyntheticResourceClass {
+
+    private static final Key<SyntheticResourceClass> SYNTHETIC_RESOURCE_CLASS_KEY =
+            Key.create("syntheticResourceClass");
+
+    @NonNull
+    public static SyntheticResourceClass get(@NonNull Module module) {
+        synchronized (module) {
+            SyntheticResourceClass resourceClass = module.getUserData(SYNTHETIC_RESOURCE_CLASS_KEY);
+            if (resourceClass == null) {
+                resourceClass = new SyntheticResourceClass();
+                module.putUserData(SYNTHETIC_RESOURCE_CLASS_KEY, resourceClass);
+            }
+            return resourceClass;
+        }
+    }
+
+    /**
+     * The fields that have been entered, by the simple name of their nested class. The value
+     * is whether the field is an {@code int[]}.
+     */
+    private final Map<String, Map<String, Boolean>> mFields = new HashMap<>();
+    private final Map<String, ClassSymbol> mNestedClasses = new HashMap<>();
+
+    private Context mContext;
+    private String mPackageName;
+    private ClassSymbol mClassSymbol;
+    /**
+     * The constant of the next entered field, ids are not reused within a context so a field
+     * keeps its value for as long as it exists.
+     */
+    private int mNextId;
+
+    /**
+     * Updates the R class so it contains exactly the given fields.
+     *
+     * @param packageName The package of the R class
+     * @param fields      The fields by the simple name of their nested class, e.g. {@code id},
+     *                    mapped to whether the field is an {@code int[]}
+     */
+    public void update(@NonNull CompilationInfo info,
+                       @NonNull String packageName,
+                       @NonNull Map<String, Map<String, Boolean>> fields) {
+        info.runWithContext(context -> {
+            synchronized (this) {
+                if (context != mContext || !packageName.equals(mPackageName)) {
+                    // the context has been recreated, nothing has been entered into it yet
+                    removeClass();
+                    mContext = context;
+                    mPackageName = packageName;
+                    mClassSymbol = enterClass(context, packageName);
+                }
+                apply(fields);
+            }
+        });
+    }
+
+    private void apply(Map<String, Map<String, Boolean>> fields) {
+        Symtab syms = Symtab.instance(mContext);
+        Names names = Names.instance(mContext);
+
+        Iterator<Map.Entry<String, Map<String, Boolean>>> iterator =
+                mFields.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Map<String, Boolean>> entry = iterator.next();
+            if (!fields.containsKey(entry.getKey())) {
+                ClassSymbol nested = mNestedClasses.remove(entry.getKey());
+                mClassSymbol.members_field.remove(nested);
+                iterator.remove();
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Boolean>> entry : fields.entrySet()) {
+            String className = entry.getKey();
+            ClassSymbol nested = mNestedClasses.get(className);
+            if (nested == null) {
+                nested = enterNestedClass(syms, names, className);
+                mNestedClasses.put(className, nested);
+            }
+            Map<String, Boolean> current =
+                    mFields.computeIfAbsent(className, __ -> new HashMap<>());
+            applyFields(syms, names, nested, current, entry.getValue());
+        }
+    }
+
+    private void applyFields(Symtab syms,
+                             Names names,
+                             ClassSymbol owner,
+                             Map<String, Boolean> current,
+                             Map<String, Boolean> fields) {
+        Iterator<Map.Entry<String, Boolean>> iterator = current.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Boolean> entry = iterator.next();
+            Boolean isArray = fields.get(entry.getKey());
+            if (entry.getValue().equals(isArray)) {
+                continue;
+            }
+            removeField(owner, names, entry.getKey());
+            iterator.remove();
+        }
+
+        for (Map.Entry<String, Boolean> entry : fields.entrySet()) {
+            if (current.containsKey(entry.getKey())) {
+                continue;
+            }
+            Type type = entry.getValue()
+                    ? new Type.ArrayType(syms.intType, syms.arrayClass)
+                    : syms.intType;
+            VarSymbol field = new VarSymbol(Flags.PUBLIC | Flags.STATIC | Flags.FINAL,
+                    names.fromString(entry.getKey()), type, owner);
+            if (!entry.getValue()) {
+                field.setData(mNextId++);
+            }
+            owner.members_field.enter(field);
+            current.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void removeField(ClassSymbol owner, Names names, String name) {
+        for (Symbol symbol : owner.members_field.getSymbolsByName(names.fromString(name))) {
+            if (symbol instanceof VarSymbol) {
+                owner.members_field.remove(symbol);
+                return;
+            }
+        }
+    }
+
+    private static ClassSymbol enterClass(Context context, String packageName) {
+        Symtab syms = Symtab.instance(context);
+        Names names = Names.instance(context);
+        ModuleSymbol module = getModule(context);
+
+        PackageSymbol packageSymbol = syms.enterPackage(module, names.fromString(packageName));
+        ClassSymbol classSymbol =
+                syms.enterClass(module, names.fromString(packageName + ".R"));
+        initClass(syms, classSymbol, Flags.PUBLIC | Flags.FINAL);
+        // completes the package first, so the class is not dropped when it is filled in
+        packageSymbol.members().enterIfAbsent(classSymbol);
+        return classSymbol;
+    }
+
+    private ClassSymbol enterNestedClass(Symtab syms, Names names, String className) {
+        ModuleSymbol module = getModule(mContext);
+        ClassSymbol nested = syms.enterClass(module, names.fromString(className), mClassSymbol);
+        initClass(syms, nested, Flags.PUBLIC | Flags.STATIC | Flags.FINAL);
+        mClassSymbol.members_field.enter(nested);
+        return nested;
+    }
+
+    private static ModuleSymbol getModule(Context context) {
+        ModuleSymbol module = Modules.instance(context).getDefaultModule();
+        if (module != null) {
+            return module;
+        }
+        // nothing has been entered yet so the modules have not been initialized
+        Symtab syms = Symtab.instance(context);
+        return Source.Feature.MODULES.allowedInSource(Source.instance(context))
+                ? syms.unnamedModule
+                : syms.noModule;
+    }
+
+    private static void initClass(Symtab syms, ClassSymbol classSymbol, long flags) {
+        classSymbol.flags_field = flags;
+        classSymbol.completer = Symbol.Completer.NULL_COMPLETER;
+        classSymbol.members_field = WriteableScope.create(classSymbol);
+
+        Type.ClassType type = (Type.ClassType) classSymbol.type;
+        type.supertype_field = syms.objectType;
+        type.interfaces_field = List.nil();
+        type.all_interfaces_field = List.nil();
+    }
+
+    private void removeClass() {
+        if (mContext != null && mClassSymbol != null) {
+            PackageSymbol packageSymbol = mClassSymbol.packge();
+            if (packageSymbol.members_field != null) {
+                packageSymbol.members_field.remove(mClassSymbol);
+            }
+        }
+        mFields.clear();
+        mNestedClasses.clear();
+        mClassSymbol = null;
+        mNextId = 0;
+    }
+
+    @Nullable
+    public String getPackageName() {
+        return mPackageName;
+    }
+}
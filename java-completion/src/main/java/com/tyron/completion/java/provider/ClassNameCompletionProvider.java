@@ -11,20 +11,16 @@ import com.sun.source.util.TreePath;
 import com.tyron.builder.project.api.Module;
 import com.tyron.common.ApplicationProvider;
 import com.tyron.common.SharedPreferenceKeys;
-import com.tyron.common.util.StringSearch;
 import com.tyron.completion.java.ShortNamesCache;
 import com.tyron.completion.java.compiler.JavaCompilerService;
 import com.tyron.completion.java.insert.ClassImportInsertHandler;
-import com.tyron.completion.java.util.ActionUtil;
 import com.tyron.completion.model.CompletionItem;
 import com.tyron.completion.model.CompletionList;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.function.Predicate;
+import java.util.function.Consumer;
 
 public class ClassNameCompletionProvider extends BaseCompletionProvider {
 
@@ -50,9 +46,13 @@ public class ClassNameCompletionProvider extends BaseCompletionProvider {
                                      CompletionList.Builder list,
                                      JavacUtilitiesProvider task,
                                      boolean caseSensitive) {
+        List<String> fullyQualifiedNames = new ArrayList<>();
+        boolean incomplete =
+                processClassNames(root, partial, task, caseSensitive, fullyQualifiedNames::add);
+        if (incomplete) {
+            list.incomplete();
+        }
 
-        List<String> fullyQualifiedNames =
-                getFullyQualifiedNames(root, partial, task, caseSensitive);
         for (String className : fullyQualifiedNames) {
             CompletionItem item = classItem(className);
             item.data = className;
@@ -68,33 +68,28 @@ public class ClassNameCompletionProvider extends BaseCompletionProvider {
                                                       String partial,
                                                       JavacUtilitiesProvider task,
                                                       boolean caseSensitive) {
-        checkCanceled();
+        List<String> fullyQualifiedNames = new ArrayList<>();
+        processClassNames(root, partial, task, caseSensitive, fullyQualifiedNames::add);
+        return fullyQualifiedNames;
+    }
 
-        Predicate<String> predicate;
-        if (caseSensitive) {
-            predicate = string -> StringSearch.matchesPartialName(string, partial);
-        } else {
-            predicate = string -> StringSearch.matchesPartialNameLowercase(string, partial);
-        }
+    /**
+     * Looks up the classes matching the partial name through the {@link ShortNamesCache}, at
+     * most {@link Completions#MAX_COMPLETION_ITEMS} classes are passed to the consumer.
+     *
+     * @return whether there are more classes matching the partial name
+     */
+    private static boolean processClassNames(CompilationUnitTree root,
+                                             String partial,
+                                             JavacUtilitiesProvider task,
+                                             boolean caseSensitive,
+                                             Consumer<String> consumer) {
+        checkCanceled();
 
-        Set<String> uniques = new HashSet<>();
         File fileToComplete = new File(root.getSourceFile().toUri());
         final Module module = task.getProject().getModule(fileToComplete);
         ShortNamesCache cache = ShortNamesCache.getInstance(module);
-
-        for (String className : cache.getAllClassNames()) {
-            // more strict on matching class names
-            String simpleName = ActionUtil.getSimpleName(className);
-            if (!predicate.test(simpleName)) {
-                continue;
-            }
-            if (uniques.contains(className)) {
-                continue;
-            }
-
-            uniques.add(className);
-        }
-
-        return new ArrayList<>(uniques);
+        return cache.processClassNames(partial, caseSensitive, Completions.MAX_COMPLETION_ITEMS,
+                consumer);
     }
 }
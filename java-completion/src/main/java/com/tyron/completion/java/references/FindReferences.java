@@ -0,0 +1,147 @@
+package com.tyron.completion.java.references;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import com.tyron.completion.java.provider.FindHelper;
+import com.tyron.completion.model.Range;
+
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.tools.Diagnostic;
+
+/**
+ * Collects the ranges of the names that refer to an element, declarations of the element are
+ * only included if requested.
+ */
+public class FindReferences extends TreePathScanner<Void, List<Range>> {
+
+    private final Trees trees;
+    private final Element element;
+    private final boolean includeDeclaration;
+    private CompilationUnitTree root;
+
+    public FindReferences(JavacTask task, Element element, boolean includeDeclaration) {
+        this.trees = Trees.instance(task);
+        this.element = element;
+        this.includeDeclaration = includeDeclaration;
+    }
+
+    @Override
+    public Void visitCompilationUnit(CompilationUnitTree t, List<Range> ranges) {
+        root = t;
+        return super.visitCompilationUnit(t, ranges);
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree t, List<Range> ranges) {
+        if (isTarget()) {
+            SourcePositions pos = trees.getSourcePositions();
+            ranges.add(new Range(pos.getStartPosition(root, t), pos.getEndPosition(root, t)));
+        }
+        return super.visitIdentifier(t, ranges);
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree t, List<Range> ranges) {
+        if (isTarget()) {
+            long end = trees.getSourcePositions().getEndPosition(root, t);
+            ranges.add(new Range(end - t.getIdentifier().length(), end));
+        }
+        return super.visitMemberSelect(t, ranges);
+    }
+
+    @Override
+    public Void visitMemberReference(MemberReferenceTree t, List<Range> ranges) {
+        if (isTarget()) {
+            if (t.getMode() == MemberReferenceTree.ReferenceMode.NEW) {
+                // Type::new, the name is the type
+                addName(t.getQualifierExpression(), ranges);
+            } else {
+                long end = trees.getSourcePositions().getEndPosition(root, t);
+                ranges.add(new Range(end - t.getName().length(), end));
+            }
+        }
+        return super.visitMemberReference(t, ranges);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree t, List<Range> ranges) {
+        // the class name of a constructor call refers to the class, not the constructor
+        if (element.getKind() == ElementKind.CONSTRUCTOR && isTarget()) {
+            addName(t.getIdentifier(), ranges);
+        }
+        return super.visitNewClass(t, ranges);
+    }
+
+    @Override
+    public Void visitClass(ClassTree t, List<Range> ranges) {
+        if (includeDeclaration && isTarget()) {
+            addDeclaration(t, t.getSimpleName(), ranges);
+        }
+        return super.visitClass(t, ranges);
+    }
+
+    @Override
+    public Void visitMethod(MethodTree t, List<Range> ranges) {
+        if (includeDeclaration) {
+            Element method = trees.getElement(getCurrentPath());
+            if (element.equals(method)) {
+                CharSequence name = element.getKind() == ElementKind.CONSTRUCTOR
+                        ? element.getEnclosingElement().getSimpleName()
+                        : t.getName();
+                addDeclaration(t, name, ranges);
+            } else if (method != null && method.getKind() == ElementKind.CONSTRUCTOR &&
+                       element.equals(method.getEnclosingElement()) &&
+                       trees.getSourcePositions().getEndPosition(root, t) != Diagnostic.NOPOS) {
+                // the constructors are named after the class, default constructors have no
+                // source
+                addDeclaration(t, element.getSimpleName(), ranges);
+            }
+        }
+        return super.visitMethod(t, ranges);
+    }
+
+    @Override
+    public Void visitVariable(VariableTree t, List<Range> ranges) {
+        if (includeDeclaration && isTarget()) {
+            addDeclaration(t, t.getName(), ranges);
+        }
+        return super.visitVariable(t, ranges);
+    }
+
+    private boolean isTarget() {
+        return element.equals(trees.getElement(getCurrentPath()));
+    }
+
+    private void addName(Tree tree, List<Range> ranges) {
+        SourcePositions pos = trees.getSourcePositions();
+        long end = pos.getEndPosition(root, tree);
+        if (tree instanceof MemberSelectTree) {
+            ranges.add(new Range(end - ((MemberSelectTree) tree).getIdentifier().length(), end));
+        } else if (tree instanceof IdentifierTree) {
+            ranges.add(new Range(pos.getStartPosition(root, tree), end));
+        }
+    }
+
+    private void addDeclaration(Tree tree, CharSequence name, List<Range> ranges) {
+        SourcePositions pos = trees.getSourcePositions();
+        int start = FindHelper.findNameIn(root, name, (int) pos.getStartPosition(root, tree),
+                (int) pos.getEndPosition(root, tree));
+        if (start != -1) {
+            ranges.add(new Range(start, start + name.length()));
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.tyron.completion.java.references;
+
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+import com.tyron.completion.java.CompilerProvider;
+import com.tyron.completion.java.compiler.CompileTask;
+import com.tyron.completion.java.hover.FindHoverElement;
+import com.tyron.completion.java.provider.FindHelper;
+import com.tyron.completion.java.parse.ReferenceIndex;
+import com.tyron.completion.model.Range;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Types;
+
+/**
+ * Finds the references to the element at a position, this is what find usages, rename and the
+ * unused declaration check are built on.
+ *
+ * Only the files that the {@link ReferenceIndex} reports as possibly referring to the element
+ * are compiled, local variables and private members are only searched in their own file.
+ */
+public class ReferencesProvider {
+
+    public static final Map<Path, List<Range>> NOT_SUPPORTED = Collections.emptyMap();
+
+    private final CompilerProvider compiler;
+
+    public ReferencesProvider(CompilerProvider provider) {
+        compiler = provider;
+    }
+
+    /**
+     * @param includeDeclaration Whether the name of the declaration of the element is included,
+     *                           e.g. to rename it
+     * @return The ranges of the names that refer to the element at the offset by their file
+     */
+    public Map<Path, List<Range>> findReferences(Path file, long offset,
+                                                 boolean includeDeclaration) {
+        Target target = compiler.compile(file).get(task -> {
+            Element element = findElementAt(task, file, offset);
+            if (element == null) {
+                return null;
+            }
+            if (isLocal(element) || element.getModifiers().contains(Modifier.PRIVATE)) {
+                // only visible in this file, no need to compile the files that refer to it
+                Target local = new Target();
+                local.references = scan(task, element, includeDeclaration);
+                return local;
+            }
+            return Target.of(task, element);
+        });
+        if (target == null) {
+            return NOT_SUPPORTED;
+        }
+        if (target.references != null) {
+            return target.references;
+        }
+
+        Set<Path> files = new LinkedHashSet<>();
+        files.add(file);
+        Path declaration = compiler.findTypeDeclaration(target.className);
+        if (declaration != CompilerProvider.NOT_FOUND) {
+            files.add(declaration);
+        }
+        Path[] candidates = target.memberName == null || target.kind == ElementKind.CONSTRUCTOR
+                ? compiler.findTypeReferences(target.className)
+                : compiler.findMemberReferences(target.className, target.memberName);
+        if (candidates != null) {
+            files.addAll(Arrays.asList(candidates));
+        }
+
+        return compiler.compile(files.toArray(new Path[0])).get(task -> {
+            Element element = target.resolve(task);
+            if (element == null) {
+                return NOT_SUPPORTED;
+            }
+            return scan(task, element, includeDeclaration);
+        });
+    }
+
+    /**
+     * @return Whether the declaration at the offset is not referred to anywhere, false if the
+     * offset is not on a declaration or usage that can be searched
+     */
+    public boolean isUnused(Path file, long offset) {
+        Map<Path, List<Range>> references = findReferences(file, offset, false);
+        return references != NOT_SUPPORTED && references.isEmpty();
+    }
+
+    private static Map<Path, List<Range>> scan(CompileTask task, Element element,
+                                               boolean includeDeclaration) {
+        Map<Path, List<Range>> references = new HashMap<>();
+        for (CompilationUnitTree root : task.roots) {
+            List<Range> ranges = new ArrayList<>();
+            new FindReferences(task.task, element, includeDeclaration).scan(root, ranges);
+            if (!ranges.isEmpty()) {
+                references.put(Paths.get(root.getSourceFile().toUri()), ranges);
+            }
+        }
+        return references;
+    }
+
+    private static Element findElementAt(CompileTask task, Path file, long offset) {
+        CompilationUnitTree root = task.root(file);
+        if (root == null) {
+            return null;
+        }
+        Element element = new FindHoverElement(task.task).scan(root, offset);
+        if (element == null) {
+            element = new FindDeclarationAt(task).scan(root, offset);
+        }
+        return element;
+    }
+
+    private static boolean isLocal(Element element) {
+        switch (element.getKind()) {
+            case LOCAL_VARIABLE:
+            case PARAMETER:
+            case EXCEPTION_PARAMETER:
+            case RESOURCE_VARIABLE:
+            case TYPE_PARAMETER:
+                return true;
+            default:
+                // declared in or inside a local or anonymous class
+                for (Element e = element; e != null; e = e.getEnclosingElement()) {
+                    if (e instanceof TypeElement) {
+                        NestingKind nesting = ((TypeElement) e).getNestingKind();
+                        if (nesting == NestingKind.LOCAL || nesting == NestingKind.ANONYMOUS) {
+                            return true;
+                        }
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * An element that can be found again by another compilation
+     */
+    private static class Target {
+        ElementKind kind;
+        String className;
+        String memberName;
+        String[] erasedParameterTypes;
+        Map<Path, List<Range>> references;
+
+        static Target of(CompileTask task, Element element) {
+            Target target = new Target();
+            target.kind = element.getKind();
+            if (element instanceof TypeElement) {
+                target.className = ((TypeElement) element).getQualifiedName().toString();
+                return target;
+            }
+            Element parent = element.getEnclosingElement();
+            if (!(parent instanceof TypeElement)) {
+                return null;
+            }
+            target.className = ((TypeElement) parent).getQualifiedName().toString();
+            target.memberName = element.getSimpleName().toString();
+            if (element instanceof ExecutableElement) {
+                target.erasedParameterTypes =
+                        FindHelper.erasedParameterTypes(task, (ExecutableElement) element);
+            }
+            return target;
+        }
+
+        Element resolve(CompileTask task) {
+            TypeElement type = task.task.getElements().getTypeElement(className);
+            if (type == null || memberName == null) {
+                return type;
+            }
+            Types types = task.task.getTypes();
+            for (Element member : type.getEnclosedElements()) {
+                if (member.getKind() != kind || !member.getSimpleName().contentEquals(memberName)) {
+                    continue;
+                }
+                if (!(member instanceof ExecutableElement)) {
+                    return member;
+                }
+                ExecutableElement method = (ExecutableElement) member;
+                if (method.getParameters().size() != erasedParameterTypes.length) {
+                    continue;
+                }
+                boolean same = true;
+                for (int i = 0; i < erasedParameterTypes.length && same; i++) {
+                    same = types.erasure(method.getParameters().get(i).asType()).toString()
+                            .equals(erasedParameterTypes[i]);
+                }
+                if (same) {
+                    return method;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Finds the element whose declared name contains the offset
+     */
+    private static class FindDeclarationAt extends TreePathScanner<Element, Long> {
+
+        private final Trees trees;
+        private CompilationUnitTree root;
+
+        FindDeclarationAt(CompileTask task) {
+            trees = Trees.instance(task.task);
+        }
+
+        @Override
+        public Element visitCompilationUnit(CompilationUnitTree t, Long find) {
+            root = t;
+            return super.visitCompilationUnit(t, find);
+        }
+
+        @Override
+        public Element visitClass(ClassTree t, Long find) {
+            if (isNameAt(t, t.getSimpleName(), find)) {
+                return trees.getElement(getCurrentPath());
+            }
+            return super.visitClass(t, find);
+        }
+
+        @Override
+        public Element visitMethod(MethodTree t, Long find) {
+            Element element = trees.getElement(getCurrentPath());
+            CharSequence name = element != null && element.getKind() == ElementKind.CONSTRUCTOR
+                    ? element.getEnclosingElement().getSimpleName()
+                    : t.getName();
+            if (isNameAt(t, name, find)) {
+                return element;
+            }
+            return super.visitMethod(t, find);
+        }
+
+        @Override
+        public Element visitVariable(VariableTree t, Long find) {
+            if (isNameAt(t, t.getName(), find)) {
+                return trees.getElement(getCurrentPath());
+            }
+            return super.visitVariable(t, find);
+        }
+
+        @Override
+        public Element reduce(Element a, Element b) {
+            return a != null ? a : b;
+        }
+
+        private boolean isNameAt(Tree tree, CharSequence name, long find) {
+            if (name.length() == 0) {
+                return false;
+            }
+            SourcePositions pos = trees.getSourcePositions();
+            long start = pos.getStartPosition(root, tree);
+            long end = pos.getEndPosition(root, tree);
+            if (find < start || find > end) {
+                return false;
+            }
+            int nameStart = FindHelper.findNameIn(root, name, (int) start, (int) end);
+            return nameStart != -1 && nameStart <= find && find <= nameStart + name.length();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.tyron.completion.java.parse;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.tyron.builder.model.SourceFileObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.URI;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+@RunWith(RobolectricTestRunner.class)
+public class CompilationUpdateQueueTest {
+
+    @Test
+    public void testUpdatesForOtherFilesAreNotDropped() throws InterruptedException {
+        List<URI> updated = new CopyOnWriteArrayList<>();
+        CompilationUpdateQueue queue = new CompilationUpdateQueue((file, parsed) -> {
+            updated.add(file.toUri());
+            return null;
+        });
+
+        JavaFileObject first = file("A.java");
+        JavaFileObject second = file("B.java");
+
+        CountDownLatch latch = new CountDownLatch(2);
+        queue.schedule(first, 100, __ -> latch.countDown());
+        queue.schedule(second, 100, __ -> latch.countDown());
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(updated).containsExactly(first.toUri(), second.toUri());
+    }
+
+    @Test
+    public void testRepeatedUpdatesAreCoalesced() throws InterruptedException {
+        List<JavaFileObject> updated = new CopyOnWriteArrayList<>();
+        CompilationUpdateQueue queue = new CompilationUpdateQueue((file, parsed) -> {
+            updated.add(file);
+            return null;
+        });
+
+        CountDownLatch latch = new CountDownLatch(3);
+        JavaFileObject last = null;
+        for (int i = 0; i < 3; i++) {
+            last = file("A.java");
+            queue.schedule(last, 300, __ -> latch.countDown());
+        }
+        assertThat(queue.getQueueDepth()).isEqualTo(1);
+
+        // every coalesced request should still receive a result
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(updated).containsExactly(last);
+        assertThat(queue.getQueueDepth()).isEqualTo(0);
+    }
+
+    private static JavaFileObject file(String name) {
+        return new SourceFileObject(Paths.get(name), "class " + name.replace(".java", "") + " {}",
+                Instant.now());
+    }
+}
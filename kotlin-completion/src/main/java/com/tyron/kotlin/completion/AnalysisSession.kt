@@ -0,0 +1,336 @@
+package com.tyron.kotlin.completion
+
+import com.tyron.kotlin.completion.model.Analysis
+import com.tyron.kotlin.completion.util.logTime
+import org.jetbrains.kotlin.analyzer.AnalysisResult
+import org.jetbrains.kotlin.cli.jvm.compiler.CliBindingTrace
+import org.jetbrains.kotlin.cli.jvm.compiler.KotlinCoreEnvironment
+import org.jetbrains.kotlin.cli.jvm.compiler.TopDownAnalyzerFacadeForJVM
+import org.jetbrains.kotlin.com.intellij.psi.PsiElement
+import org.jetbrains.kotlin.com.intellij.psi.impl.source.tree.TreeElement
+import org.jetbrains.kotlin.com.intellij.psi.util.PsiTreeUtil
+import org.jetbrains.kotlin.container.ComponentProvider
+import org.jetbrains.kotlin.container.getService
+import org.jetbrains.kotlin.descriptors.ModuleDescriptor
+import org.jetbrains.kotlin.diagnostics.Diagnostic
+import org.jetbrains.kotlin.psi.KtClassOrObject
+import org.jetbrains.kotlin.psi.KtDeclaration
+import org.jetbrains.kotlin.psi.KtExpression
+import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.psi.KtNamedFunction
+import org.jetbrains.kotlin.psi.KtProperty
+import org.jetbrains.kotlin.psi.KtTypeAlias
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.BindingTraceContext
+import org.jetbrains.kotlin.resolve.LazyTopDownAnalyzer
+import org.jetbrains.kotlin.resolve.TopDownAnalysisMode
+import org.jetbrains.kotlin.resolve.calls.smartcasts.DataFlowInfo
+import org.jetbrains.kotlin.resolve.diagnostics.Diagnostics
+import org.jetbrains.kotlin.resolve.diagnostics.SimpleDiagnostics
+import org.jetbrains.kotlin.resolve.jvm.extensions.AnalysisHandlerExtension
+import org.jetbrains.kotlin.resolve.lazy.ForceResolveUtil
+import org.jetbrains.kotlin.resolve.lazy.ResolveSession
+import org.jetbrains.kotlin.resolve.lazy.declarations.FileBasedDeclarationProviderFactory
+import java.util.Collections
+import java.util.IdentityHashMap
+
+/**
+ * Keeps the resolve container and the binding trace of a module between edits.
+ *
+ * The declarations of the files are resolved lazily, only the bodies of the declarations
+ * that are asked for are analyzed, the other files of the module are only resolved when the
+ * analyzed declarations refer to them.
+ *
+ * The session owns one [KtFile] per path, [update] returns it for a file that was parsed
+ * again. When only the bodies of functions changed, the changed bodies are moved into the
+ * existing file and only their functions are analyzed again, the descriptors and the results
+ * of the other declarations are kept. Any other change creates a new container, the
+ * container indexes the declarations of its files and can't be updated.
+ */
+class AnalysisSession(private val environment: KotlinCoreEnvironment) {
+
+    private val sessionFiles = mutableMapOf<String, KtFile>()
+
+    private var files: Set<KtFile> = emptySet()
+    private var container: ComponentProvider? = null
+    private var trace: BindingTraceContext? = null
+    private var updates = 0
+
+    /** The top level declarations that have been analyzed with the current container */
+    private val analyzed = identitySet<KtDeclaration>()
+
+    /** The functions whose bodies changed since they were analyzed */
+    private val changed = identitySet<KtNamedFunction>()
+
+    /** The diagnostics reported by the analysis of the bodies, replaced when analyzed again */
+    private val bodyDiagnostics = identitySet<Diagnostic>()
+    private val staleDiagnostics = identitySet<Diagnostic>()
+
+    /**
+     * @return The file of the session with the contents of [file], analysis results are
+     * only recorded for the elements of the returned file
+     */
+    @Synchronized
+    fun update(file: KtFile): KtFile {
+        val current = sessionFiles[file.name]
+        if (current === file) {
+            return current
+        }
+        if (current == null || container == null) {
+            return replace(file)
+        }
+        if (current.text == file.text) {
+            return current
+        }
+        if (updates >= MAX_UPDATES) {
+            return replace(file)
+        }
+
+        val currentBodies = bodiesOf(current)
+        val newBodies = bodiesOf(file)
+        if (currentBodies.size != newBodies.size ||
+            skeletonOf(current, currentBodies) != skeletonOf(file, newBodies)) {
+            return replace(file)
+        }
+        for (i in currentBodies.indices) {
+            val body = currentBodies[i]
+            val newBody = newBodies[i]
+            if (body.text != newBody.text) {
+                changed.add(body.parent as KtNamedFunction)
+                val node = newBody.node as TreeElement
+                node.rawRemove()
+                (body.node as TreeElement).rawReplaceWithList(node)
+            }
+        }
+        updates++
+        return current
+    }
+
+    /**
+     * @return The container and the trace for the given files, shared with the previous
+     * call if the files are the same
+     */
+    @Synchronized
+    fun getContainer(files: Collection<KtFile>): Pair<ComponentProvider, BindingTraceContext> {
+        val fileSet = identitySet<KtFile>().apply { files.mapTo(this) { update(it) } }
+        val current = container
+        val currentTrace = trace
+        if (current != null && currentTrace != null && fileSet == this.files) {
+            return current to currentTrace
+        }
+
+        val newTrace = CliBindingTrace()
+        val newContainer = TopDownAnalyzerFacadeForJVM.createContainer(
+            environment.project,
+            fileSet,
+            newTrace,
+            environment.configuration,
+            { globalSearchScope -> environment.createPackagePartProvider(globalSearchScope) },
+            { storageManager, ktFiles -> FileBasedDeclarationProviderFactory(storageManager, ktFiles) },
+            sourceModuleSearchScope = TopDownAnalyzerFacadeForJVM.newModuleSearchScope(
+                environment.project,
+                fileSet
+            )
+        )
+        this.files = fileSet
+        container = newContainer
+        trace = newTrace
+        clearResults()
+        return newContainer to newTrace
+    }
+
+    /**
+     * Analyzes the given top level declarations of [files], the declarations must belong to
+     * files returned by [update]. A declaration that was analyzed before only has the
+     * functions whose bodies changed analyzed again.
+     */
+    @Synchronized
+    fun analyze(files: Collection<KtFile>, declarations: Collection<KtDeclaration>): Analysis {
+        val (componentProvider, bindingTrace) = getContainer(files)
+        val moduleDescriptor = componentProvider.getService(ModuleDescriptor::class.java)
+
+        val toAnalyze = mutableListOf<KtDeclaration>()
+        for (declaration in declarations) {
+            if (analyzed.add(declaration)) {
+                toAnalyze.add(declaration)
+                changed.removeIf { PsiTreeUtil.isAncestor(declaration, it, false) }
+            }
+        }
+        val changedFunctions = changed.filter { function ->
+            declarations.any { PsiTreeUtil.isAncestor(it, function, false) }
+        }
+        changed.removeAll(changedFunctions)
+        toAnalyze.addAll(changedFunctions)
+
+        if (toAnalyze.isNotEmpty()) {
+            logTime("analysis of ${toAnalyze.size} declarations") {
+                analyzeDeclarations(componentProvider, bindingTrace, toAnalyze)
+            }
+
+            val project = environment.project
+            AnalysisHandlerExtension.getInstances(project)
+                .find { it.analysisCompleted(project, moduleDescriptor, bindingTrace, files) != null }
+        }
+        return Analysis(componentProvider, AnalysisResult.success(bindingContext(bindingTrace), moduleDescriptor))
+    }
+
+    /**
+     * Analyzes all the declarations of [filesToAnalyze].
+     */
+    fun analyzeFiles(files: Collection<KtFile>, filesToAnalyze: Collection<KtFile>): Analysis =
+        analyze(files, filesToAnalyze.flatMap { update(it).declarations })
+
+    /**
+     * Analyzes the top level declaration that contains [element].
+     */
+    fun analyzeAt(files: Collection<KtFile>, element: PsiElement): Analysis {
+        val declaration = topLevelDeclaration(element)
+        val declarations = when {
+            declaration != null -> listOf(declaration)
+            element.containingFile is KtFile -> (element.containingFile as KtFile).declarations
+            else -> emptyList()
+        }
+        return analyze(files, declarations)
+    }
+
+    @Synchronized
+    fun invalidate() {
+        sessionFiles.clear()
+        files = emptySet()
+        container = null
+        trace = null
+        clearResults()
+    }
+
+    private fun replace(file: KtFile): KtFile {
+        sessionFiles[file.name] = file
+        // the container is created again with the new file when it is asked for
+        container = null
+        trace = null
+        return file
+    }
+
+    private fun clearResults() {
+        updates = 0
+        analyzed.clear()
+        changed.clear()
+        bodyDiagnostics.clear()
+        staleDiagnostics.clear()
+    }
+
+    private fun analyzeDeclarations(
+        componentProvider: ComponentProvider,
+        bindingTrace: BindingTraceContext,
+        declarations: List<KtDeclaration>
+    ) {
+        // the diagnostics of the headers are only reported when they are first resolved, they
+        // are resolved first so they are not taken for diagnostics of the bodies
+        val resolveSession = componentProvider.getService(ResolveSession::class.java)
+        for (declaration in declarations) {
+            if (declaration is KtClassOrObject || declaration is KtNamedFunction ||
+                declaration is KtProperty || declaration is KtTypeAlias) {
+                ForceResolveUtil.forceResolveAllContents(resolveSession.resolveToDescriptor(declaration))
+            }
+        }
+
+        val iterator = bodyDiagnostics.iterator()
+        while (iterator.hasNext()) {
+            val diagnostic = iterator.next()
+            val element = diagnostic.psiElement
+            if (!element.isValid || declarations.any { PsiTreeUtil.isAncestor(it, element, false) }) {
+                staleDiagnostics.add(diagnostic)
+                iterator.remove()
+            }
+        }
+
+        val before = identitySet<Diagnostic>().apply { addAll(allDiagnostics(bindingTrace)) }
+        componentProvider.getService(LazyTopDownAnalyzer::class.java)
+            .analyzeDeclarations(TopDownAnalysisMode.TopLevelDeclarations, declarations, DataFlowInfo.EMPTY)
+        for (diagnostic in allDiagnostics(bindingTrace)) {
+            if (diagnostic !in before &&
+                declarations.any { PsiTreeUtil.isAncestor(it, diagnostic.psiElement, false) }) {
+                bodyDiagnostics.add(diagnostic)
+            }
+        }
+    }
+
+    private fun allDiagnostics(bindingTrace: BindingTraceContext): Collection<Diagnostic> =
+        bindingTrace.bindingContext.diagnostics.noSuppression().all()
+
+    /**
+     * @return The binding context of the trace without the diagnostics of the bodies that
+     * have been replaced or analyzed again
+     */
+    private fun bindingContext(bindingTrace: BindingTraceContext): BindingContext {
+        val context = bindingTrace.bindingContext
+        if (updates == 0 && staleDiagnostics.isEmpty()) {
+            return context
+        }
+        val stale = identitySet<Diagnostic>().apply { addAll(staleDiagnostics) }
+        return object : BindingContext by context {
+            override fun getDiagnostics(): Diagnostics = SimpleDiagnostics(
+                context.diagnostics.all().filter { it !in stale && it.psiElement.isValid }
+            )
+        }
+    }
+
+    /**
+     * @return The bodies of the functions of [file] that are not local. Only a function body
+     * can change without changing what is recorded for the descriptors: initializers decide
+     * what a constructor initializes, accessors whether a property has a backing field and
+     * expression bodies without a return type the type of their function.
+     */
+    private fun bodiesOf(file: KtFile): List<KtExpression> {
+        val bodies = mutableListOf<KtExpression>()
+        fun collect(declarations: List<KtDeclaration>) {
+            for (declaration in declarations) {
+                if (declaration is KtClassOrObject) {
+                    collect(declaration.declarations)
+                } else if (declaration is KtNamedFunction &&
+                    (declaration.hasBlockBody() || declaration.hasDeclaredReturnType()) &&
+                    !declaration.mayHaveContract()) {
+                    declaration.bodyExpression?.let { bodies.add(it) }
+                }
+            }
+        }
+        collect(file.declarations)
+        return bodies
+    }
+
+    /**
+     * @return The text of [file] without the given bodies
+     */
+    private fun skeletonOf(file: KtFile, bodies: List<KtExpression>): String {
+        val text = file.text
+        val skeleton = StringBuilder()
+        var start = 0
+        for (body in bodies) {
+            val range = body.textRange
+            skeleton.append(text, start, range.startOffset).append('\u0000')
+            start = range.endOffset
+        }
+        return skeleton.append(text, start, text.length).toString()
+    }
+
+    private fun topLevelDeclaration(element: PsiElement): KtDeclaration? {
+        var current: PsiElement? = element
+        while (current != null && current !is KtFile) {
+            if (current is KtDeclaration && current.parent is KtFile) {
+                return current
+            }
+            current = current.parent
+        }
+        return null
+    }
+
+    companion object {
+
+        /**
+         * The trace keeps the results of the replaced bodies, the container is created again
+         * after this many updates so they are released.
+         */
+        private const val MAX_UPDATES = 100
+
+        private fun <T> identitySet(): MutableSet<T> = Collections.newSetFromMap(IdentityHashMap())
+    }
+}
@@ -11,7 +11,6 @@ import com.tyron.kotlin.completion.codeInsight.ReferenceVariantsHelper
 import com.tyron.kotlin.completion.model.Analysis
 import com.tyron.kotlin.completion.util.*
 import com.tyron.kotlin_completion.util.PsiUtils
-import org.jetbrains.kotlin.analyzer.AnalysisResult
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys
 import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments
 import org.jetbrains.kotlin.cli.common.environment.setIdeaIoUseFallback
@@ -21,7 +20,6 @@ import org.jetbrains.kotlin.com.intellij.openapi.util.Key
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement
 import org.jetbrains.kotlin.com.intellij.psi.tree.TokenSet
 import org.jetbrains.kotlin.config.*
-import org.jetbrains.kotlin.container.getService
 import org.jetbrains.kotlin.descriptors.*
 import org.jetbrains.kotlin.descriptors.impl.LocalVariableDescriptor
 import org.jetbrains.kotlin.descriptors.impl.TypeParameterDescriptorImpl
@@ -33,11 +31,6 @@ import org.jetbrains.kotlin.renderer.ClassifierNamePolicy
 import org.jetbrains.kotlin.renderer.ParameterNameRenderingPolicy
 import org.jetbrains.kotlin.resolve.BindingContext
 import org.jetbrains.kotlin.resolve.DescriptorUtils
-import org.jetbrains.kotlin.resolve.LazyTopDownAnalyzer
-import org.jetbrains.kotlin.resolve.TopDownAnalysisMode
-import org.jetbrains.kotlin.resolve.calls.smartcasts.DataFlowInfo
-import org.jetbrains.kotlin.resolve.jvm.extensions.AnalysisHandlerExtension
-import org.jetbrains.kotlin.resolve.lazy.declarations.FileBasedDeclarationProviderFactory
 import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
 import org.jetbrains.kotlin.types.asFlexibleType
@@ -52,8 +45,19 @@ data class KotlinEnvironment(
 ) {
     private val kotlinFiles = mutableMapOf<String, KotlinFile>()
 
+    private val session = AnalysisSession(kotlinEnvironment)
+
     fun updateKotlinFile(name: String, contents: String): KotlinFile {
-        val kotlinFile = KotlinFile.from(kotlinEnvironment.project, name, contents)
+        kotlinFiles[name]?.let { if (it.kotlinFile.text == contents) return it }
+        return update(name, KotlinFile.from(kotlinEnvironment.project, name, contents))
+    }
+
+    /**
+     * The analysis session keeps its file and updates it in place when only the bodies of
+     * functions changed, the analysis results are only found for the elements of its file.
+     */
+    private fun update(name: String, file: KotlinFile): KotlinFile {
+        val kotlinFile = KotlinFile(name, session.update(file.kotlinFile))
         kotlinFiles[name] = kotlinFile
         return kotlinFile
     }
@@ -96,9 +100,7 @@ data class KotlinEnvironment(
 
 
     fun complete(file: KotlinFile, line: Int, character: Int) =
-        with(file.insert("$COMPLETION_SUFFIX ", line, character)) {
-            kotlinFiles[file.name] = this
-
+        with(update(file.name, file.insert("$COMPLETION_SUFFIX ", line, character))) {
             elementAt(line, character)?.let { element ->
                 val descriptorInfo = descriptorsFrom(element)
                 val prefix = getPrefix(element)
@@ -171,7 +173,7 @@ data class KotlinEnvironment(
 
     private fun descriptorsFrom(element: PsiElement): DescriptorInfo {
         val files = kotlinFiles.values.map { it.kotlinFile }.toList()
-        val analysis = analysisOf(files)
+        val analysis = session.analyzeAt(files, element)
         return with(analysis) {
             (referenceVariantsFrom(element)
                 ?: referenceVariantsFrom(element.parent))?.let { descriptors ->
@@ -212,43 +214,6 @@ data class KotlinEnvironment(
         }
     }
 
-    private fun analysisOf(files: List<KtFile>): Analysis {
-        val trace = CliBindingTrace()
-        val project = files.first().project
-        val componentProvider = TopDownAnalyzerFacadeForJVM.createContainer(
-            kotlinEnvironment.project,
-            files,
-            trace,
-            kotlinEnvironment.configuration,
-            { globalSearchScope -> kotlinEnvironment.createPackagePartProvider(globalSearchScope) },
-            { storageManager, ktFiles ->
-                FileBasedDeclarationProviderFactory(
-                    storageManager,
-                    ktFiles
-                )
-            },
-            sourceModuleSearchScope = TopDownAnalyzerFacadeForJVM.newModuleSearchScope(
-                project,
-                files
-            )
-        )
-        return logTime("analysis") {
-            componentProvider.getService(LazyTopDownAnalyzer::class.java)
-                .analyzeDeclarations(
-                    TopDownAnalysisMode.TopLevelDeclarations,
-                    files,
-                    DataFlowInfo.EMPTY
-                )
-            val moduleDescriptor = componentProvider.getService(ModuleDescriptor::class.java)
-            AnalysisHandlerExtension.getInstances(project)
-                .find { it.analysisCompleted(project, moduleDescriptor, trace, files) != null }
-            return@logTime Analysis(
-                componentProvider,
-                AnalysisResult.success(trace.bindingContext, moduleDescriptor)
-            )
-        }
-    }
-
     private fun Analysis.referenceVariantsFrom(element: PsiElement): List<DeclarationDescriptor>? {
         val prefix = getPrefix(element)
         val elementKt = element as? KtElement ?: return emptyList()
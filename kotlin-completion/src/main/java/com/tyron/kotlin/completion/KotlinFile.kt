@@ -1,6 +1,7 @@
 package com.tyron.kotlin.completion
 
 import org.jetbrains.kotlin.com.intellij.openapi.project.Project
+import org.jetbrains.kotlin.com.intellij.openapi.util.text.StringUtil
 import org.jetbrains.kotlin.com.intellij.openapi.vfs.CharsetToolkit
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement
 import org.jetbrains.kotlin.com.intellij.psi.PsiFileFactory
@@ -25,7 +26,9 @@ class KotlinFile(val name: String, val kotlinFile: KtFile) {
         } else this
     }
 
-    private fun offsetFor(line: Int, character: Int) = (kotlinFile.viewProvider.document?.getLineStartOffset(line) ?: 0) + character
+    // the document is not updated when the analysis session changes the file in place
+    private fun offsetFor(line: Int, character: Int) =
+        StringUtil.lineColToOffset(kotlinFile.text, line, character).coerceAtLeast(0)
 
     private tailrec fun expressionFor(element: PsiElement): PsiElement =
         if (element is KtExpression) element else expressionFor(element.parent)
@@ -73,7 +73,7 @@ public class CompiledFile {
     }
 
     public BindingContext bindingContextOf(KtExpression expression, LexicalScope scopeWithImports) {
-        return mClassPath.getCompiler().compileKtExpression(expression, scopeWithImports, mSourcePath).getFirst();
+        return mClassPath.getCompiler().compileKtExpression(expression, scopeWithImports, mContainer, mCompile).getFirst();
     }
 
     public Pair<KtExpression, DeclarationDescriptor> referenceAtPoint(int cursor) {
@@ -89,6 +89,15 @@ public class CompilerClassPath implements Closeable {
         dest.addAll(added);
     }
 
+    /**
+     * @return The compiled jars of the current classpath
+     */
+    public Set<Path> getClassPathJars() {
+        synchronized (mClassPath) {
+            return mClassPath.stream().map(ClassPathEntry::getCompiledJar).collect(Collectors.toSet());
+        }
+    }
+
     public Compiler getCompiler() {
         return compiler;
     }
@@ -12,8 +12,10 @@ import org.jetbrains.kotlin.com.intellij.lang.Language;
 import org.jetbrains.kotlin.com.intellij.psi.PsiElement;
 import org.jetbrains.kotlin.com.intellij.psi.PsiFile;
 import org.jetbrains.kotlin.container.ComponentProvider;
+import org.jetbrains.kotlin.descriptors.DeclarationDescriptor;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.idea.KotlinLanguage;
+import org.jetbrains.kotlin.psi.KtDeclaration;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.kotlin.resolve.BindingContext;
 import org.slf4j.Logger;
@@ -25,8 +27,10 @@ import java.net.URI;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
@@ -53,12 +57,14 @@ public class SourcePath {
 
     private final AsyncExecutor indexAsync = new AsyncExecutor();
     private final SymbolIndex index = new SymbolIndex();
-    private boolean indexEnabled = false;
-    private boolean indexInitialized;
+    private boolean indexEnabled = true;
 
 
     public SourcePath(CompilerClassPath classPath) {
         cp = classPath;
+
+        // the saved index of the classpath is usable before the first compilation
+        indexAsync.execute(() -> index.load(cp.getClassPathJars()));
     }
 
     public CompilerClassPath getCompilerClassPath() {
@@ -84,6 +90,14 @@ public class SourcePath {
         private final String extension;
         private final CompletionKind kind = CompletionKind.DEFAULT;
 
+        /**
+         * Incremented when the content changes, so a change is detected without comparing the
+         * content to the text of the parsed file
+         */
+        private int version;
+        private int parsedVersion = -1;
+        private int compiledVersion = -1;
+
         public SourceFile(URI uri, String content, Language language, boolean isTemporary) {
             this(uri, content, Paths.get(uri), null, null, null, null, language, isTemporary);
         }
@@ -106,7 +120,10 @@ public class SourcePath {
         }
 
         public void put(String newContent) {
-            content = newContent;
+            if (!newContent.equals(content)) {
+                content = newContent;
+                version++;
+            }
         }
 
         public void clean() {
@@ -114,15 +131,19 @@ public class SourcePath {
             compiledFile = null;
             compiledContext = null;
             compiledcontainer = null;
+            compiledVersion = -1;
         }
 
         public void parse() {
             LOG.debug("Parsing file " + path);
-            parsed = cp.getCompiler().createKtFile(content, (path == null ? Paths.get("sourceFile.virtual" + extension) : path), kind);
+            // the analysis session keeps its file when only the bodies of functions changed
+            parsed = cp.getCompiler().updateKtFile(cp.getCompiler().createKtFile(content,
+                    (path == null ? Paths.get("sourceFile.virtual" + extension) : path), kind));
+            parsedVersion = version;
         }
 
         public void parseIfChanged() {
-            if (parsed == null || !content.equals(parsed.getText())) {
+            if (parsed == null || parsedVersion != version) {
                 LOG.debug("Parse has changed, parsing.");
                 parse();
             }
@@ -146,24 +167,27 @@ public class SourcePath {
         }
 
         private void doCompileIfChanged() {
-            if (parsed == null || compiledFile == null || !parsed.getText().equals(compiledFile.getText())) {
-                doCompile();;
+            if (parsed == null || compiledFile != parsed || compiledVersion != parsedVersion) {
+                doCompile();
             }
         }
 
         private void doCompile() {
             if (this.path.toFile().getName().endsWith(".kt")) {
+                int compilingVersion = parsedVersion;
                 Pair<BindingContext, ComponentProvider> pair = cp.getCompiler().compileKtFile(parsed, allIncludingThis());
                 parsedDataWriteLock.lock();
                 try {
                     compiledContext = pair.getFirst();
                     compiledcontainer = pair.getSecond();
                     compiledFile = parsed;
+                    compiledVersion = compilingVersion;
                 } finally {
                     parsedDataWriteLock.unlock();
                 }
+                updateIndexAsync(this, parsed, compiledContext);
             }
-            initializeIndexAsyncIfNeeded(compiledcontainer);
+            refreshIndexAsync(compiledcontainer);
         }
         public CompiledFile prepareCompiledFile() {
             parseIfChanged();
@@ -175,6 +199,13 @@ public class SourcePath {
             return new CompiledFile(content, compiledFile, compiledContext, compiledcontainer, allIncludingThis(), cp);
         }
 
+        /**
+         * @return Whether the current content has been compiled
+         */
+        private boolean isCompiled() {
+            return compiledFile != null && compiledFile == parsed && compiledVersion == version;
+        }
+
         private Collection<KtFile> allIncludingThis() {
             parseIfChanged();
             if (isTemporary) {
@@ -214,38 +245,61 @@ public class SourcePath {
 
     public void delete(File file) {
         files.remove(file.toURI());
+        index.removeSourceFile(file.toPath());
     }
 
     public BindingContext compileFiles(Collection<File> all) {
         Set<SourceFile> sources = all.stream().map(o -> files.get(o.toURI())).collect(Collectors.toSet());
-        Set<SourceFile> allChanged = sources.stream().filter(it -> {
-            if (it.compiledFile == null) {
-                return true;
-            }
-            return !it.content.equals(it.compiledFile.getText());
-        })
+        Set<SourceFile> allChanged = sources.stream().filter(it -> !it.isCompiled())
                 .collect(Collectors.toSet());
         BindingContext sourcesContext = compileAndUpdate(allChanged);
         return UtilKt.util(sourcesContext, sources, allChanged);
     }
 
-    private void initializeIndexAsyncIfNeeded(ComponentProvider container) {
+    /**
+     * Indexes the jars of the classpath that are new or have changed, the other jars are read
+     * from the saved index.
+     */
+    private void refreshIndexAsync(ComponentProvider container) {
         indexAsync.execute(() -> {
-            if (indexEnabled && !indexInitialized) {
+            if (indexEnabled) {
                 ModuleDescriptor module = (ModuleDescriptor) container.resolve(ModuleDescriptor.class).getValue();
-                index.refresh(module, true);
-                indexInitialized = true;
+                index.refresh(module, cp.getClassPathJars());
+            }
+        });
+    }
+
+    private void updateIndexAsync(SourceFile sourceFile, KtFile file, BindingContext context) {
+        if (!indexEnabled || sourceFile.isTemporary) {
+            return;
+        }
+        indexAsync.execute(() -> {
+            List<DeclarationDescriptor> descriptors = new ArrayList<>();
+            for (KtDeclaration declaration : file.getDeclarations()) {
+                DeclarationDescriptor descriptor =
+                        context.get(BindingContext.DECLARATION_TO_DESCRIPTOR, declaration);
+                if (descriptor != null) {
+                    descriptors.add(descriptor);
+                }
             }
+            index.updateSourceFile(sourceFile.path, descriptors);
         });
     }
 
 
+    /**
+     * Compiles the files that changed since they were last compiled. When only the bodies of
+     * functions changed the analysis session keeps its container and only these functions are
+     * analyzed again, the other files are only resolved when the changed ones refer to them.
+     */
     private BindingContext compileAndUpdate(Set<SourceFile> changed) {
         if (changed.isEmpty()) return null;
         Map<SourceFile, KtFile> parse = CollectionsKt.associateWith(changed, sourceFile -> {
             sourceFile.parseIfChanged();
             return sourceFile.parsed;
         });
+        Map<SourceFile, Integer> versions = CollectionsKt.associateWith(changed,
+                sourceFile -> sourceFile.parsedVersion);
         Set<KtFile> all = all(false);
         Pair<BindingContext, ComponentProvider> pair = cp.getCompiler()
                 .compileKtFiles(parse.values(), all, CompletionKind.DEFAULT);
@@ -253,17 +307,19 @@ public class SourcePath {
         parse.forEach((f, parsed) -> {
             parsedDataWriteLock.lock();
             try {
-                if (f.parsed.equals(parsed)) {
+                if (f.parsed == parsed && f.parsedVersion == versions.get(f)) {
                     f.compiledFile = parsed;
+                    f.compiledVersion = f.parsedVersion;
                     f.compiledContext = pair.getFirst();
                     f.compiledcontainer = pair.getSecond();
+                    updateIndexAsync(f, parsed, pair.getFirst());
                 }
             } finally {
                 parsedDataWriteLock.unlock();
             }
         });
 
-        initializeIndexAsyncIfNeeded(pair.getSecond());
+        refreshIndexAsync(pair.getSecond());
         return pair.getFirst();
     }
 
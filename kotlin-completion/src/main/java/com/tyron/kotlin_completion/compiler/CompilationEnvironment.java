@@ -1,6 +1,7 @@
 package com.tyron.kotlin_completion.compiler;
 
 import com.tyron.builder.project.api.KotlinModule;
+import com.tyron.kotlin.completion.AnalysisSession;
 import com.tyron.kotlin.completion.KotlinEnvironment;
 
 import org.jetbrains.kotlin.cli.common.CLIConfigurationKeys;
@@ -45,6 +46,7 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -60,6 +62,7 @@ public class CompilationEnvironment implements Closeable {
     private final Disposable mDisposable = Disposer.newDisposable();
     private final KotlinCoreEnvironment mEnvironment;
     private final KtPsiFactory mParser;
+    private final AnalysisSession mSession;
 
     public CompilationEnvironment(KotlinModule module,
                                   Set<Path> javaSourcePath,
@@ -74,6 +77,7 @@ public class CompilationEnvironment implements Closeable {
         updateConfig(mEnvironment.getConfiguration());
 
         mParser = new KtPsiFactory(mEnvironment.getProject());
+        mSession = new AnalysisSession(mEnvironment);
     }
 
     private void updateConfig(CompilerConfiguration configuration) {
@@ -109,8 +113,18 @@ public class CompilationEnvironment implements Closeable {
         return createContainer(Collections.emptyList(), sourcePath);
     }
 
+    /**
+     * @return The container of the analysis session for the given files, the container and
+     * its trace are shared with the previous analysis if the files did not change
+     */
     public Pair<ComponentProvider, BindingTraceContext> createContainer(Collection<KtFile> filesToAnalyze, Collection<KtFile> sourcePath) {
-        throw new UnsupportedOperationException();
+        Set<KtFile> files = new LinkedHashSet<>(sourcePath);
+        files.addAll(filesToAnalyze);
+        return mSession.getContainer(files);
+    }
+
+    public AnalysisSession getSession() {
+        return mSession;
     }
 
     public void updateConfiguration(CompilerConfiguration config) {
@@ -135,6 +149,7 @@ public class CompilationEnvironment implements Closeable {
 
     @Override
     public void close() {
+        mSession.invalidate();
         Disposer.dispose(mDisposable);
     }
 
@@ -3,6 +3,7 @@ package com.tyron.kotlin_completion.compiler;
 import android.util.Log;
 
 import com.tyron.builder.project.api.KotlinModule;
+import com.tyron.kotlin.completion.model.Analysis;
 
 import org.jetbrains.kotlin.cli.common.environment.UtilKt;
 import org.jetbrains.kotlin.com.intellij.lang.Language;
@@ -19,6 +20,7 @@ import org.jetbrains.kotlin.idea.KotlinLanguage;
 import org.jetbrains.kotlin.psi.KtExpression;
 import org.jetbrains.kotlin.psi.KtFile;
 import org.jetbrains.kotlin.resolve.BindingContext;
+import org.jetbrains.kotlin.resolve.BindingTrace;
 import org.jetbrains.kotlin.resolve.BindingTraceContext;
 import org.jetbrains.kotlin.resolve.LazyTopDownAnalyzer;
 import org.jetbrains.kotlin.resolve.TopDownAnalysisMode;
@@ -33,6 +35,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -73,6 +76,20 @@ public class Compiler implements Closeable {
         return (KtFile) createPsiFile(content, file, KotlinLanguage.INSTANCE, kind);
     }
 
+    /**
+     * @return The file of the analysis session with the contents of the given file, it is
+     * updated in place when only the bodies of its functions changed. The analysis results
+     * are only found for the elements of the returned file.
+     */
+    public KtFile updateKtFile(KtFile file) {
+        mCompileLock.lock();
+        try {
+            return mDefaultCompileEnvironment.getSession().update(file);
+        } finally {
+            mCompileLock.unlock();
+        }
+    }
+
     public PsiJavaFile createJavaFile(String content, Path file, CompletionKind kind) {
         return (PsiJavaFile) createPsiFile(content, file, JavaLanguage.INSTANCE, kind);
     }
@@ -88,7 +105,14 @@ public class Compiler implements Closeable {
     public Pair<BindingContext, ComponentProvider> compileKtFiles(Collection<? extends KtFile> files, Collection<KtFile> sourcePath, CompletionKind kind) {
         mCompileLock.lock();
         try {
-            throw new UnsupportedOperationException();
+            Set<KtFile> all = new LinkedHashSet<>(sourcePath);
+            all.addAll(files);
+            // only the declarations of the given files that have not been analyzed yet and
+            // the functions whose bodies changed are analyzed, the rest of the module is
+            // resolved lazily
+            Analysis analysis = mDefaultCompileEnvironment.getSession().analyzeFiles(all, files);
+            return new Pair<>(analysis.getAnalysisResult().getBindingContext(),
+                    analysis.getComponentProvider());
         } finally {
             mCompileLock.unlock();
         }
@@ -111,21 +135,25 @@ public class Compiler implements Closeable {
         }
     }
 
-    public Pair<BindingContext, ComponentProvider> compileKtExpression(KtExpression expression, LexicalScope scopeWithImports, Collection<KtFile> sourcePath) {
+    /**
+     * Analyzes an expression with the container its file has been compiled with, so the
+     * shared container of the analysis session is not replaced when the set of files differs.
+     */
+    public Pair<BindingContext, ComponentProvider> compileKtExpression(KtExpression expression, LexicalScope scopeWithImports, ComponentProvider container, BindingContext context) {
         Log.d(null, "Compiling kt expression: " + expression.getText());
         mCompileLock.lock();
         try {
-            Pair<ComponentProvider, BindingTraceContext> pair = mDefaultCompileEnvironment.createContainer(sourcePath);
-            ExpressionTypingServices incrementalCompiler = pair.getFirst().create(ExpressionTypingServices.class);
+            BindingTrace trace = CompilerKt.createExpressionTrace(context, expression);
+            ExpressionTypingServices incrementalCompiler = container.create(ExpressionTypingServices.class);
             incrementalCompiler.getTypeInfo(
                     scopeWithImports,
                     expression,
                     TypeUtils.NO_EXPECTED_TYPE,
                     DataFlowInfo.Companion.getEMPTY(),
                     InferenceSession.Companion.getDefault(),
-                    pair.getSecond(),
+                    trace,
                     true);
-            return new Pair<>(pair.getSecond().getBindingContext(), pair.getFirst());
+            return new Pair<>(trace.getBindingContext(), container);
         } finally {
             mCompileLock.unlock();
         }
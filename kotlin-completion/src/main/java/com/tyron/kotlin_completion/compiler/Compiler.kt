@@ -6,8 +6,12 @@ import org.jetbrains.kotlin.cli.jvm.compiler.TopDownAnalyzerFacadeForJVM
 import org.jetbrains.kotlin.com.intellij.openapi.project.Project
 import org.jetbrains.kotlin.config.CompilerConfiguration
 import org.jetbrains.kotlin.container.ComponentProvider
+import org.jetbrains.kotlin.psi.KtExpression
 import org.jetbrains.kotlin.psi.KtFile
+import org.jetbrains.kotlin.resolve.BindingContext
+import org.jetbrains.kotlin.resolve.BindingTrace
 import org.jetbrains.kotlin.resolve.BindingTraceContext
+import org.jetbrains.kotlin.resolve.DelegatingBindingTrace
 import org.jetbrains.kotlin.resolve.LazyTopDownAnalyzer
 import org.jetbrains.kotlin.resolve.TopDownAnalysisMode
 import org.jetbrains.kotlin.resolve.lazy.declarations.FileBasedDeclarationProviderFactory
@@ -29,4 +33,11 @@ fun createContainer(environment: KotlinCoreEnvironment, sourcePath: Collection<K
         ::FileBasedDeclarationProviderFactory
     )
     return Pair(container, cliBindingTrace)
-}
\ No newline at end of file
+}
+
+/**
+ * A trace for the analysis of a single expression, the results of the module analysis can
+ * be read from it but the expression does not add its results to the shared trace.
+ */
+fun createExpressionTrace(parent: BindingContext, expression: KtExpression): BindingTrace =
+    DelegatingBindingTrace(parent, "Expression ${expression.text}")
@@ -1,118 +1,196 @@
 package com.tyron.kotlin_completion.index
 
 import android.util.Log
+import com.tyron.common.ApplicationPaths
 import com.tyron.kotlin_completion.util.PsiUtils
-import org.jetbrains.exposed.sql.*
-import org.jetbrains.exposed.sql.transactions.transaction
 import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
+import org.jetbrains.kotlin.descriptors.DeclarationDescriptorWithSource
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor
+import org.jetbrains.kotlin.load.java.sources.JavaSourceElement
+import org.jetbrains.kotlin.load.java.structure.impl.VirtualFileBoundJavaClass
+import org.jetbrains.kotlin.load.kotlin.JvmPackagePartSource
+import org.jetbrains.kotlin.load.kotlin.KotlinJvmBinarySourceElement
 import org.jetbrains.kotlin.name.FqName
 import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.MemberScope
-import java.lang.IllegalStateException
+import org.jetbrains.kotlin.serialization.deserialization.descriptors.DescriptorWithContainerSource
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.nio.file.Path
 import java.time.Duration
 import java.time.Instant
-import kotlin.sequences.Sequence
-
-private const val MAX_FQNAME_LENGTH = 255
-private const val MAX_SHORT_NAME_LENGTH = 80
-
-private object Symbols : Table() {
-    val fqName = varchar("fqname", length = MAX_FQNAME_LENGTH) references FqNames.fqName
-    val kind = integer("kind")
-    val visibility = integer("visibility")
-    val extensionReceiverType = varchar("extensionreceivertype", length = MAX_FQNAME_LENGTH).nullable()
-
-    override val primaryKey = PrimaryKey(fqName)
-}
+import java.util.UUID
+import java.util.concurrent.ConcurrentHashMap
+import java.util.zip.ZipFile
+
+private const val FORMAT_VERSION = 1
+private const val CACHE_DIRECTORY = "kotlin-symbol-index"
+
+/**
+ * Index of the top level symbols of the classpath and the source files, used to suggest
+ * symbols that are not imported yet.
+ *
+ * The symbols are kept in one [SymbolTable] per classpath entry and per source file. The
+ * table of a jar is saved in the cache directory keyed by the path, size and modification
+ * time of the jar, so only the jars that are new or have changed are indexed when a project
+ * is opened. Source files are indexed again each time they are compiled.
+ */
+class SymbolIndex {
 
-private object FqNames : Table() {
-    val fqName = varchar("fqname", length = MAX_FQNAME_LENGTH)
-    val shortName = varchar("shortname", length = MAX_SHORT_NAME_LENGTH)
+    private class JarTable(val stamp: String, val table: SymbolTable)
 
-    override val primaryKey = PrimaryKey(fqName)
-}
-class SymbolIndex {
-    private val db = Database.connect("jdbc:h2:mem:symbolindex;DB_CLOSE_DELAY=-1", "org.h2.Driver")
+    private val jarTables = ConcurrentHashMap<Path, JarTable>()
+    private val sourceTables = ConcurrentHashMap<Path, SymbolTable>()
 
+    @Volatile
     var indexing: Boolean = false
 
-    init {
-       transaction (db) {
-           SchemaUtils.create(Symbols, FqNames)
-       }
+    /**
+     * Reads the saved tables of the given jars, the jars that have not been indexed yet
+     * are indexed by the next [refresh].
+     */
+    fun load(classPath: Collection<Path>) {
+        for (jar in classPath.map(::normalize)) {
+            if (!jarTables.containsKey(jar)) {
+                val stamp = getStamp(jar)
+                readTable(jar, stamp)?.let { jarTables[jar] = JarTable(stamp, it) }
+            }
+        }
     }
 
-    fun refresh(module: ModuleDescriptor, forced: Boolean = true) {
-        val started = System.currentTimeMillis()
-        Log.d("SymbolIndex", "Updating symbol index...");
-
+    /**
+     * Indexes the jars of the classpath that are not indexed yet or have changed since they
+     * were indexed, jars that are no longer in the classpath are dropped from the index.
+     *
+     * @param forced whether to index all the jars again, even the ones that did not change
+     */
+    fun refresh(module: ModuleDescriptor, classPath: Collection<Path>, forced: Boolean = false) {
+        val started = Instant.now()
         indexing = true
         try {
-            transaction(db) {
-                if (forced) {
-                    Symbols.deleteAll()
-                }
-                for (descriptor in allDescriptors(module)) {
-                    val descriptorFqn = PsiUtils.getFqNameSafe(descriptor)
-                    val extensionReceiverFqn = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
-
-                    if (canStoreFqName(descriptorFqn) && (extensionReceiverFqn?.let { canStoreFqName(it) } != false)) {
-
-                        for (fqn in listOfNotNull(descriptorFqn, extensionReceiverFqn)) {
-                            FqNames.replace {
-                                it[fqName] = fqn.toString()
-                                it[shortName] = fqn.shortName().toString()
-                            }
-                        }
-
-
-                        Symbols.replace {
-                            it[fqName] = descriptorFqn.toString()
-                            it[kind] = descriptor.accept(ExtractSymbolKind, Unit).rawValue
-                            it[visibility] = descriptor.accept(ExtractSymbolVisibility, Unit).rawValue
-                            it[extensionReceiverType] = extensionReceiverFqn?.toString()
-                        }
-                    } else {
-                        Log.w("SymbolIndex",
-                            "Excluding symbol $descriptorFqn from index since its name is too long"
-                        );
-                    }
+            val jars = classPath.map(::normalize)
+            val jarSet = jars.toSet()
+            jarTables.entries.removeIf { it.key !in jarSet || it.value.stamp != getStamp(it.key) }
+            if (forced) {
+                jarTables.clear()
+            } else {
+                load(jars)
+            }
+
+            val missing = jars.filter { !jarTables.containsKey(it) }.toSet()
+            if (missing.isEmpty()) {
+                return
+            }
+            Log.d("SymbolIndex", "Indexing ${missing.size} classpath entries")
+
+            val symbols = HashMap<Path, MutableList<Symbol>>()
+            val packages = missing.flatMap(::listPackages).toSet()
+            for (descriptor in allDescriptors(module, packages)) {
+                val jar = getJar(descriptor) ?: continue
+                if (jar in missing) {
+                    toSymbol(descriptor)?.let { symbols.getOrPut(jar) { ArrayList() }.add(it) }
                 }
+            }
 
-                indexing = false
+            for (jar in missing) {
+                val stamp = getStamp(jar)
+                val table = SymbolTable.create(symbols[jar].orEmpty())
+                jarTables[jar] = JarTable(stamp, table)
+                writeTable(jar, stamp, table)
             }
         } catch (e: Exception) {
-            Log.e("SymbolIndex", "Error while updating symbol index", e);
+            Log.e("SymbolIndex", "Error while updating symbol index", e)
+        } finally {
+            indexing = false
+            Log.d("SymbolIndex", "Updating the index took " + Duration.between(started, Instant.now()).toMillis() + " ms")
         }
     }
 
+    /**
+     * Replaces the symbols of a source file with the given top level declarations.
+     */
+    fun updateSourceFile(file: Path, declarations: Collection<DeclarationDescriptor>) {
+        sourceTables[file] = SymbolTable.create(declarations.mapNotNull(::toSymbol))
+    }
+
+    fun removeSourceFile(file: Path) {
+        sourceTables.remove(file)
+    }
+
     fun query(prefix: String, receiverType: FqName? = null, limit: Int = 20): List<Symbol> {
         val start = Instant.now()
         try {
-            return transaction(db) {
-                (Symbols innerJoin FqNames)
-                    .select { FqNames.shortName.like("$prefix%") and (Symbols.extensionReceiverType eq receiverType?.toString()) }
-                    .limit(limit)
-                    .map {
-                        Symbol(
-                            fqName = FqName(it[Symbols.fqName]),
-                            kind = Symbol.Kind.fromRaw(it[Symbols.kind]),
-                            visibility = Symbol.Visibility.fromRaw(it[Symbols.visibility]),
-                            extensionReceiverType = it[Symbols.extensionReceiverType]?.let(::FqName)
-                        )
-                    }
+            val result = ArrayList<Symbol>(limit)
+            for (table in sourceTables.values) {
+                table.search(prefix, receiverType, limit, result)
+            }
+            for (jarTable in jarTables.values) {
+                jarTable.table.search(prefix, receiverType, limit, result)
             }
+            return result
         } finally {
             Log.d("SymbolIndex", "Query took " + Duration.between(start, Instant.now()).toMillis() + " ms")
         }
     }
 
-    private fun canStoreFqName(fqName: FqName) =
-        fqName.toString().length <= MAX_FQNAME_LENGTH
-                && fqName.shortName().toString().length <= MAX_SHORT_NAME_LENGTH
+    private fun toSymbol(descriptor: DeclarationDescriptor): Symbol? {
+        val fqName = PsiUtils.getFqNameSafe(descriptor) ?: return null
+        return Symbol(
+            fqName = fqName,
+            kind = descriptor.accept(ExtractSymbolKind, Unit),
+            visibility = descriptor.accept(ExtractSymbolVisibility, Unit),
+            extensionReceiverType = descriptor.accept(ExtractSymbolExtensionReceiverType, Unit)
+        )
+    }
+
+    /**
+     * @return The jar the descriptor was loaded from, null if it was not loaded from a jar
+     */
+    private fun getJar(descriptor: DeclarationDescriptor): Path? {
+        val location = when (val source = (descriptor as? DescriptorWithContainerSource)?.containerSource
+            ?: (descriptor as? DeclarationDescriptorWithSource)?.source) {
+            is KotlinJvmBinarySourceElement -> source.binaryClass.location
+            is JvmPackagePartSource -> source.knownJvmBinaryClass?.location
+            is JavaSourceElement -> (source.javaElement as? VirtualFileBoundJavaClass)?.virtualFile?.path
+            else -> null
+        } ?: return null
+
+        val separator = location.indexOf("!/")
+        if (separator == -1) {
+            return null
+        }
+        return normalize(File(location.substring(0, separator)).toPath())
+    }
 
-    private fun allDescriptors(module: ModuleDescriptor) : Sequence<DeclarationDescriptor> = allPackages(module)
+    private fun normalize(path: Path): Path = path.toAbsolutePath().normalize()
+
+    private fun listPackages(jar: Path): Set<FqName> {
+        val packages = HashSet<FqName>()
+        try {
+            ZipFile(jar.toFile()).use { zip ->
+                for (entry in zip.entries()) {
+                    val name = entry.name
+                    if (!name.endsWith(".class") || name.startsWith("META-INF")) {
+                        continue
+                    }
+                    val index = name.lastIndexOf('/')
+                    packages.add(if (index == -1) FqName.ROOT else FqName(name.substring(0, index).replace('/', '.')))
+                }
+            }
+        } catch (e: IOException) {
+            Log.w("SymbolIndex", "Unable to read $jar", e)
+        }
+        return packages
+    }
+
+    private fun allDescriptors(module: ModuleDescriptor, packages: Collection<FqName>): Sequence<DeclarationDescriptor> = packages
+        .asSequence()
         .map(module::getPackage)
         .flatMap {
             try {
@@ -123,8 +201,51 @@ class SymbolIndex {
             }
         }
 
-    private fun allPackages(module: ModuleDescriptor, pkgName: FqName = FqName.ROOT) : Sequence<FqName> = module
-        .getSubPackagesOf(pkgName) { it.toString()  != "META-INF"}
-        .asSequence()
-        .flatMap { sequenceOf(it) + allPackages(module, it) }
-}
\ No newline at end of file
+    private fun getStamp(jar: Path): String {
+        val file = jar.toFile()
+        return "${file.length()}:${file.lastModified()}"
+    }
+
+    private fun getCacheFile(jar: Path, stamp: String): File {
+        val key = jar.toString() + ':' + stamp
+        val fileName = UUID.nameUUIDFromBytes(key.toByteArray()).toString() + ".idx"
+        return File(File(ApplicationPaths.getCacheDir(), CACHE_DIRECTORY), fileName)
+    }
+
+    private fun readTable(jar: Path, stamp: String): SymbolTable? {
+        val file = getCacheFile(jar, stamp)
+        if (!file.exists()) {
+            return null
+        }
+        return try {
+            DataInputStream(BufferedInputStream(FileInputStream(file))).use { input ->
+                if (input.readInt() != FORMAT_VERSION) null else SymbolTable.read(input)
+            }
+        } catch (e: IOException) {
+            // the cache is corrupted, the jar is indexed again
+            null
+        }
+    }
+
+    private fun writeTable(jar: Path, stamp: String, table: SymbolTable) {
+        val file = getCacheFile(jar, stamp)
+        val temp = File(file.path + ".tmp")
+        try {
+            val parent = file.parentFile
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw IOException("Unable to create $parent")
+            }
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temp))).use { output ->
+                output.writeInt(FORMAT_VERSION)
+                table.write(output)
+            }
+            if (!temp.renameTo(file)) {
+                throw IOException("Unable to write $file")
+            }
+        } catch (e: IOException) {
+            // ignored, the jar will be indexed again next time
+            temp.delete()
+            Log.w("SymbolIndex", "Unable to save the index of $jar", e)
+        }
+    }
+}
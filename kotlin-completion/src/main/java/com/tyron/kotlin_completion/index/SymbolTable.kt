@@ -0,0 +1,112 @@
+package com.tyron.kotlin_completion.index
+
+import org.jetbrains.kotlin.name.FqName
+import java.io.DataInput
+import java.io.DataOutput
+
+/**
+ * The symbols declared by a single classpath entry or source file.
+ *
+ * The symbols are sorted by their short name so a prefix search is a binary search followed
+ * by a scan of the matching range. Extensions are kept in their own sorted tables by the
+ * fully qualified name of their receiver type.
+ */
+class SymbolTable private constructor(
+    private val symbols: Sorted,
+    private val extensions: Map<FqName, Sorted>
+) {
+
+    val size: Int
+        get() = symbols.size + extensions.values.sumOf { it.size }
+
+    /**
+     * Adds the symbols whose short name starts with [prefix] and whose extension receiver
+     * type is [receiverType] to [result], until [result] has [limit] items.
+     */
+    fun search(prefix: String, receiverType: FqName?, limit: Int, result: MutableList<Symbol>) {
+        val table = if (receiverType == null) symbols else extensions[receiverType] ?: return
+        table.search(prefix, limit, result)
+    }
+
+    fun write(output: DataOutput) {
+        output.writeInt(size)
+        symbols.write(output)
+        extensions.values.forEach { it.write(output) }
+    }
+
+    private class Sorted(symbols: List<Symbol>) {
+        private val names: Array<String>
+        private val symbols: Array<Symbol>
+
+        init {
+            val sorted = symbols.sortedBy { it.fqName.shortName().asString() }
+            this.symbols = sorted.toTypedArray()
+            this.names = Array(sorted.size) { sorted[it].fqName.shortName().asString() }
+        }
+
+        val size: Int
+            get() = symbols.size
+
+        fun search(prefix: String, limit: Int, result: MutableList<Symbol>) {
+            var index = lowerBound(prefix)
+            while (index < names.size && result.size < limit && names[index].startsWith(prefix)) {
+                result.add(symbols[index])
+                index++
+            }
+        }
+
+        private fun lowerBound(prefix: String): Int {
+            var low = 0
+            var high = names.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (names[mid] < prefix) {
+                    low = mid + 1
+                } else {
+                    high = mid
+                }
+            }
+            return low
+        }
+
+        fun write(output: DataOutput) {
+            for (symbol in symbols) {
+                output.writeUTF(symbol.fqName.asString())
+                output.writeByte(symbol.kind.rawValue)
+                output.writeByte(symbol.visibility.rawValue)
+                output.writeUTF(symbol.extensionReceiverType?.asString() ?: "")
+            }
+        }
+    }
+
+    companion object {
+
+        fun create(symbols: Collection<Symbol>): SymbolTable {
+            val (extensions, others) = symbols.partition { it.extensionReceiverType != null }
+            return SymbolTable(
+                Sorted(others),
+                extensions.groupBy { it.extensionReceiverType!! }.mapValues { Sorted(it.value) }
+            )
+        }
+
+        fun read(input: DataInput): SymbolTable {
+            val count = input.readInt()
+            val symbols = ArrayList<Symbol>(count)
+            repeat(count) {
+                val fqName = FqName(input.readUTF())
+                val kind = Symbol.Kind.fromRaw(input.readByte().toInt())
+                val visibility = Symbol.Visibility.fromRaw(input.readByte().toInt())
+                val receiverType = input.readUTF()
+                symbols.add(
+                    Symbol(
+                        fqName = fqName,
+                        kind = kind,
+                        visibility = visibility,
+                        extensionReceiverType = if (receiverType.isEmpty()) null else FqName(receiverType)
+                    )
+                )
+            }
+            return create(symbols)
+        }
+    }
+}
@@ -1,29 +1,82 @@
 package com.tyron.layoutpreview;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.flipkart.android.proteus.ProteusContext;
 import com.flipkart.android.proteus.value.DrawableValue;
 import com.flipkart.android.proteus.value.Layout;
 import com.flipkart.android.proteus.value.Value;
+import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.builder.project.api.FileManager;
+import com.tyron.code.event.SubscriptionReceipt;
+import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
 import com.tyron.layoutpreview.resource.ResourceDrawableParser;
 import com.tyron.layoutpreview.resource.ResourceLayoutParser;
-import com.tyron.layoutpreview.resource.ResourceStringParser;
+import com.tyron.vectorparser.VectorDrawableCache;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
+/**
+ * Resolves the drawables and layouts used by the layout preview.
+ *
+ * Resources are parsed only when the preview asks for them, the parsed values are kept in a
+ * bounded cache and dropped when their file changes. Only the names of the files in the
+ * drawable and layout folders are listed up front.
+ */
 public class ResourceManager {
 
+    private static final int MAX_DRAWABLES = 64;
+    private static final int MAX_LAYOUTS = 32;
+
+    private static final String DRAWABLE_FOLDER = "drawable";
+    private static final String LAYOUT_FOLDER = "layout";
+    private static final String VALUES_FOLDER = "values";
+
     private final AndroidModule mAndroidModule;
     private final ProteusContext mContext;
     private final FileManager mFileManager;
 
+    private final Map<String, DrawableValue> mDrawables = createCache(MAX_DRAWABLES);
+    private final Map<String, Layout> mLayouts = createCache(MAX_LAYOUTS);
+
+    /**
+     * The files of each resource by its name, the resource directories of the module come
+     * before the ones of the libraries so they take precedence.
+     */
+    private Map<String, File> mDrawableFiles;
+    private Map<String, File> mLayoutFiles;
+
+    private SubscriptionReceipt<XmlResourceChangeEvent> mReceipt;
+
     public ResourceManager(ProteusContext context, AndroidModule module, FileManager fileManager) {
         mAndroidModule = module;
         mContext = context;
         mFileManager = fileManager;
+
+        Project project = getProject(module);
+        if (project != null) {
+            mReceipt = project.getEventManager().subscribeEvent(XmlResourceChangeEvent.class,
+                    (event, unsubscribe) -> invalidate(event.getFile()));
+        }
+    }
+
+    @Nullable
+    private static Project getProject(AndroidModule module) {
+        try {
+            return module.getProject();
+        } catch (UnsupportedOperationException e) {
+            // the module is not part of a project, e.g. in tests
+            return null;
+        }
     }
 
     /**
@@ -34,11 +87,122 @@ public class ResourceManager {
         return Collections.emptyMap();
     }
 
-    public Map<String, DrawableValue> getDrawables() {
-        ResourceDrawableParser parser = new ResourceDrawableParser(mContext, mAndroidModule.getAndroidResourcesDirectory(),
-                mFileManager);
-        Map<String, DrawableValue> defaultDrawables = parser.getDefaultDrawables();
+    @Nullable
+    public synchronized DrawableValue getDrawable(@NonNull String name) {
+        DrawableValue value = mDrawables.get(name);
+        if (value != null) {
+            return value;
+        }
+        File file = getDrawableFiles().get(name);
+        if (file == null) {
+            return null;
+        }
+        ResourceDrawableParser parser =
+                new ResourceDrawableParser(mContext, file.getParentFile().getParentFile(), mFileManager);
+        value = parser.parseDrawable(file);
+        if (value != null) {
+            mDrawables.put(name, value);
+        }
+        return value;
+    }
+
+    @Nullable
+    public synchronized Layout getLayout(@NonNull String name) {
+        Layout layout = mLayouts.get(name);
+        if (layout != null) {
+            return layout;
+        }
+        File file = getLayoutFiles().get(name);
+        if (file == null) {
+            return null;
+        }
+        ResourceLayoutParser parser =
+                new ResourceLayoutParser(mContext, file.getParentFile().getParentFile(), mFileManager);
+        layout = parser.parseLayoutFile(file);
+        if (layout != null) {
+            mLayouts.put(name, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Drop the cached values of the given file, the next request parses it again.
+     */
+    public synchronized void invalidate(@Nullable File file) {
+        if (file == null) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent == null) {
+            return;
+        }
+        String name = getName(file);
+        if (DRAWABLE_FOLDER.equals(parent.getName())) {
+            mDrawables.remove(name);
+            if (mDrawableFiles != null && !file.equals(mDrawableFiles.get(name))) {
+                // a file may have been added or removed, list the folders again
+                mDrawableFiles = null;
+            }
+        } else if (LAYOUT_FOLDER.equals(parent.getName())) {
+            mLayouts.remove(name);
+            if (mLayoutFiles != null && !file.equals(mLayoutFiles.get(name))) {
+                mLayoutFiles = null;
+            }
+        } else if (parent.getName().startsWith(VALUES_FOLDER)) {
+            // parsed vectors have their color and dimension references resolved
+            clearCaches();
+        }
+        if (!file.exists()) {
+            mDrawableFiles = null;
+            mLayoutFiles = null;
+        }
+    }
+
+    /**
+     * Stop listening for file changes, the cached values are released. The shared vector
+     * caches are kept since other previews of the project may still use them, see
+     * {@link #clearCaches()}.
+     */
+    public synchronized void dispose() {
+        if (mReceipt != null) {
+            mReceipt.unsubscribe();
+            mReceipt = null;
+        }
+        mDrawables.clear();
+        mLayouts.clear();
+        mDrawableFiles = null;
+        mLayoutFiles = null;
+    }
+
+    /**
+     * Releases the parsed vectors and their bitmaps, these are shared by all the previews so
+     * this should be called when the project they were parsed from is closed.
+     */
+    public static void clearCaches() {
+        VectorDrawableCache.getInstance().clear();
+    }
+
+    private Map<String, File> getDrawableFiles() {
+        if (mDrawableFiles == null) {
+            mDrawableFiles = listFiles(getResourceDirectories(), DRAWABLE_FOLDER,
+                    file -> isImageFile(file) || file.getName().endsWith(".xml"));
+        }
+        return mDrawableFiles;
+    }
 
+    private Map<String, File> getLayoutFiles() {
+        if (mLayoutFiles == null) {
+            List<File> directories =
+                    Collections.singletonList(mAndroidModule.getAndroidResourcesDirectory());
+            mLayoutFiles = listFiles(directories, LAYOUT_FOLDER,
+                    file -> file.getName().endsWith(".xml"));
+        }
+        return mLayoutFiles;
+    }
+
+    private List<File> getResourceDirectories() {
+        List<File> directories = new ArrayList<>();
+        directories.add(mAndroidModule.getAndroidResourcesDirectory());
         for (File library : mAndroidModule.getLibraries()) {
             File parent = library.getParentFile();
             if (parent == null) {
@@ -47,17 +211,47 @@ public class ResourceManager {
 
             File resourcesDir = new File(parent, "res");
             if (resourcesDir.exists()) {
-                parser = new ResourceDrawableParser(mContext, resourcesDir, mFileManager);
-                defaultDrawables.putAll(parser.getDefaultDrawables());
+                directories.add(resourcesDir);
+            }
+        }
+        return directories;
+    }
+
+    private static Map<String, File> listFiles(List<File> resourceDirectories,
+                                               String folderName,
+                                               Function<File, Boolean> filter) {
+        Map<String, File> files = new HashMap<>();
+        for (File resourceDirectory : resourceDirectories) {
+            File[] children = new File(resourceDirectory, folderName).listFiles();
+            if (children == null) {
+                continue;
+            }
+            for (File child : children) {
+                if (filter.apply(child)) {
+                    files.putIfAbsent(getName(child), child);
+                }
             }
         }
+        return files;
+    }
 
-        return defaultDrawables;
+    private static boolean isImageFile(File file) {
+        String n = file.getName();
+        return n.endsWith(".png") || n.endsWith(".jpg") || n.endsWith(".jpeg");
     }
 
-    public Map<String, Layout> getLayouts() {
-        ResourceLayoutParser parser = new ResourceLayoutParser(mContext, mAndroidModule.getAndroidResourcesDirectory(), mFileManager);
-        return parser.getLayouts();
+    private static String getName(File file) {
+        String name = file.getName();
+        int index = name.lastIndexOf('.');
+        return index == -1 ? name : name.substring(0, index);
     }
 
+    private static <V> Map<String, V> createCache(int maxSize) {
+        return new LinkedHashMap<String, V>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
 }
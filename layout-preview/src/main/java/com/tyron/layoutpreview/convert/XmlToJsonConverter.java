@@ -5,6 +5,10 @@ import android.util.Pair;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import org.eclipse.lemminx.dom.DOMAttr;
+import org.eclipse.lemminx.dom.DOMDocument;
+import org.eclipse.lemminx.dom.DOMElement;
+import org.eclipse.lemminx.dom.DOMNode;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -59,6 +63,46 @@ public class XmlToJsonConverter {
         return convert(parser);
     }
 
+    /**
+     * Converts an already parsed document, e.g. the document of a file being edited that is
+     * shared with the completion
+     *
+     * @throws ConvertException if the document has no root element
+     */
+    public JsonObject convert(DOMDocument document) throws ConvertException {
+        DOMElement root = document.getDocumentElement();
+        if (root == null) {
+            throw new ConvertException(document.getDocumentURI() + ": No start tag found!");
+        }
+        return convert(root);
+    }
+
+    public JsonObject convert(DOMElement element) {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", element.getTagName());
+
+        List<DOMAttr> attributes = element.getAttributeNodes();
+        if (attributes != null) {
+            for (DOMAttr attribute : attributes) {
+                if (mAttributesToSkip.contains(attribute.getName()) || attribute.getValue() == null) {
+                    continue;
+                }
+                json.addProperty(attribute.getName(), attribute.getValue());
+            }
+        }
+
+        JsonArray children = new JsonArray();
+        for (DOMNode child : element.getChildren()) {
+            if (child.isElement()) {
+                children.add(convert((DOMElement) child));
+            }
+        }
+        if (children.size() > 0) {
+            json.add("children", children);
+        }
+        return json;
+    }
+
     public JsonObject convert(XmlPullParser parser) throws IOException, XmlPullParserException, ConvertException {
 
         JsonObject json = parseXmlElement(parser);
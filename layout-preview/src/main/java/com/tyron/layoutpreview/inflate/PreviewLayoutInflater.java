@@ -38,6 +38,7 @@ import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
 import com.tyron.layoutpreview.manager.ResourceDrawableManager;
 import com.tyron.layoutpreview.manager.ResourceLayoutManager;
 import com.tyron.layoutpreview.resource.ResourceValueParser;
+import com.tyron.vectorparser.VectorDrawableCache;
 
 import java.io.File;
 import java.io.IOException;
@@ -125,6 +126,7 @@ public class PreviewLayoutInflater {
     private final ResourceValueParser mParser = new ResourceValueParser();
     private final ResourceDrawableManager mDrawableManager = new ResourceDrawableManager();
     private final ResourceLayoutManager mLayoutManager = new ResourceLayoutManager();
+    private ResourceManager mResourceManager;
 
     private ProteusLayoutInflater.ImageLoader mImageLoader = (view, name, callback) -> {
         if (name.startsWith("@drawable")) {
@@ -161,15 +163,24 @@ public class PreviewLayoutInflater {
         ProteusTypeAdapterFactory.PROTEUS_INSTANCE_HOLDER.setProteus(mProteus);
 
         mParser.setProteusContext(mContext);
+
+        // icons are drawn many times while the preview is scrolled and inflated again
+        VectorDrawableCache cache = VectorDrawableCache.getInstance();
+        if (!cache.isRasterCacheEnabled()) {
+            cache.setRasterCacheSize((int) (Runtime.getRuntime().maxMemory() / 16));
+        }
     }
 
     public CompletableFuture<PreviewLayoutInflater> parseResources(Executor executor) {
         return CompletableFuture.supplyAsync(() -> {
-            ResourceManager resourceManager = new ResourceManager(mContext,
+            if (mResourceManager != null) {
+                mResourceManager.dispose();
+            }
+            // drawables and layouts are parsed when the preview first uses them
+            mResourceManager = new ResourceManager(mContext,
                     mProject, mProject.getFileManager());
-            mDrawableManager.setDrawables(resourceManager.getDrawables());
-            mLayoutManager.setLayouts(resourceManager.getLayouts());
-
+            mDrawableManager.setResourceManager(mResourceManager);
+            mLayoutManager.setResourceManager(mResourceManager);
 
             mParser.parse(mProject);
 
@@ -200,6 +211,18 @@ public class PreviewLayoutInflater {
         }, executor);
     }
 
+    /**
+     * Releases the resources parsed for the preview, the inflater should not be used after this
+     */
+    public void dispose() {
+        if (mResourceManager != null) {
+            mResourceManager.dispose();
+            mResourceManager = null;
+        }
+        mDrawableManager.setResourceManager(null);
+        mLayoutManager.setResourceManager(null);
+    }
+
     @NonNull
     public ProteusContext getContext() {
         return mContext;
@@ -1,9 +1,11 @@
 package com.tyron.layoutpreview.manager;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.flipkart.android.proteus.DrawableManager;
 import com.flipkart.android.proteus.value.DrawableValue;
+import com.tyron.layoutpreview.ResourceManager;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -12,12 +14,33 @@ public class ResourceDrawableManager extends DrawableManager {
 
     private final Map<String, DrawableValue> mDrawables = new HashMap<>();
 
+    @Nullable
+    private ResourceManager mResourceManager;
+
     public void setDrawables(@NonNull Map<String, DrawableValue> map) {
         mDrawables.clear();
         mDrawables.putAll(map);
     }
+
+    /**
+     * Resolve the drawables that are not set through {@link #setDrawables(Map)} from the
+     * given resource manager when they are first used
+     */
+    public void setResourceManager(@Nullable ResourceManager resourceManager) {
+        mResourceManager = resourceManager;
+    }
+
     @Override
     protected Map<String, DrawableValue> getDrawables() {
         return mDrawables;
     }
+
+    @Override
+    public DrawableValue get(String name) {
+        DrawableValue value = mDrawables.get(name);
+        if (value == null && mResourceManager != null) {
+            value = mResourceManager.getDrawable(name);
+        }
+        return value;
+    }
 }
@@ -1,9 +1,11 @@
 package com.tyron.layoutpreview.manager;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.flipkart.android.proteus.LayoutManager;
 import com.flipkart.android.proteus.value.Layout;
+import com.tyron.layoutpreview.ResourceManager;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -12,6 +14,9 @@ public class ResourceLayoutManager extends LayoutManager {
 
     private final Map<String, Layout> mLayouts = new HashMap<>();
 
+    @Nullable
+    private ResourceManager mResourceManager;
+
     @Nullable
     @Override
     protected Map<String, Layout> getLayouts() {
@@ -22,4 +27,22 @@ public class ResourceLayoutManager extends LayoutManager {
         mLayouts.clear();
         mLayouts.putAll(map);
     }
+
+    /**
+     * Resolve the layouts that are not set through {@link #setLayouts(Map)} from the
+     * given resource manager when they are first used
+     */
+    public void setResourceManager(@Nullable ResourceManager resourceManager) {
+        mResourceManager = resourceManager;
+    }
+
+    @Nullable
+    @Override
+    public Layout get(@NonNull String name) {
+        Layout layout = mLayouts.get(name);
+        if (layout == null && mResourceManager != null) {
+            layout = mResourceManager.getLayout(name);
+        }
+        return layout;
+    }
 }
@@ -10,13 +10,12 @@ import com.flipkart.android.proteus.value.Value;
 import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
 import com.tyron.builder.project.api.FileManager;
+import com.tyron.completion.xml.util.XmlDocumentCache;
 import com.tyron.layoutpreview.BuildConfig;
 import com.tyron.layoutpreview.convert.ConvertException;
 import com.tyron.layoutpreview.convert.XmlToJsonConverter;
 import com.tyron.layoutpreview.convert.adapter.ProteusTypeAdapterFactory;
 
-import org.xmlpull.v1.XmlPullParserException;
-
 import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
@@ -32,20 +31,41 @@ public class ResourceLayoutParser {
     private final File mResourceDirectory;
     private final FileManager mFileManager;
 
-    private final Map<String, Layout> layoutMap = new HashMap<>();
+    private Map<String, Layout> layoutMap;
 
     public ResourceLayoutParser(ProteusContext context, File dir, FileManager fileManager) {
         mContext = context;
         mResourceDirectory = dir;
         mFileManager = fileManager;
-
-        layoutMap.putAll(getDefaultLayouts());
     }
 
     public Map<String, Layout> getLayouts() {
+        if (layoutMap == null) {
+            layoutMap = getDefaultLayouts();
+        }
         return layoutMap;
     }
 
+    /**
+     * Parses a single layout file
+     *
+     * @return The layout, or null if the file can't be parsed
+     */
+    @Nullable
+    public Layout parseLayoutFile(File file) {
+        try {
+            Value layout = parseLayout(file);
+            if (layout != null && layout.isLayout()) {
+                return layout.getAsLayout();
+            }
+        } catch (IOException | ConvertException e) {
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Unable to parse file: " + file.getName(), e);
+            }
+        }
+        return null;
+    }
+
     private Map<String, Layout> getDefaultLayouts() {
         File defaultValues = new File(mResourceDirectory, "layout");
         File[] xmlFiles = defaultValues.listFiles(c -> c.getName().endsWith(".xml"));
@@ -56,28 +76,26 @@ public class ResourceLayoutParser {
         Map<String, Layout> map = new HashMap<>();
 
         for (File file : xmlFiles) {
-            try {
-                Value layout = parseLayout(file);
-                if (layout != null && layout.isLayout()) {
-                    map.put(getName(file), layout.getAsLayout());
-                }
-            } catch (IOException | XmlPullParserException | ConvertException e) {
-                if (BuildConfig.DEBUG) {
-                    Log.d(TAG, "Unable to parse file: " + file.getName(), e);
-                }
+            Layout layout = parseLayoutFile(file);
+            if (layout != null) {
+                map.put(getName(file), layout);
             }
         }
 
         return map;
     }
 
+    /**
+     * Parses the layout from the contents of the file manager, the parsed document of a file
+     * open in the editor is shared with the completion.
+     */
     @Nullable
-    private Value parseLayout(File file) throws ConvertException, XmlPullParserException, IOException {
+    private Value parseLayout(File file) throws ConvertException, IOException {
         Optional<CharSequence> fileContent = mFileManager.getFileContent(file);
         if (fileContent.isPresent()) {
             String contents = fileContent.get().toString();
             JsonObject jsonObject = new XmlToJsonConverter()
-                    .convert(contents);
+                    .convert(XmlDocumentCache.getDocument(file, contents));
             return new ProteusTypeAdapterFactory(mContext).VALUE_TYPE_ADAPTER
                     .read(new JsonReader(new StringReader(jsonObject.toString())), false);
         }
@@ -21,8 +21,12 @@ import org.eclipse.lemminx.dom.DOMElement;
 import org.eclipse.lemminx.dom.DOMNode;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -95,6 +99,215 @@ public class EditorInflater {
         return result;
     }
 
+    /**
+     * Updates a view tree inflated from {@code previous} so it matches {@code document}.
+     *
+     * Only the differences between the two documents are applied, views of the elements that
+     * are still present are reused and only their changed attributes are applied again.
+     * Elements that were inserted are inflated and elements that were removed are detached
+     * from their parent. The tree is inflated again only if the root element cannot be reused.
+     *
+     * @param root     The view returned by {@link #inflate(DOMDocument, ViewGroup, boolean)}
+     *                 or by a previous update
+     * @param previous The document the view tree was inflated from
+     * @param document The new document
+     * @return The root view of the updated tree, this is a new view if the tree has been
+     * inflated again
+     */
+    public View update(@NonNull View root,
+                       @NonNull DOMDocument previous,
+                       @NonNull DOMDocument document) {
+        DOMElement previousRoot = getRootElement(previous);
+        DOMElement newRoot = getRootElement(document);
+        if (previousRoot == null
+            || newRoot == null
+            || !(root instanceof EditorView)
+            || !getNamespaceDeclarations(previousRoot).equals(getNamespaceDeclarations(newRoot))) {
+            // the prefixes of the attributes may resolve to different namespaces
+            return inflate(document, null, false);
+        }
+
+        final Object lastContext = mConstructorArgs[0];
+        mConstructorArgs[0] = mContext;
+        try {
+            View updated = updateElement((EditorView) root, previousRoot, newRoot);
+            if (updated == null) {
+                return inflate(document, null, false);
+            }
+            return updated;
+        } finally {
+            mConstructorArgs[0] = lastContext;
+        }
+    }
+
+    /**
+     * @return The view of the element, or null if the view cannot be updated to match
+     * the new element and has to be inflated again
+     */
+    @Nullable
+    private View updateElement(@NonNull EditorView editorView,
+                               @NonNull DOMElement previous,
+                               @NonNull DOMElement element) {
+        if (!Objects.equals(previous.getTagName(), element.getTagName())) {
+            return null;
+        }
+        if (SdkConstants.VIEW_TAG.equals(element.getTagName())
+            && !Objects.equals(previous.getAttributeNS(null, "class"),
+                               element.getAttributeNS(null, "class"))) {
+            return null;
+        }
+
+        Map<String, String> previousValues = new HashMap<>();
+        for (DOMAttr attr : getAttributes(previous)) {
+            previousValues.put(attr.getName(), attr.getValue());
+        }
+        List<DOMAttr> attrs = getAttributes(element);
+        List<DOMAttr> changed = new ArrayList<>();
+        for (DOMAttr attr : attrs) {
+            String previousValue = previousValues.remove(attr.getName());
+            if (previousValue == null || !previousValue.equals(attr.getValue())) {
+                changed.add(attr);
+            }
+        }
+        if (!previousValues.isEmpty()) {
+            // attributes can't be reverted to their default value, create the view again
+            return null;
+        }
+
+        View view = editorView.getAsView();
+        if (view instanceof ViewGroup) {
+            updateChildren((ViewGroup) view, previous, element);
+        }
+        if (!changed.isEmpty()) {
+            editorView.getViewManager().updateAttributes(attrs, changed);
+        }
+        return view;
+    }
+
+    private void updateChildren(@NonNull ViewGroup parent,
+                                @NonNull DOMElement previous,
+                                @NonNull DOMElement element) {
+        // the children of the view group are in the same order as the previous elements
+        List<DOMElement> previousChildren = getChildElements(previous);
+        List<View> previousViews = new ArrayList<>();
+        for (int i = 0; i < previousChildren.size() && i < parent.getChildCount(); i++) {
+            previousViews.add(parent.getChildAt(i));
+        }
+
+        List<DOMElement> children = getChildElements(element);
+        DOMElement[] matches = new DOMElement[children.size()];
+        boolean[] used = new boolean[previousViews.size()];
+        int[] matchedIndex = new int[children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            matchedIndex[i] = findMatch(children.get(i), previousChildren, used);
+            if (matchedIndex[i] != -1) {
+                matches[i] = previousChildren.get(matchedIndex[i]);
+                used[matchedIndex[i]] = true;
+            }
+        }
+
+        for (int i = 0; i < previousViews.size(); i++) {
+            if (!used[i]) {
+                parent.removeView(previousViews.get(i));
+            }
+        }
+
+        for (int i = 0; i < children.size(); i++) {
+            DOMElement child = children.get(i);
+            View childView = null;
+            if (matches[i] != null) {
+                View previousView = previousViews.get(matchedIndex[i]);
+                if (previousView instanceof EditorView) {
+                    childView = updateElement((EditorView) previousView, matches[i], child);
+                }
+                if (childView == null) {
+                    parent.removeView(previousView);
+                }
+            }
+
+            if (childView == null) {
+                inflateChild(parent, child, i);
+            } else if (parent.getChildAt(i) != childView) {
+                // moved, the view keeps its layout params
+                parent.removeView(childView);
+                parent.addView(childView, i);
+            }
+        }
+    }
+
+    /**
+     * Finds the previous element that the given element corresponds to. Elements with an id
+     * match the previous element with the same id, the other elements match the first unused
+     * previous element without an id that has the same tag.
+     */
+    private static int findMatch(@NonNull DOMElement element,
+                                 @NonNull List<DOMElement> previousElements,
+                                 boolean[] used) {
+        String id = getId(element);
+        for (int i = 0; i < previousElements.size(); i++) {
+            if (used[i]) {
+                continue;
+            }
+            DOMElement previous = previousElements.get(i);
+            if (Objects.equals(id, getId(previous))
+                && Objects.equals(element.getTagName(), previous.getTagName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Nullable
+    private static String getId(@NonNull DOMElement element) {
+        for (DOMAttr attr : getAttributes(element)) {
+            if (SdkConstants.ATTR_ID.equals(attr.getLocalName())) {
+                return attr.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> getNamespaceDeclarations(@NonNull DOMElement element) {
+        Map<String, String> declarations = new HashMap<>();
+        for (DOMAttr attr : getAttributes(element)) {
+            if (attr.isXmlns()) {
+                declarations.put(attr.getName(), attr.getValue());
+            }
+        }
+        return declarations;
+    }
+
+    @NonNull
+    private static List<DOMAttr> getAttributes(@NonNull DOMElement element) {
+        List<DOMAttr> attrs = element.getAttributeNodes();
+        return attrs == null ? Collections.emptyList() : attrs;
+    }
+
+    @NonNull
+    private static List<DOMElement> getChildElements(@NonNull DOMElement element) {
+        List<DOMNode> children = element.getChildren();
+        if (children == null || children.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return children.stream()
+                .filter(it -> it instanceof DOMElement)
+                .map(it -> (DOMElement) it)
+                .collect(Collectors.toList());
+    }
+
+    @Nullable
+    private static DOMElement getRootElement(@NonNull DOMDocument document) {
+        List<DOMNode> roots = DOMUtils.getRootElements(document);
+        if (roots.size() != 1 || !(roots.get(0) instanceof DOMElement)) {
+            return null;
+        }
+        DOMElement root = (DOMElement) roots.get(0);
+        if (SdkConstants.VIEW_MERGE.equals(root.getTagName())) {
+            return null;
+        }
+        return root;
+    }
+
     void rInflateChildren(@NonNull DOMElement element,
                           @NonNull View parent,
                           boolean finishInflate) {
@@ -123,17 +336,20 @@ public class EditorInflater {
             } else if (SdkConstants.VIEW_MERGE.equals(tag)) {
                 throw new UnsupportedOperationException("TODO");
             } else {
-                final EditorView view = createViewFromTag(parent, element, context);
-                final ViewGroup viewGroup = (ViewGroup) parent;
-                final ViewGroup.LayoutParams params = ViewGroupUtils.generateDefaultLayoutParams(viewGroup);
-                rInflateChildren(element, view.getAsView(), true);
-                viewGroup.addView(view.getAsView(), params);
-
-                view.getViewManager().updateAttributes(element.getAttributeNodes());
+                inflateChild((ViewGroup) parent, element, -1);
             }
         }
     }
 
+    private void inflateChild(@NonNull ViewGroup parent, @NonNull DOMElement element, int index) {
+        final EditorView view = createViewFromTag(parent, element, parent.getContext());
+        final ViewGroup.LayoutParams params = ViewGroupUtils.generateDefaultLayoutParams(parent);
+        rInflateChildren(element, view.getAsView(), true);
+        parent.addView(view.getAsView(), index, params);
+
+        view.getViewManager().updateAttributes(element.getAttributeNodes());
+    }
+
 
     public EditorView createViewFromTag(@Nullable View parent,
                                   @NonNull DOMElement element,
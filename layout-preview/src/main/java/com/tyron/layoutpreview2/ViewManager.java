@@ -26,4 +26,13 @@ public interface ViewManager {
      * @param attrs the attributes
      */
     void updateAttributes(@NonNull List<DOMAttr> attrs);
+
+    /**
+     * Applies only the attributes that changed since the last update, the other attributes
+     * are expected to be already applied to the view
+     *
+     * @param attrs   all the attributes of the view
+     * @param changed the attributes that were added or whose value has changed
+     */
+    void updateAttributes(@NonNull List<DOMAttr> attrs, @NonNull List<DOMAttr> changed);
 }
@@ -47,6 +47,21 @@ public class ViewManagerImpl implements ViewManager {
         });
     }
 
+    @Override
+    public void updateAttributes(@NonNull List<DOMAttr> attrs, @NonNull List<DOMAttr> changed) {
+        mAppliedAttrs.clear();
+        mAppliedAttrs.addAll(attrs);
+
+        final EditorContext editorContext = EditorContext.getEditorContext(mView.getContext());
+        final ImmutableSet<AttributeApplier> attributeAppliers =
+                editorContext.getAttributeAppliers();
+        attributeAppliers.forEach(applier -> {
+            if (applier.accept(getView())) {
+                changed.forEach(attr -> applier.apply(getView(), attr));
+            }
+        });
+    }
+
     @VisibleForTesting
     public Set<DOMAttr> getAppliedAttrs() {
         return mAppliedAttrs;
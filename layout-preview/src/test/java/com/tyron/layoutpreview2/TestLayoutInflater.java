@@ -102,4 +102,27 @@ public class TestLayoutInflater {
         TextView textView = ((TextView) child);
         assert "TEST".equals(textView.getText().toString()) : textView.getText().toString();
     }
+
+    @Test
+    public void testUpdate() {
+        DOMDocument document = DOMParser.getInstance().parse(TEST_LAYOUT, "", null);
+        DOMUtils.setNamespace(document, ResourceNamespace.fromPackageName("com.tyron.test"));
+        LinearLayout root = (LinearLayout) mInflater.inflate(document, null, false);
+        View textView = root.getChildAt(0);
+
+        String changed = TEST_LAYOUT.replace("@string/app_name", "Changed")
+                .replace("</LinearLayout>", "    <TextView\n" +
+                                            "        android:layout_width=\"wrap_content\"\n" +
+                                            "        android:layout_height=\"wrap_content\"/>\n" +
+                                            "</LinearLayout>");
+        DOMDocument newDocument = DOMParser.getInstance().parse(changed, "", null);
+        DOMUtils.setNamespace(newDocument, ResourceNamespace.fromPackageName("com.tyron.test"));
+
+        View updated = mInflater.update(root, document, newDocument);
+        assert updated == root : "The root view should be reused";
+        assert root.getChildCount() == 2;
+        assert root.getChildAt(0) == textView : "The existing view should be reused";
+        assert "Changed".equals(((TextView) textView).getText().toString());
+        assert root.getChildAt(1) instanceof TextView;
+    }
 }
@@ -1,5 +1,6 @@
 package com.tyron.vectorparser;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.Matrix;
@@ -45,14 +46,30 @@ public class DynamicVectorDrawable extends Drawable {
 
     private final ProteusContext mContext;
 
+    /**
+     * The key of the contents in the {@link VectorDrawableCache}
+     */
+    private String mCacheKey;
+
     public DynamicVectorDrawable(ProteusContext context) {
         mContext = context;
     }
 
     public void setContents(String contents) throws XmlPullParserException {
+        VectorDrawableCache cache = VectorDrawableCache.getInstance();
+        mCacheKey = VectorDrawableCache.createKey(contents, mContext);
+        VectorModel cached = cache.getModel(mCacheKey);
+        if (cached != null) {
+            vectorModel = cached;
+            return;
+        }
+
         mParser = XmlPullParserFactory.newInstance().newPullParser();
         mParser.setInput(new StringReader(contents));
         buildVectorModel();
+        mParser = null;
+
+        cache.putModel(mCacheKey, vectorModel);
     }
 
     private void buildVectorModel() {
@@ -263,6 +280,12 @@ public class DynamicVectorDrawable extends Drawable {
 
         setAlpha(Utils.getAlphaFromFloat(vectorModel.getAlpha()));
 
+        Bitmap bitmap = getRasterizedBitmap();
+        if (bitmap != null) {
+            canvas.drawBitmap(bitmap, left, top, null);
+            return;
+        }
+
         if (left != 0 || top != 0) {
             tempSaveCount = canvas.save();
             canvas.translate(left, top);
@@ -273,6 +296,26 @@ public class DynamicVectorDrawable extends Drawable {
         }
     }
 
+    /**
+     * @return The drawable drawn into a bitmap of the size of its bounds, or null if
+     * rasterized drawables are not cached
+     */
+    @Nullable
+    private Bitmap getRasterizedBitmap() {
+        VectorDrawableCache cache = VectorDrawableCache.getInstance();
+        if (mCacheKey == null || width <= 0 || height <= 0 || !cache.isRasterCacheEnabled()) {
+            return null;
+        }
+        int tint = vectorModel.getTint();
+        Bitmap bitmap = cache.getBitmap(mCacheKey, width, height, tint);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            vectorModel.drawPaths(new Canvas(bitmap), offsetX, offsetY, scaleX, scaleY);
+            cache.putBitmap(mCacheKey, width, height, tint, bitmap);
+        }
+        return bitmap;
+    }
+
     @Override
     public void setAlpha(int alpha) {
 
@@ -0,0 +1,126 @@
+package com.tyron.vectorparser;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tyron.vectorparser.model.VectorModel;
+
+/**
+ * Cache of the parsed vector drawables shared by all the {@link DynamicVectorDrawable}s.
+ *
+ * A vector is parsed once per contents and screen density, each drawable then works on its
+ * own copy of the parsed model so the path data is not tokenized again. Drawables can
+ * optionally be rasterized once per size and tint, the bitmaps are kept in a cache bounded
+ * by their size in bytes. The bitmap cache is disabled until a size is set with
+ * {@link #setRasterCacheSize(int)}. The cache outlives the previews, it should be
+ * {@link #clear() cleared} when the project the vectors came from is closed.
+ */
+public class VectorDrawableCache {
+
+    private static final int MAX_MODELS = 128;
+
+    private static final VectorDrawableCache sInstance = new VectorDrawableCache();
+
+    public static VectorDrawableCache getInstance() {
+        return sInstance;
+    }
+
+    private final LruCache<String, VectorModel> mModels = new LruCache<>(MAX_MODELS);
+
+    @Nullable
+    private LruCache<String, Bitmap> mBitmaps;
+
+    private VectorDrawableCache() {
+
+    }
+
+    /**
+     * @return The key of the vector with the given contents, the dimensions of a vector
+     * depend on the density of the context it is parsed with
+     */
+    @NonNull
+    public static String createKey(@NonNull String contents, @NonNull Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        return density + "\u0000" + contents;
+    }
+
+    /**
+     * @return A copy of the parsed model, or null if the vector has not been parsed yet
+     */
+    @Nullable
+    public VectorModel getModel(@NonNull String key) {
+        // the cached model is never scaled or drawn, copying it is safe on any thread
+        VectorModel model = mModels.get(key);
+        return model == null ? null : new VectorModel(model);
+    }
+
+    /**
+     * Saves a copy of the model, the model must not have been scaled yet.
+     */
+    public void putModel(@NonNull String key, @NonNull VectorModel model) {
+        mModels.put(key, new VectorModel(model));
+    }
+
+    /**
+     * Sets the maximum size of the rasterized drawables in bytes, 0 disables the bitmap cache.
+     * The bitmaps that are already cached are kept if the cache is enabled.
+     */
+    public synchronized void setRasterCacheSize(int maxBytes) {
+        if (maxBytes <= 0) {
+            mBitmaps = null;
+            return;
+        }
+        if (mBitmaps != null) {
+            if (mBitmaps.maxSize() != maxBytes) {
+                mBitmaps.resize(maxBytes);
+            }
+            return;
+        }
+        mBitmaps = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    public synchronized boolean isRasterCacheEnabled() {
+        return mBitmaps != null;
+    }
+
+    @Nullable
+    public synchronized Bitmap getBitmap(@NonNull String key, int width, int height, int tint) {
+        if (mBitmaps == null) {
+            return null;
+        }
+        return mBitmaps.get(createBitmapKey(key, width, height, tint));
+    }
+
+    public synchronized void putBitmap(@NonNull String key,
+                                       int width,
+                                       int height,
+                                       int tint,
+                                       @NonNull Bitmap bitmap) {
+        if (mBitmaps != null) {
+            mBitmaps.put(createBitmapKey(key, width, height, tint), bitmap);
+        }
+    }
+
+    /**
+     * Drop all the parsed vectors and bitmaps, e.g. when the resources they refer to change.
+     */
+    public synchronized void clear() {
+        mModels.evictAll();
+        if (mBitmaps != null) {
+            mBitmaps.evictAll();
+        }
+    }
+
+    private static String createBitmapKey(String key, int width, int height, int tint) {
+        return width + "x" + height + "#" + tint + "\u0000" + key;
+    }
+}
@@ -26,6 +26,21 @@ public class ClipPathModel {
         clipPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
     }
 
+    /**
+     * Creates a copy of the clip path that can be transformed independently of the original
+     */
+    public ClipPathModel(ClipPathModel other) {
+        name = other.name;
+        pathData = other.pathData;
+        originalPath = copy(other.originalPath);
+        path = copy(other.path);
+        clipPaint = new Paint(other.clipPaint);
+    }
+
+    private static Path copy(Path path) {
+        return path == null ? null : new Path(path);
+    }
+
     public void buildPath(boolean useLegacyParser) {
         originalPath = PathParser.doPath(pathData);
         path = new Path(originalPath);
@@ -39,6 +39,44 @@ public class GroupModel {
         clipPathModels = new ArrayList<>();
     }
 
+    /**
+     * Creates a copy of the group and all of its children
+     *
+     * @param parent The copy of the parent of the group, or null if it is a top level group
+     */
+    public GroupModel(GroupModel other, GroupModel parent) {
+        name = other.name;
+        rotation = other.rotation;
+        pivotX = other.pivotX;
+        pivotY = other.pivotY;
+        scaleX = other.scaleX;
+        scaleY = other.scaleY;
+        translateX = other.translateX;
+        translateY = other.translateY;
+
+        scaleMatrix = copy(other.scaleMatrix);
+        originalTransformMatrix = copy(other.originalTransformMatrix);
+        finalTransformMatrix = copy(other.finalTransformMatrix);
+        this.parent = parent;
+
+        groupModels = new ArrayList<>(other.groupModels.size());
+        for (GroupModel groupModel : other.groupModels) {
+            groupModels.add(new GroupModel(groupModel, this));
+        }
+        pathModels = new ArrayList<>(other.pathModels.size());
+        for (PathModel pathModel : other.pathModels) {
+            pathModels.add(new PathModel(pathModel));
+        }
+        clipPathModels = new ArrayList<>(other.clipPathModels.size());
+        for (ClipPathModel clipPathModel : other.clipPathModels) {
+            clipPathModels.add(new ClipPathModel(clipPathModel));
+        }
+    }
+
+    private static Matrix copy(Matrix matrix) {
+        return matrix == null ? null : new Matrix(matrix);
+    }
+
     public void drawPaths(Canvas canvas, float offsetX, float offsetY, float scaleX, float scaleY) {
         for (ClipPathModel clipPathModel : clipPathModels) {
             canvas.clipPath(clipPathModel.getScaledAndOffsetPath(offsetX, offsetY, scaleX, scaleY));
@@ -64,6 +64,38 @@ public class PathModel {
         updatePaint();
     }
 
+    /**
+     * Creates a copy of the path that can be scaled and painted independently of the original
+     */
+    public PathModel(PathModel other) {
+        name = other.name;
+        fillAlpha = other.fillAlpha;
+        fillColor = other.fillColor;
+        fillType = other.fillType;
+        pathData = other.pathData;
+        trimPathStart = other.trimPathStart;
+        trimPathEnd = other.trimPathEnd;
+        trimPathOffset = other.trimPathOffset;
+        strokeAlpha = other.strokeAlpha;
+        strokeColor = other.strokeColor;
+        strokeLineCap = other.strokeLineCap;
+        strokeLineJoin = other.strokeLineJoin;
+        strokeMiterLimit = other.strokeMiterLimit;
+        strokeWidth = other.strokeWidth;
+        strokeRatio = other.strokeRatio;
+        isFillAndStroke = other.isFillAndStroke;
+
+        originalPath = copy(other.originalPath);
+        path = copy(other.path);
+        trimmedPath = copy(other.trimmedPath);
+        pathPaint = new Paint(other.pathPaint);
+        scaleMatrix = other.scaleMatrix == null ? null : new Matrix(other.scaleMatrix);
+    }
+
+    private static Path copy(Path path) {
+        return path == null ? null : new Path(path);
+    }
+
     public void buildPath(boolean useLegacyParser) {
 
         originalPath = PathParser.doPath(pathData);
@@ -39,6 +39,37 @@ public class VectorModel {
         fullpath = new Path();
     }
 
+    /**
+     * Creates a deep copy of the vector, the copy can be scaled independently of the original
+     * so a parsed vector can be shared by several drawables.
+     */
+    public VectorModel(VectorModel other) {
+        name = other.name;
+        width = other.width;
+        height = other.height;
+        alpha = other.alpha;
+        autoMirrored = other.autoMirrored;
+        tint = other.tint;
+        tintMode = other.tintMode;
+        viewportWidth = other.viewportWidth;
+        viewportHeight = other.viewportHeight;
+
+        groupModels = new ArrayList<>(other.groupModels.size());
+        for (GroupModel groupModel : other.groupModels) {
+            groupModels.add(new GroupModel(groupModel, null));
+        }
+        pathModels = new ArrayList<>(other.pathModels.size());
+        for (PathModel pathModel : other.pathModels) {
+            pathModels.add(new PathModel(pathModel));
+        }
+        clipPathModels = new ArrayList<>(other.clipPathModels.size());
+        for (ClipPathModel clipPathModel : other.clipPathModels) {
+            clipPathModels.add(new ClipPathModel(clipPathModel));
+        }
+        fullpath = new Path(other.fullpath);
+        scaleMatrix = other.scaleMatrix == null ? null : new Matrix(other.scaleMatrix);
+    }
+
     public void drawPaths(Canvas canvas, float offsetX, float offsetY, float scaleX, float scaleY) {
         for (ClipPathModel clipPathModel : clipPathModels) {
             canvas.clipPath(clipPathModel.getScaledAndOffsetPath(offsetX, offsetY, scaleX, scaleY));
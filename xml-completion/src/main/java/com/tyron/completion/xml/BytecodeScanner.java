@@ -3,23 +3,20 @@ package com.tyron.completion.xml;
 import android.content.Context;
 import android.util.AttributeSet;
 import android.view.View;
-import android.view.ViewGroup;
 
 import com.google.common.collect.ImmutableSet;
-import com.tyron.builder.BuildModule;
-import com.tyron.completion.xml.util.PartialClassParser;
 
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
-import org.apache.bcel.classfile.Method;
-import org.apache.bcel.generic.Type;
+import org.apache.bcel.Const;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.io.InputStream;
 import java.util.Enumeration;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -27,13 +24,17 @@ import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 /**
- * Scans jar files and saves all the class files that extends {@link View} and has the
- * appropriate constructors to be inflated in XML.
+ * Scans jar files for the class hierarchy used to find the classes that extend {@link View}
+ * and have the appropriate constructors to be inflated in XML.
  */
 public class BytecodeScanner {
 
     private static final Predicate<String> CLASS_NAME_FILTER = s -> s.endsWith(".class");
 
+    private static final String VIEW_CONSTRUCTOR_DESCRIPTOR =
+            "(L" + Context.class.getName().replace('.', '/') + ";L"
+            + AttributeSet.class.getName().replace('.', '/') + ";)V";
+
     private static final Set<String> sIgnoredPaths;
 
     static {
@@ -56,133 +57,150 @@ public class BytecodeScanner {
         sIgnoredPaths = builder.build();
     }
 
-    public static void loadJar(File jar) throws IOException {
-        try (JarFile jarFile = new JarFile(jar)) {
-            iterateClasses(jarFile, element -> {
-                PartialClassParser classParser =
-                        new PartialClassParser(jar.getAbsolutePath(), element.getName());
-                try {
-                    Repository.addClass(classParser.parse());
-                } catch (IOException e) {
-                    // ignored, keep parsing other classes
-                }
-            });
-        }
+    /**
+     * Reads the class headers of all the classes in the jar.
+     *
+     * @return The classes by their fully qualified name
+     */
+    public static Map<String, ViewClassIndex.ClassInfo> scanJar(File jar) throws IOException {
+        return scan(jar, name -> true);
+    }
+
+    /**
+     * Reads the class headers of the android.jar, the packages that do not contain views
+     * are skipped.
+     */
+    public static Map<String, ViewClassIndex.ClassInfo> scanBootstrap(File androidJar)
+            throws IOException {
+        return scan(androidJar, name -> {
+            int index = name.lastIndexOf('/');
+            String packagePath = index == -1 ? "" : name.substring(0, index);
+            return !sIgnoredPaths.contains(packagePath) && !packagePath.startsWith("java/");
+        });
     }
 
-    public static List<JavaClass> scan(File file) throws IOException {
-        List<JavaClass> viewClasses = new ArrayList<>();
+    private static Map<String, ViewClassIndex.ClassInfo> scan(File file,
+                                                              Predicate<String> filter)
+            throws IOException {
+        Map<String, ViewClassIndex.ClassInfo> classes = new HashMap<>();
         try (JarFile jarFile = new JarFile(file)) {
             iterateClasses(jarFile, element -> {
-                String fqn = element.getName().replace('/', '.')
-                        .substring(0, element.getName().length() - ".class".length());
-                try {
-                    JavaClass javaClass = Repository.lookupClass(fqn);
-                    if (isViewClass(javaClass)) {
-                        viewClasses.add(javaClass);
-                    }
-                } catch (ClassNotFoundException e) {
-                    // should not happen, the class should already be loaded here.
+                if (!filter.test(element.getName())) {
+                    return;
+                }
+                try (InputStream inputStream = jarFile.getInputStream(element)) {
+                    ViewClassIndex.ClassInfo info = readClassInfo(inputStream);
+                    classes.put(info.getClassName(), info);
+                } catch (IOException e) {
+                    // ignored, keep parsing other classes
                 }
             });
         }
-        return viewClasses;
+        return classes;
     }
 
-    public static boolean isViewGroup(JavaClass javaClass) {
-        JavaClass[] superClasses = getSuperClasses(javaClass);
-        return Arrays.stream(superClasses)
-                .anyMatch(it -> ViewGroup.class.getName().equals(it.getClassName()));
-    }
-
-    public static void scanBootstrapIfNeeded() {
-        if (!needScanBootstrap()) {
-            return;
+    /**
+     * Reads only the parts of the class file needed by the {@link ViewClassIndex}, the
+     * attributes of the fields and methods are skipped without being parsed.
+     */
+    static ViewClassIndex.ClassInfo readClassInfo(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
         }
-
-        File androidJar = BuildModule.getAndroidJar();
-        if (androidJar != null && androidJar.exists()) {
-            try (JarFile jarFile = new JarFile(androidJar)) {
-                iterateClasses(jarFile, element -> {
-                    String name = element.getName();
-                    String packagePath = name.substring(0, name.lastIndexOf('/'));
-                    if (sIgnoredPaths.contains(packagePath)) {
-                        return;
-                    }
-                    if (packagePath.startsWith("java/")) {
-                        return;
-                    }
-                    PartialClassParser classParser =
-                            new PartialClassParser(androidJar.getAbsolutePath(), name);
-                    try {
-                        Repository.addClass(classParser.parse());
-                    } catch (IOException e) {
-                        // ignored, keep parsing other classes
-                    }
-
-                });
-            } catch (IOException e) {
-                // ignored
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        int[] classNameIndex = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case Const.CONSTANT_Utf8:
+                    utf8[i] = in.readUTF();
+                    break;
+                case Const.CONSTANT_Class:
+                    classNameIndex[i] = in.readUnsignedShort();
+                    break;
+                case Const.CONSTANT_String:
+                case Const.CONSTANT_MethodType:
+                case Const.CONSTANT_Module:
+                case Const.CONSTANT_Package:
+                    in.skipBytes(2);
+                    break;
+                case Const.CONSTANT_MethodHandle:
+                    in.skipBytes(3);
+                    break;
+                case Const.CONSTANT_Integer:
+                case Const.CONSTANT_Float:
+                case Const.CONSTANT_Fieldref:
+                case Const.CONSTANT_Methodref:
+                case Const.CONSTANT_InterfaceMethodref:
+                case Const.CONSTANT_NameAndType:
+                case Const.CONSTANT_Dynamic:
+                case Const.CONSTANT_InvokeDynamic:
+                    in.skipBytes(4);
+                    break;
+                case Const.CONSTANT_Long:
+                case Const.CONSTANT_Double:
+                    in.skipBytes(8);
+                    // takes two entries in the constant pool
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
             }
         }
-    }
 
-    private static boolean needScanBootstrap() {
-        try {
-            Repository.getRepository().loadClass(View.class);
-            return false;
-        } catch (ClassNotFoundException e) {
-            return true;
-        }
-    }
+        int accessFlags = in.readUnsignedShort();
+        String className = utf8[classNameIndex[in.readUnsignedShort()]];
+        int superClassIndex = in.readUnsignedShort();
+        String superClassName = superClassIndex == 0
+                ? null
+                : utf8[classNameIndex[superClassIndex]];
 
-    private static boolean isViewClass(JavaClass javaClass) {
-        JavaClass[] superClasses = getSuperClasses(javaClass);
-        return Arrays.stream(superClasses)
-                .anyMatch(it -> View.class.getName().equals(it.getClassName()));
-    }
+        int interfaceCount = in.readUnsignedShort();
+        in.skipBytes(interfaceCount * 2);
 
-    /**
-     * Get the array of java classes even if the root class does not exist
-     *
-     * @param javaClass The java class
-     * @return array of super classes
-     */
-    public static JavaClass[] getSuperClasses(JavaClass javaClass) {
-        List<JavaClass> superClasses = new ArrayList<>();
-        JavaClass current = javaClass;
-        while (current != null && current.getSuperclassName() != null) {
-            JavaClass lookupClass;
-            try {
-                lookupClass = Repository.lookupClass(current.getSuperclassName());
-            } catch (ClassNotFoundException e) {
-                lookupClass = null;
-            }
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
 
-            if (lookupClass != null) {
-                superClasses.add(lookupClass);
+        boolean hasViewConstructor = false;
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            in.readUnsignedShort(); // access flags
+            String name = utf8[in.readUnsignedShort()];
+            String descriptor = utf8[in.readUnsignedShort()];
+            if ("<init>".equals(name) && VIEW_CONSTRUCTOR_DESCRIPTOR.equals(descriptor)) {
+                hasViewConstructor = true;
             }
-            current = lookupClass;
+            skipAttributes(in);
         }
-        return superClasses.toArray(new JavaClass[0]);
-    }
 
-    private static boolean containsViewConstructors(Method[] methods) {
-        for (Method method : methods) {
-            if (!"<init>".equals(method.getName())) {
-                continue;
-            }
+        return new ViewClassIndex.ClassInfo(className.replace('/', '.'),
+                superClassName == null ? null : superClassName.replace('/', '.'),
+                accessFlags,
+                hasViewConstructor);
+    }
 
-            Type[] argumentTypes = method.getArgumentTypes();
-            if (argumentTypes.length == 2) {
-                if (Context.class.getName().equals(argumentTypes[0].toString())) {
-                    if (AttributeSet.class.getName().equals(argumentTypes[1].toString())) {
-                        return true;
-                    }
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.skipBytes(2);
+            int length = in.readInt();
+            int skipped = 0;
+            while (skipped < length) {
+                int n = in.skipBytes(length - skipped);
+                if (n <= 0) {
+                    throw new EOFException();
                 }
+                skipped += n;
             }
         }
-        return false;
     }
 
     public static void iterateClasses(JarFile jarFile, Consumer<JarEntry> consumer) {
@@ -0,0 +1,302 @@
+package com.tyron.completion.xml;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.common.hash.Hashing;
+import com.tyron.common.ApplicationPaths;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Index of the class hierarchy of a set of jars, used to find the classes that can be used
+ * as tags in a layout.
+ *
+ * Each jar is indexed only once, only the name, super class, access flags and whether the
+ * class has a {@code (Context, AttributeSet)} constructor are read from its class files. The
+ * index of a jar is saved in the cache directory keyed by the path, size and modification
+ * time of the jar so later sessions read the index instead of the class files.
+ */
+public class ViewClassIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String CACHE_DIRECTORY = "view-class-index";
+
+    /**
+     * The information about a single class of a jar.
+     */
+    public static class ClassInfo {
+
+        private final String mClassName;
+        private final String mSuperClassName;
+        private final int mAccessFlags;
+        private final boolean mHasViewConstructor;
+
+        public ClassInfo(@NonNull String className,
+                         @Nullable String superClassName,
+                         int accessFlags,
+                         boolean hasViewConstructor) {
+            mClassName = className;
+            mSuperClassName = superClassName;
+            mAccessFlags = accessFlags;
+            mHasViewConstructor = hasViewConstructor;
+        }
+
+        /**
+         * @return The fully qualified name of the class, e.g. {@code android.widget.TextView}
+         */
+        @NonNull
+        public String getClassName() {
+            return mClassName;
+        }
+
+        @NonNull
+        public String getPackageName() {
+            int index = mClassName.lastIndexOf('.');
+            return index == -1 ? "" : mClassName.substring(0, index);
+        }
+
+        @Nullable
+        public String getSuperClassName() {
+            return mSuperClassName;
+        }
+
+        public int getAccessFlags() {
+            return mAccessFlags;
+        }
+
+        public boolean isPublic() {
+            return Modifier.isPublic(mAccessFlags);
+        }
+
+        public boolean isAbstract() {
+            return Modifier.isAbstract(mAccessFlags);
+        }
+
+        /**
+         * @return Whether the class declares the constructor used to inflate it from XML
+         */
+        public boolean hasViewConstructor() {
+            return mHasViewConstructor;
+        }
+    }
+
+    /**
+     * Creates the index of the given jars, the jars that are not in the cache yet are indexed
+     * in parallel.
+     *
+     * @param bootstrap The android.jar used by the project, may be null
+     * @param jars      The library jars
+     */
+    @NonNull
+    public static ViewClassIndex create(@Nullable File bootstrap, @NonNull Collection<File> jars) {
+        List<File> allJars = new ArrayList<>();
+        if (bootstrap != null && bootstrap.exists()) {
+            allJars.add(bootstrap);
+        }
+        for (File jar : jars) {
+            if (jar.exists()) {
+                allJars.add(jar);
+            }
+        }
+
+        Map<File, Map<String, ClassInfo>> classesByJar = new HashMap<>();
+        int threads = Math.max(1, Math.min(allJars.size(),
+                Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "ViewClassIndexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<File, Future<Map<String, ClassInfo>>> futures = new HashMap<>();
+            for (File jar : allJars) {
+                boolean isBootstrap = jar.equals(bootstrap);
+                futures.put(jar, executor.submit(() -> getJarClasses(jar, isBootstrap)));
+            }
+            for (Map.Entry<File, Future<Map<String, ClassInfo>>> entry : futures.entrySet()) {
+                try {
+                    classesByJar.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    // the jar can't be read, it won't contribute any class
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ViewClassIndex(classesByJar);
+    }
+
+    private final Map<File, Map<String, ClassInfo>> mClassesByJar;
+    private final Map<String, ClassInfo> mClasses = new HashMap<>();
+
+    private ViewClassIndex(Map<File, Map<String, ClassInfo>> classesByJar) {
+        mClassesByJar = classesByJar;
+        for (Map<String, ClassInfo> classes : classesByJar.values()) {
+            for (ClassInfo info : classes.values()) {
+                mClasses.putIfAbsent(info.getClassName(), info);
+            }
+        }
+    }
+
+    @Nullable
+    public ClassInfo getClass(@NonNull String className) {
+        return mClasses.get(className);
+    }
+
+    /**
+     * @return The super classes of the class that are known to the index, starting from its
+     * direct super class
+     */
+    @NonNull
+    public List<ClassInfo> getSuperClasses(@NonNull ClassInfo info) {
+        List<ClassInfo> superClasses = new ArrayList<>();
+        ClassInfo current = info;
+        while (current.getSuperClassName() != null) {
+            ClassInfo superClass = mClasses.get(current.getSuperClassName());
+            if (superClass == null || superClasses.contains(superClass)) {
+                break;
+            }
+            superClasses.add(superClass);
+            current = superClass;
+        }
+        return superClasses;
+    }
+
+    public boolean isViewClass(@NonNull ClassInfo info) {
+        return isSubclassOf(info, View.class.getName());
+    }
+
+    public boolean isViewGroup(@NonNull ClassInfo info) {
+        return isSubclassOf(info, ViewGroup.class.getName());
+    }
+
+    private boolean isSubclassOf(ClassInfo info, String className) {
+        if (className.equals(info.getClassName())) {
+            return true;
+        }
+        for (ClassInfo superClass : getSuperClasses(info)) {
+            if (className.equals(superClass.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The view classes declared in the given jar
+     */
+    @NonNull
+    public List<ClassInfo> getViewClasses(@NonNull File jar) {
+        Map<String, ClassInfo> classes = mClassesByJar.get(jar);
+        if (classes == null) {
+            return new ArrayList<>();
+        }
+        List<ClassInfo> viewClasses = new ArrayList<>();
+        for (ClassInfo info : classes.values()) {
+            if (isViewClass(info)) {
+                viewClasses.add(info);
+            }
+        }
+        return viewClasses;
+    }
+
+    private static Map<String, ClassInfo> getJarClasses(File jar, boolean isBootstrap)
+            throws IOException {
+        File cacheFile = getCacheFile(jar);
+        Map<String, ClassInfo> classes = null;
+        if (cacheFile.exists()) {
+            try {
+                classes = readCache(cacheFile);
+            } catch (IOException e) {
+                // the cache is corrupted, index the jar again
+            }
+        }
+        if (classes == null) {
+            classes = isBootstrap
+                    ? BytecodeScanner.scanBootstrap(jar)
+                    : BytecodeScanner.scanJar(jar);
+            try {
+                writeCache(cacheFile, classes);
+            } catch (IOException e) {
+                // ignored, the jar will be indexed again next time
+            }
+        }
+        return classes;
+    }
+
+    private static File getCacheFile(File jar) {
+        String key = jar.getAbsolutePath() + ':' + jar.length() + ':' + jar.lastModified();
+        String fileName = Hashing.farmHashFingerprint64().hashUnencodedChars(key) + ".idx";
+        return new File(new File(ApplicationPaths.getCacheDir(), CACHE_DIRECTORY), fileName);
+    }
+
+    private static Map<String, ClassInfo> readCache(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = in.readInt();
+            Map<String, ClassInfo> classes = new HashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                String className = in.readUTF();
+                String superClassName = in.readUTF();
+                int accessFlags = in.readInt();
+                boolean hasViewConstructor = in.readBoolean();
+                classes.put(className, new ClassInfo(className,
+                        superClassName.isEmpty() ? null : superClassName,
+                        accessFlags,
+                        hasViewConstructor));
+            }
+            return classes;
+        }
+    }
+
+    private static void writeCache(File file, Map<String, ClassInfo> classes) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(classes.size());
+            for (ClassInfo info : classes.values()) {
+                out.writeUTF(info.getClassName());
+                out.writeUTF(info.getSuperClassName() == null ? "" : info.getSuperClassName());
+                out.writeInt(info.getAccessFlags());
+                out.writeBoolean(info.hasViewConstructor());
+            }
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Unable to write " + file);
+        }
+    }
+}
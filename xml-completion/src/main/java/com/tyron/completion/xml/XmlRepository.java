@@ -22,6 +22,7 @@ import android.widget.TextView;
 import android.widget.ViewFlipper;
 import android.widget.ViewSwitcher;
 
+import com.tyron.builder.BuildModule;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.index.CompilerService;
@@ -31,8 +32,6 @@ import com.tyron.completion.xml.model.Format;
 import com.tyron.completion.xml.util.StyleUtils;
 import com.tyron.xml.completion.repository.ResourceRepository;
 
-import org.apache.bcel.Repository;
-import org.apache.bcel.classfile.JavaClass;
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
@@ -42,6 +41,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,7 +52,7 @@ public class XmlRepository {
     private final Map<String, DeclareStyleable> mDeclareStyleables = new TreeMap<>();
     private final Map<String, DeclareStyleable> mManifestAttrs = new TreeMap<>();
     private final Map<String, AttributeInfo> mExtraAttributes = new TreeMap<>();
-    private final Map<String, JavaClass> mJavaViewClasses = new TreeMap<>();
+    private final Map<String, ViewClassIndex.ClassInfo> mJavaViewClasses = new TreeMap<>();
 
     private boolean mInitialized = false;
     private ResourceRepository mRepository;
@@ -71,7 +71,7 @@ public class XmlRepository {
         return mDeclareStyleables;
     }
 
-    public Map<String, JavaClass> getJavaViewClasses() {
+    public Map<String, ViewClassIndex.ClassInfo> getJavaViewClasses() {
         return mJavaViewClasses;
     }
 
@@ -84,11 +84,12 @@ public class XmlRepository {
         if (mInitialized) {
             return;
         }
-        BytecodeScanner.scanBootstrapIfNeeded();
-
         mRepository = new ResourceRepository(module);
         mRepository.initialize();
 
+        // the classes.jar next to a library is needed to resolve the super classes
+        // of its views, all the jars are indexed together
+        Set<File> jars = new LinkedHashSet<>(module.getLibraries());
         for (File library : module.getLibraries()) {
             File parent = library.getParentFile();
             if (parent == null) {
@@ -96,67 +97,57 @@ public class XmlRepository {
             }
             File classesFile = new File(parent, "classes.jar");
             if (classesFile.exists()) {
-                try {
-                    BytecodeScanner.loadJar(classesFile);
-                } catch (IOException ignored) {
-
-                }
+                jars.add(classesFile);
             }
         }
 
+        ViewClassIndex index = ViewClassIndex.create(BuildModule.getAndroidJar(), jars);
         for (File library : module.getLibraries()) {
-            try {
-                List<JavaClass> scan =
-                        BytecodeScanner.scan(library);
-                for (JavaClass javaClass : scan) {
-                    StyleUtils.putStyles(javaClass);
-                    mJavaViewClasses.put(javaClass.getClassName(), javaClass);
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+            for (ViewClassIndex.ClassInfo viewClass : index.getViewClasses(library)) {
+                StyleUtils.putStyles(index, viewClass);
+                mJavaViewClasses.put(viewClass.getClassName(), viewClass);
             }
         }
 
-        addFrameworkViews();
-
-        Repository.clearCache();
+        addFrameworkViews(index);
 
         mInitialized = true;
     }
 
-    private void addFrameworkViews() {
-        addFrameworkView(View.class);
-        addFrameworkView(ViewGroup.class);
-        addFrameworkView(FrameLayout.class);
-        addFrameworkView(RelativeLayout.class);
-        addFrameworkView(LinearLayout.class);
-        addFrameworkView(AbsoluteLayout.class);
-        addFrameworkView(ListView.class);
-        addFrameworkView(EditText.class);
-        addFrameworkView(Button.class);
-        addFrameworkView(TextView.class);
-        addFrameworkView(ImageView.class);
-        addFrameworkView(ImageButton.class);
-        addFrameworkView(ImageSwitcher.class);
-        addFrameworkView(ViewFlipper.class);
-        addFrameworkView(ViewSwitcher.class);
-        addFrameworkView(ScrollView.class);
-        addFrameworkView(HorizontalScrollView.class);
-        addFrameworkView(CompoundButton.class);
-        addFrameworkView(ProgressBar.class);
-        addFrameworkView(CheckBox.class);
+    private void addFrameworkViews(ViewClassIndex index) {
+        addFrameworkView(index, View.class);
+        addFrameworkView(index, ViewGroup.class);
+        addFrameworkView(index, FrameLayout.class);
+        addFrameworkView(index, RelativeLayout.class);
+        addFrameworkView(index, LinearLayout.class);
+        addFrameworkView(index, AbsoluteLayout.class);
+        addFrameworkView(index, ListView.class);
+        addFrameworkView(index, EditText.class);
+        addFrameworkView(index, Button.class);
+        addFrameworkView(index, TextView.class);
+        addFrameworkView(index, ImageView.class);
+        addFrameworkView(index, ImageButton.class);
+        addFrameworkView(index, ImageSwitcher.class);
+        addFrameworkView(index, ViewFlipper.class);
+        addFrameworkView(index, ViewSwitcher.class);
+        addFrameworkView(index, ScrollView.class);
+        addFrameworkView(index, HorizontalScrollView.class);
+        addFrameworkView(index, CompoundButton.class);
+        addFrameworkView(index, ProgressBar.class);
+        addFrameworkView(index, CheckBox.class);
     }
 
-    private void addFrameworkView(Class<? extends View> viewClass) {
-        org.apache.bcel.util.Repository repository = Repository.getRepository();
-        try {
-            JavaClass javaClass = repository.loadClass(viewClass);
-            if (javaClass != null) {
-                mJavaViewClasses.put(javaClass.getClassName(), javaClass);
-            }
-        } catch (ClassNotFoundException e) {
-            // ignored
+    private void addFrameworkView(ViewClassIndex index, Class<? extends View> viewClass) {
+        ViewClassIndex.ClassInfo info = index.getClass(viewClass.getName());
+        if (info == null) {
+            // the android.jar is not available, use the class from the runtime instead
+            Class<?> superClass = viewClass.getSuperclass();
+            info = new ViewClassIndex.ClassInfo(viewClass.getName(),
+                    superClass == null ? null : superClass.getName(),
+                    viewClass.getModifiers(),
+                    true);
         }
+        mJavaViewClasses.put(info.getClassName(), info);
     }
 
     private Map<String, DeclareStyleable> parse(Reader reader, String namespace) throws XmlPullParserException, IOException {
@@ -2,18 +2,16 @@ package com.tyron.completion.xml.insert;
 
 import com.tyron.completion.DefaultInsertHandler;
 import com.tyron.completion.model.CompletionItem;
-import com.tyron.completion.xml.BytecodeScanner;
+import com.tyron.completion.xml.ViewClassIndex;
 import com.tyron.editor.Editor;
 
-import org.apache.bcel.classfile.JavaClass;
-
 import java.util.function.Predicate;
 
 public class LayoutTagInsertHandler extends DefaultXmlInsertHandler {
 
-    private final JavaClass clazz;
+    private final ViewClassIndex.ClassInfo clazz;
 
-    public LayoutTagInsertHandler(JavaClass clazz, CompletionItem item) {
+    public LayoutTagInsertHandler(ViewClassIndex.ClassInfo clazz, CompletionItem item) {
         super(item);
         this.clazz = clazz;
     }
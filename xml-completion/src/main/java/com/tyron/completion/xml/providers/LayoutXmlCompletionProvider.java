@@ -22,12 +22,12 @@ import com.tyron.completion.xml.util.AndroidResourcesUtils;
 import com.tyron.completion.xml.util.AndroidXmlTagUtils;
 import com.tyron.completion.xml.util.AttributeValueUtils;
 import com.tyron.xml.completion.util.DOMUtils;
+import com.tyron.completion.xml.util.XmlDocumentCache;
 import com.tyron.completion.xml.util.XmlUtils;
 
 import org.eclipse.lemminx.dom.DOMAttr;
 import org.eclipse.lemminx.dom.DOMDocument;
 import org.eclipse.lemminx.dom.DOMNode;
-import org.eclipse.lemminx.dom.DOMParser;
 import org.eclipse.lemminx.uriresolver.URIResolverExtensionManager;
 import org.openjdk.javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
@@ -64,9 +64,8 @@ public class LayoutXmlCompletionProvider extends CompletionProvider {
 
             ResourceNamespace namespace =
                     ResourceNamespace.fromPackageName(((AndroidModule) params.getModule()).getPackageName());
-            DOMDocument parsed = DOMParser.getInstance()
-                    .parse(contents, namespace.getXmlNamespaceUri(),
-                           new URIResolverExtensionManager());
+            DOMDocument parsed = XmlDocumentCache.getDocument(params.getFile(), contents,
+                    namespace.getXmlNamespaceUri(), new URIResolverExtensionManager());
 
             XmlCompletionType completionType =
                     XmlUtils.getCompletionType(parsed, params.getIndex());
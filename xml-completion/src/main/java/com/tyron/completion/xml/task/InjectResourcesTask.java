@@ -7,35 +7,24 @@ import com.android.ide.common.rendering.api.ResourceNamespace;
 import com.android.ide.common.rendering.api.StyleableResourceValue;
 import com.android.ide.common.resources.ResourceItem;
 import com.android.resources.ResourceType;
-import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Table;
-import com.tyron.builder.compiler.symbol.SymbolLoader;
-import com.tyron.builder.compiler.symbol.SymbolWriter;
-import com.tyron.builder.model.SourceFileObject;
 import com.tyron.builder.project.Project;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.java.parse.CompilationInfo;
-import com.tyron.completion.xml.XmlRepository;
+import com.tyron.completion.java.parse.SyntheticResourceClass;
 import com.tyron.completion.xml.v2.project.LocalResourceRepository;
 import com.tyron.completion.xml.v2.project.ResourceRepositoryManager;
 
-import org.apache.commons.io.FileUtils;
-
-import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.StandardCharsets;
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Consumer;
 
 /**
- * Used to create fake R.java files from the project resources for it to
- * show up on code completion. Files generated from this task should not
- * be included in the compilation process as the values of the fields are
- * not accurate from what AAPT2 generates.
+ * Used to make the R class of the project resources show up on code completion. The class is
+ * entered directly into the javac context of the module by {@link SyntheticResourceClass}, the
+ * values of the fields are not accurate from what AAPT2 generates.
  */
 public class InjectResourcesTask {
 
@@ -53,16 +42,12 @@ public class InjectResourcesTask {
         if (compilationInfo == null) {
             return;
         }
+        if (project.isCompiling() || project.isIndexing()) {
+            return;
+        }
 
         InjectResourcesTask task = new InjectResourcesTask(project, module);
-        task.inject(resourceFile -> {
-            if (project.isCompiling() || project.isIndexing()) {
-                return;
-            }
-            SourceFileObject sourceFileObject =
-                    new SourceFileObject(resourceFile.toPath(), module, Instant.now());
-            compilationInfo.update(sourceFileObject);
-        });
+        task.inject(compilationInfo);
     }
 
     private final AndroidModule mModule;
@@ -73,30 +58,24 @@ public class InjectResourcesTask {
         mModule = module;
     }
 
-    public void inject(Consumer<File> consumer) throws IOException {
+    public void inject(CompilationInfo compilationInfo) {
         ResourceRepositoryManager instance = ResourceRepositoryManager.getInstance(mModule);
         LocalResourceRepository appResources = instance.getAppResources();
 
-        String classContents = createSymbols(appResources);
-
-        File classFile = getOrCreateResourceClass(mModule);
-
-        FileUtils.writeStringToFile(classFile, classContents, StandardCharsets.UTF_8);
-
-        consumer.accept(classFile);
+        Map<String, Map<String, Boolean>> symbols = createSymbols(appResources);
+        SyntheticResourceClass.get(mModule)
+                .update(compilationInfo, mModule.getPackageName(), symbols);
     }
 
+    /**
+     * @return The fields of the R class by the name of their nested class, mapped to whether
+     * the field is an {@code int[]}
+     */
+    private Map<String, Map<String, Boolean>> createSymbols(LocalResourceRepository repository) {
+        Map<String, Map<String, Boolean>> symbols = new HashMap<>();
 
-    private String createSymbols(LocalResourceRepository repository) throws IOException {
-
-        int id = 0;
-
-        Table<String, String, SymbolLoader.SymbolEntry> symbols = HashBasedTable.create();
-
-
-        Set<com.android.ide.common.rendering.api.ResourceNamespace> namespaces =
-                repository.getNamespaces();
-        for (com.android.ide.common.rendering.api.ResourceNamespace namespace : namespaces) {
+        Set<ResourceNamespace> namespaces = repository.getNamespaces();
+        for (ResourceNamespace namespace : namespaces) {
             Set<ResourceType> resourceTypes = repository.getResourceTypes(namespace);
             for (ResourceType resourceType : resourceTypes) {
                 if (!resourceType.getCanBeReferenced() && resourceType != ResourceType.STYLEABLE) {
@@ -109,56 +88,33 @@ public class InjectResourcesTask {
                 if (resources.values().isEmpty()) {
                     continue;
                 }
-                for (Map.Entry<String, ResourceItem> resourceItemEntry : resources.entries()) {
-                    addResource(id,
-                            namespace,
-                            symbols,
-                            resourceType,
-                            resourceItemEntry);
-                    id++;
+                Map<String, Boolean> fields =
+                        symbols.computeIfAbsent(resourceType.getName(), __ -> new HashMap<>());
+                for (ResourceItem resourceItem : resources.values()) {
+                    addResource(fields, resourceType, resourceItem);
                 }
-
             }
-
         }
-
-        SymbolLoader loader = new SymbolLoader(symbols);
-        SymbolWriter symbolWriter = new SymbolWriter(null, mModule.getPackageName(), loader, null);
-        symbolWriter.addSymbolsToWrite(loader);
-        return symbolWriter.getString();
+        return symbols;
     }
 
-    private void addResource(int id,
-                             ResourceNamespace namespace,
-                             Table<String, String, SymbolLoader.SymbolEntry> symbols,
+    private void addResource(Map<String, Boolean> fields,
                              ResourceType resourceType,
-                             Map.Entry<String, ResourceItem> resourceItemEntry) {
+                             ResourceItem resourceItem) {
         if (resourceType == ResourceType.STYLEABLE) {
-            addStyleableResource(id, namespace, symbols, resourceItemEntry);
+            addStyleableResource(fields, resourceItem);
             return;
         }
-        ResourceItem value = resourceItemEntry.getValue();
-        String replacedName = convertName(value.getName());
-        SymbolLoader.SymbolEntry entry = new SymbolLoader.SymbolEntry(replacedName,
-                getType(resourceType),
-                String.valueOf(id));
-        symbols.put(resourceType.getName(), replacedName, entry);
+        fields.put(convertName(resourceItem.getName()), false);
     }
 
-    private void addStyleableResource(int id,
-                                      ResourceNamespace namespace,
-                                      Table<String, String, SymbolLoader.SymbolEntry> symbols,
-                                      Map.Entry<String, ResourceItem> resourceItemEntry) {
-        ResourceItem value = resourceItemEntry.getValue();
-        if (!(value.getResourceValue() instanceof StyleableResourceValue)) {
+    private void addStyleableResource(Map<String, Boolean> fields, ResourceItem resourceItem) {
+        if (!(resourceItem.getResourceValue() instanceof StyleableResourceValue)) {
             return;
         }
-        StyleableResourceValue styleable = ((StyleableResourceValue) value.getResourceValue());
-        String valueItem = "new int[" + styleable.getAllAttributes().size() + "];";
-        String replacedName = convertName(value.getName());
-        SymbolLoader.SymbolEntry entry =
-                new SymbolLoader.SymbolEntry(replacedName, "int[]", valueItem);
-        symbols.put(ResourceType.STYLEABLE.getName(), replacedName, entry);
+        StyleableResourceValue styleable = ((StyleableResourceValue) resourceItem.getResourceValue());
+        String replacedName = convertName(resourceItem.getName());
+        fields.put(replacedName, true);
 
         for (AttrResourceValue attr : styleable.getAllAttributes()) {
             String name = attr.getName();
@@ -168,32 +124,14 @@ public class InjectResourcesTask {
 
             String replace = name.replace(':', '_');
             String attrName = replacedName + (replace.isEmpty() ? "" : "_" + replace);
-            SymbolLoader.SymbolEntry attrEntry = new SymbolLoader.SymbolEntry(attrName, "int", "0");
-            symbols.put(ResourceType.STYLEABLE.getName(), attrName, attrEntry);
+            fields.put(attrName, false);
         }
     }
 
-    private static String getType(ResourceType type) {
-        return "int";
-    }
-
     private static String convertName(String name) {
         if (!name.contains(".")) {
             return name;
         }
         return name.replace('.', '_');
     }
-
-    public static File getOrCreateResourceClass(AndroidModule module) throws IOException {
-        File outputDirectory = new File(module.getBuildDirectory(), "injected/resource");
-        if (!outputDirectory.exists() && !outputDirectory.mkdirs()) {
-            throw new IOException("Unable to create directory " + outputDirectory);
-        }
-
-        File classFile = new File(outputDirectory, "R.java");
-        if (!classFile.exists() && !classFile.createNewFile()) {
-            throw new IOException("Unable to create " + classFile);
-        }
-        return classFile;
-    }
 }
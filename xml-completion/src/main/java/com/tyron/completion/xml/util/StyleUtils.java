@@ -29,15 +29,13 @@ import androidx.annotation.NonNull;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
-import com.tyron.completion.xml.BytecodeScanner;
+import com.tyron.completion.xml.ViewClassIndex;
 import com.tyron.completion.xml.model.DeclareStyleable;
 
-import org.apache.bcel.classfile.JavaClass;
-
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -47,6 +45,12 @@ public class StyleUtils {
     private static final Multimap<String, String> sViewStyleMap = ArrayListMultimap.create();
     private static final Map<String, ImmutableSet<String>> sLayoutParamsMap = new HashMap<>();
 
+    /**
+     * Incremented whenever a view class is added, so caches derived from the known view
+     * classes can tell when they are out of date.
+     */
+    private static volatile int sModificationCount;
+
     static {
         putLayoutParams(ViewGroup.class);
         putLayoutParams(AbsoluteLayout.class);
@@ -99,10 +103,10 @@ public class StyleUtils {
         return classes;
     }
 
-    public static void putStyles(JavaClass javaClass) {
-        JavaClass[] superClasses = BytecodeScanner.getSuperClasses(javaClass);
-        String viewSimpleName = getSimpleName(javaClass.getClassName());
-        for (JavaClass superClass : superClasses) {
+    public static void putStyles(ViewClassIndex index, ViewClassIndex.ClassInfo viewClass) {
+        List<ViewClassIndex.ClassInfo> superClasses = index.getSuperClasses(viewClass);
+        String viewSimpleName = getSimpleName(viewClass.getClassName());
+        for (ViewClassIndex.ClassInfo superClass : superClasses) {
             if (Object.class.getName().equals(superClass.getClassName())) {
                 continue;
             }
@@ -112,20 +116,25 @@ public class StyleUtils {
 
         sViewStyleMap.put(viewSimpleName, viewSimpleName);
 
-        if (BytecodeScanner.isViewGroup(javaClass)) {
-            putLayoutParams(javaClass);
+        if (index.isViewGroup(viewClass)) {
+            putLayoutParams(index, viewClass);
         }
+        sModificationCount++;
+    }
+
+    public static int getModificationCount() {
+        return sModificationCount;
     }
 
-    public static void putLayoutParams(JavaClass javaClass) {
+    public static void putLayoutParams(ViewClassIndex index, ViewClassIndex.ClassInfo viewGroup) {
         ImmutableSet.Builder<String> builder = ImmutableSet.builder();
-        JavaClass[] superClasses = BytecodeScanner.getSuperClasses(javaClass);
-        Arrays.stream(superClasses)
-                .map(JavaClass::getClassName)
+        index.getSuperClasses(viewGroup).stream()
+                .map(ViewClassIndex.ClassInfo::getClassName)
                 .filter(it -> !Object.class.getName().equals(it))
                 .filter(it -> !View.class.getName().equals(it))
                 .forEach(it -> builder.add(getSimpleName(it) + "_Layout"));
-        sLayoutParamsMap.put(getSimpleName(javaClass.getClassName()) + "_Layout", builder.build());
+        sLayoutParamsMap.put(getSimpleName(viewGroup.getClassName()) + "_Layout", builder.build());
+        sModificationCount++;
     }
 
     public static void putLayoutParams(@NonNull Class<? extends ViewGroup> viewGroup) {
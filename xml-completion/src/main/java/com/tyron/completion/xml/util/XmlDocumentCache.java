@@ -0,0 +1,93 @@
+package com.tyron.completion.xml.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.eclipse.lemminx.dom.DOMDocument;
+import org.eclipse.lemminx.dom.DOMParser;
+import org.eclipse.lemminx.uriresolver.URIResolverExtensionManager;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the parsed {@link DOMDocument} of the recently edited XML files.
+ *
+ * The completion providers, the editor and the layout preview ask for the document of the same
+ * text several times per keystroke, the document is parsed once per version of the text and
+ * shared by all of them. Callers must not modify the returned document.
+ *
+ * This memoizes the full lemminx parse of the last text, it is not an incremental parser: an
+ * edit still parses the whole text. {@code DOMNode.start} is final, so the nodes after an edit
+ * can't be shifted and a reparsed element range can't be spliced into an existing document.
+ */
+public class XmlDocumentCache {
+
+    private static final int MAX_DOCUMENTS = 8;
+
+    private static final Map<File, Entry> sDocuments =
+            new LinkedHashMap<File, Entry>(MAX_DOCUMENTS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<File, Entry> eldest) {
+                    return size() > MAX_DOCUMENTS;
+                }
+            };
+
+    /**
+     * @return The document of the given contents of the file, the cached document is returned
+     * if the contents have not changed since it was parsed, whatever its document URI is
+     */
+    @NonNull
+    public static DOMDocument getDocument(@NonNull File file, @NonNull String contents) {
+        return getDocument(file, contents, null, null);
+    }
+
+    /**
+     * @param uri      The URI of the document, e.g. the XML namespace of the resources, or null
+     *                 if any cached document of the contents can be used
+     * @param resolver The resolver of the document, only used when the contents are parsed
+     * @return The document of the given contents of the file, the cached document is returned
+     * if the contents have not changed since it was parsed with the same URI
+     */
+    @NonNull
+    public static DOMDocument getDocument(@NonNull File file,
+                                          @NonNull String contents,
+                                          @Nullable String uri,
+                                          @Nullable URIResolverExtensionManager resolver) {
+        Entry entry;
+        synchronized (sDocuments) {
+            entry = sDocuments.get(file);
+            if (entry == null) {
+                entry = new Entry();
+                sDocuments.put(file, entry);
+            }
+        }
+
+        // parse outside of the map lock, concurrent requests for the same text wait for
+        // the first one instead of parsing it again
+        synchronized (entry) {
+            if (entry.document == null || !contents.equals(entry.contents) ||
+                (uri != null && !uri.equals(entry.document.getDocumentURI()))) {
+                entry.document = DOMParser.getInstance()
+                        .parse(contents, uri != null ? uri : "", resolver);
+                entry.contents = contents;
+            }
+            return entry.document;
+        }
+    }
+
+    /**
+     * Drop the document of the file, called when the file is closed or deleted
+     */
+    public static void remove(@NonNull File file) {
+        synchronized (sDocuments) {
+            sDocuments.remove(file);
+        }
+    }
+
+    private static class Entry {
+        String contents;
+        DOMDocument document;
+    }
+}
@@ -10,19 +10,24 @@ import com.tyron.completion.CompletionProvider;
 import com.tyron.completion.model.CompletionList;
 import com.tyron.completion.xml.util.AndroidResourcesUtils;
 import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository;
+import com.tyron.completion.xml.v2.aar.FrameworkResourceRepositoryManager;
 import com.tyron.completion.xml.v2.handler.AndroidLayoutHandlerKt;
 import com.tyron.completion.xml.v2.handler.AndroidManifestHandlerKt;
 
 import org.jetbrains.kotlin.com.intellij.openapi.util.Key;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.Objects;
+import java.util.Set;
 
 public class AndroidXmlCompletionProvider extends CompletionProvider {
 
     private static final Key<FrameworkResourceRepository> FRAMEWORK_RESOURCE_REPOSITORY_KEY =
             Key.create("frameworkRepository");
 
+    private static final Set<String> FRAMEWORK_LANGUAGES = ImmutableSet.of("en");
+
     private static final String LAYOUT_ATTRIBUTE_PREFIX = "layout_";
 
     private static final String NAMESPACE_PREFIX = "xmlns";
@@ -82,19 +87,36 @@ public class AndroidXmlCompletionProvider extends CompletionProvider {
     }
 
     private FrameworkResourceRepository getFrameworkResourceRepository(Module module) {
-        FrameworkResourceRepository repository =
-                module.getUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY);
-        if (repository == null) {
-            File extractedDir = getOrExtractFiles();
-            File resDirectory =
-                    Objects.requireNonNull(extractedDir.getParentFile()).getParentFile();
-            repository = FrameworkResourceRepository.create(resDirectory.toPath(),
-                    ImmutableSet.of("en"),
-                    null,
-                    true);
-            module.putUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY, repository);
+        synchronized (module) {
+            FrameworkResourceRepository repository =
+                    module.getUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY);
+            if (repository == null) {
+                repository = FrameworkResourceRepositoryManager.getInstance()
+                        .acquire(getFrameworkResourceDirectory(), FRAMEWORK_LANGUAGES);
+                module.putUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY, repository);
+            }
+            return repository;
+        }
+    }
+
+    /**
+     * Releases the framework resources held by the module, the shared repository is dropped
+     * once no module uses it.
+     */
+    public static void releaseFrameworkResources(Module module) {
+        synchronized (module) {
+            if (module.getUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY) != null) {
+                module.putUserData(FRAMEWORK_RESOURCE_REPOSITORY_KEY, null);
+                FrameworkResourceRepositoryManager.getInstance()
+                        .release(getFrameworkResourceDirectory());
+            }
         }
-        return repository;
+    }
+
+    private static Path getFrameworkResourceDirectory() {
+        File extractedDir = getOrExtractFiles();
+        File resDirectory = Objects.requireNonNull(extractedDir.getParentFile()).getParentFile();
+        return resDirectory.toPath();
     }
 
     private XmlFileType getFileType(File file) {
@@ -0,0 +1,103 @@
+package com.tyron.completion.xml.v2.aar;
+
+import com.google.common.hash.Hashing;
+import com.tyron.common.ApplicationPaths;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Process-wide owner of {@link FrameworkResourceRepository} instances.
+ *
+ * <p>A repository is shared by every module that uses the same framework resources and is
+ * released when the last module that acquired it releases it. Repositories are backed by a
+ * persistent cache under the application cache directory, so only the first launch parses the
+ * framework res directory.
+ */
+public final class FrameworkResourceRepositoryManager {
+
+  private static final String CODE_VERSION = "7.4";
+
+  private static final FrameworkResourceRepositoryManager ourInstance = new FrameworkResourceRepositoryManager();
+
+  @NotNull
+  public static FrameworkResourceRepositoryManager getInstance() {
+    return ourInstance;
+  }
+
+  private final Map<Path, Entry> myRepositories = new HashMap<>();
+
+  private final Executor myCacheCreationExecutor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "FrameworkResourceCacheWriter");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private FrameworkResourceRepositoryManager() {
+  }
+
+  /**
+   * Returns the shared repository of the given framework res directory, creating it if needed.
+   * Each call must be balanced by a call to {@link #release(Path)}.
+   *
+   * @param resourceDirectory the res directory of the Android framework
+   * @param languages the set of ISO 639 language codes to load, or null to load all languages
+   */
+  @NotNull
+  public synchronized FrameworkResourceRepository acquire(@NotNull Path resourceDirectory, @Nullable Set<String> languages) {
+    Entry entry = myRepositories.get(resourceDirectory);
+    if (entry == null) {
+      FrameworkResourceRepository repository =
+          FrameworkResourceRepository.create(resourceDirectory, languages, createCachingData(resourceDirectory), true);
+      entry = new Entry(repository);
+      myRepositories.put(resourceDirectory, entry);
+    } else if (languages == null || !entry.repository.containsLanguages(languages)) {
+      entry.repository = entry.repository.loadMissingLanguages(languages, createCachingData(resourceDirectory));
+    }
+    entry.referenceCount++;
+    return entry.repository;
+  }
+
+  /**
+   * Releases a repository acquired by {@link #acquire(Path, Set)}, the repository is dropped
+   * once nothing refers to it.
+   */
+  public synchronized void release(@NotNull Path resourceDirectory) {
+    Entry entry = myRepositories.get(resourceDirectory);
+    if (entry != null && --entry.referenceCount <= 0) {
+      myRepositories.remove(resourceDirectory);
+    }
+  }
+
+  @NotNull
+  private CachingData createCachingData(@NotNull Path resourceDirectory) {
+    String contentVersion;
+    try {
+      contentVersion = Files.getLastModifiedTime(resourceDirectory).toString();
+    } catch (Exception e) {
+      contentVersion = "";
+    }
+    String pathHash = Hashing.farmHashFingerprint64().hashUnencodedChars(resourceDirectory.toString()).toString();
+    String fileName = String.format("framework_%s.dat", pathHash);
+    Path cacheFile = Paths.get(ApplicationPaths.getCacheDir().getAbsolutePath(), CachingDataKt.RESOURCE_CACHE_DIRECTORY, fileName);
+    return new CachingData(cacheFile, contentVersion, CODE_VERSION, myCacheCreationExecutor);
+  }
+
+  private static class Entry {
+    @NotNull FrameworkResourceRepository repository;
+    int referenceCount;
+
+    Entry(@NotNull FrameworkResourceRepository repository) {
+      this.repository = repository;
+    }
+  }
+}
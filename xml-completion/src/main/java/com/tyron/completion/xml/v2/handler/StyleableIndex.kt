@@ -0,0 +1,151 @@
+package com.tyron.completion.xml.v2.handler
+
+import com.android.ide.common.rendering.api.AttrResourceValue
+import com.android.ide.common.rendering.api.ResourceNamespace
+import com.android.ide.common.rendering.api.ResourceReference
+import com.android.ide.common.rendering.api.StyleableResourceValue
+import com.android.ide.common.resources.ResourceItem
+import com.android.resources.ResourceType
+import com.tyron.builder.project.api.AndroidModule
+import com.tyron.completion.xml.util.StyleUtils
+import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository
+import com.tyron.completion.xml.v2.project.LocalResourceRepository
+import org.jetbrains.kotlin.com.intellij.openapi.util.Key
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Index from view classes to the attributes that can be used on them.
+ *
+ * The public framework styleables and the styleables of the app are grouped by name once, the
+ * attributes of a tag, including the ones it inherits and the layout params of its parent,
+ * are resolved on the first request and reused. The index is rebuilt when the app resources
+ * or the known view classes change.
+ */
+class StyleableIndex private constructor(
+    private val frameworkResRepository: FrameworkResourceRepository,
+    private val appResources: LocalResourceRepository,
+    private val namespaces: List<String>
+) {
+
+    private val appModificationCount = appResources.modificationCount
+    private val classesModificationCount = StyleUtils.getModificationCount()
+
+    private val styleablesByName: Map<String, List<StyleableResourceValue>> = run {
+        val result = HashMap<String, MutableList<StyleableResourceValue>>()
+        val items = frameworkResRepository.getPublicResources(
+            ResourceNamespace.ANDROID,
+            ResourceType.STYLEABLE
+        ) + namespaces.flatMap {
+            appResources.getResources(
+                ResourceNamespace.fromNamespaceUri(it),
+                ResourceType.STYLEABLE
+            ).values()
+        }
+        for (item in items) {
+            val styleable = item.asStyleable() ?: continue
+            result.getOrPut(item.name) { ArrayList() }.add(styleable)
+        }
+        result
+    }
+
+    /**
+     * The styleables used when a view class is not known, based on android studio's behavior
+     */
+    private val unknownStyleables = styleablesByName.filterKeys {
+        it == "ViewGroup" || it.endsWith("_Layout") || it == "View"
+    }.values.flatten()
+
+    private val attributesByTag = ConcurrentHashMap<String, List<AttrResourceValue>>()
+
+    /**
+     * @param tagName The name of the tag being completed
+     * @param parentTagName The name of its parent tag, or null if it is the root
+     * @return The attributes of the tag without duplicates
+     */
+    fun getAttributes(tagName: String, parentTagName: String?): List<AttrResourceValue> {
+        val key = if (parentTagName == null) tagName else "$tagName\u0000$parentTagName"
+        return attributesByTag.computeIfAbsent(key) {
+            resolveAttributes(tagName, parentTagName)
+        }
+    }
+
+    private fun resolveAttributes(tagName: String, parentTagName: String?): List<AttrResourceValue> {
+        val simpleTagName = StyleUtils.getSimpleName(tagName)
+        val styleables = ArrayList<StyleableResourceValue>()
+        addStyleables(styleables, simpleTagName)
+
+        // styleable names from the parent classes of the view,
+        // e.g the parent of TextView is View, so include that as well.
+        val currentViewClasses = StyleUtils.getClasses(simpleTagName)
+        if (currentViewClasses.isEmpty()) {
+            styleables.addAll(unknownStyleables)
+        } else {
+            currentViewClasses.forEach { addStyleables(styleables, it) }
+        }
+
+        // all layout params styles should end in _Layout by convention
+        if (parentTagName != null) {
+            val classes = StyleUtils.getClasses(StyleUtils.getSimpleName(parentTagName))
+            if (classes.isEmpty()) {
+                styleables.addAll(unknownStyleables)
+            } else {
+                classes.forEach { addStyleables(styleables, it + "_Layout") }
+            }
+        }
+
+        val attributes = LinkedHashMap<ResourceReference, AttrResourceValue>()
+        for (styleable in styleables) {
+            for (attribute in styleable.allAttributes) {
+                if (attribute.name.startsWith("__removed")
+                    && (attribute.description == null || attribute.description.contains("@hide"))
+                ) {
+                    continue
+                }
+                attributes.putIfAbsent(attribute.asReference(), attribute)
+            }
+        }
+        return attributes.values.toList()
+    }
+
+    private fun addStyleables(result: MutableList<StyleableResourceValue>, name: String) {
+        styleablesByName[name]?.let { result.addAll(it) }
+    }
+
+    private fun isUpToDate(
+        frameworkResRepository: FrameworkResourceRepository,
+        appResources: LocalResourceRepository,
+        namespaces: List<String>
+    ): Boolean {
+        return this.frameworkResRepository === frameworkResRepository
+                && this.appResources === appResources
+                && this.namespaces == namespaces
+                && appModificationCount == appResources.modificationCount
+                && classesModificationCount == StyleUtils.getModificationCount()
+    }
+
+    companion object {
+
+        private val STYLEABLE_INDEX_KEY = Key.create<StyleableIndex>("styleableIndex")
+
+        @JvmStatic
+        fun getInstance(
+            module: AndroidModule,
+            frameworkResRepository: FrameworkResourceRepository,
+            appResources: LocalResourceRepository,
+            namespaces: List<String>
+        ): StyleableIndex {
+            synchronized(module) {
+                var index = module.getUserData(STYLEABLE_INDEX_KEY)
+                if (index == null || !index.isUpToDate(frameworkResRepository, appResources, namespaces)) {
+                    index = StyleableIndex(frameworkResRepository, appResources, namespaces)
+                    module.putUserData(STYLEABLE_INDEX_KEY, index)
+                }
+                return index
+            }
+        }
+
+        private fun ResourceItem.asStyleable(): StyleableResourceValue? {
+            return this as? StyleableResourceValue ?: resourceValue as? StyleableResourceValue
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.android.resources.ResourceType;
 import com.google.common.base.MoreObjects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.hash.Hashing;
 import com.tyron.builder.project.api.AndroidContentRoot;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.xml.v2.aar.FrameworkResourceRepository;
@@ -17,14 +18,26 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class ModuleResourceRepository extends MultiResourceRepository implements SingleNamespaceResourceRepository {
 
+    private static final String RESOURCE_CACHE_DIRECTORY = "intermediate/resource-cache";
+    private static final String CACHE_CODE_VERSION = "7.4";
+    private static final Executor CACHE_CREATION_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ResourceCacheWriter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     @NotNull private final AndroidModule myFacet;
     @NotNull private final ResourceNamespace myNamespace;
     @NotNull private final SourceSet mySourceSet;
@@ -91,11 +104,28 @@ public class ModuleResourceRepository extends MultiResourceRepository implements
                     facet,
                     resourceDirectory,
                     ResourceRepositoryManager.getInstance(facet).getNamespace(),
-                    null);
+                    createCachingData(facet, resourceDirectory));
             childRepositories.add(resourceFolderRepository);
         }
     }
 
+    /**
+     * The snapshot of a resource directory is stored in the build directory of the module,
+     * so it is removed together with the other intermediates of the module.
+     */
+    @NotNull
+    private static ResourceFolderRepositoryCachingData createCachingData(@NotNull AndroidModule facet,
+                                                                         @NotNull File resourceDirectory) {
+        String pathHash = Hashing.farmHashFingerprint64()
+                .hashUnencodedChars(resourceDirectory.getAbsolutePath())
+                .toString();
+        String fileName = String.format("%s_%s.dat", resourceDirectory.getName(), pathHash);
+        Path cacheFile = Paths.get(facet.getBuildDirectory().getAbsolutePath(),
+                RESOURCE_CACHE_DIRECTORY, fileName);
+        return new ResourceFolderRepositoryCachingData(cacheFile, false, CACHE_CODE_VERSION,
+                CACHE_CREATION_EXECUTOR);
+    }
+
     private ModuleResourceRepository(@NotNull AndroidModule facet,
                                      @NotNull ResourceNamespace namespace,
                                      @NotNull List<? extends LocalResourceRepository> delegates,
@@ -28,18 +28,22 @@ import com.android.resources.FolderTypeRelationship;
 import com.android.resources.ResourceFolderType;
 import com.android.resources.ResourceType;
 import com.android.resources.ResourceVisibility;
+import com.android.utils.Base128InputStream;
 import com.android.utils.SdkUtils;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import com.tyron.builder.project.api.AndroidModule;
 import com.tyron.completion.progress.ProcessCanceledException;
 import com.tyron.completion.progress.ProgressManager;
+import com.tyron.completion.xml.v2.base.BasicDensityBasedFileResourceItem;
 import com.tyron.completion.xml.v2.base.BasicFileResourceItem;
 import com.tyron.completion.xml.v2.base.BasicResourceItem;
 import com.tyron.completion.xml.v2.base.BasicValueResourceItemBase;
 import com.tyron.completion.xml.v2.base.LoadableResourceRepository;
 import com.tyron.completion.xml.v2.base.RepositoryConfiguration;
 import com.tyron.completion.xml.v2.base.RepositoryLoader;
+import com.tyron.completion.xml.v2.base.ResourceSerializationUtil;
 import com.tyron.completion.xml.v2.base.ResourceSourceFile;
 import com.tyron.completion.xml.v2.events.XmlReparsedEvent;
 import com.tyron.completion.xml.v2.events.XmlResourceChangeEvent;
@@ -60,6 +64,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -75,6 +80,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import javax.lang.model.SourceVersion;
 
@@ -83,6 +89,13 @@ import kotlin.io.FilesKt;
 
 public final class ResourceFolderRepository extends LocalResourceRepository implements LoadableResourceRepository {
 
+    /**
+     * Increment when making changes that may affect content of repository cache files.
+     * Used together with CachingData.codeVersion. Important for developer builds.
+     */
+    static final String CACHE_FILE_FORMAT_VERSION = "1";
+    private static final byte[] CACHE_FILE_HEADER = "Project resource cache".getBytes(StandardCharsets.UTF_8);
+
     @NotNull
     private final ConcurrentMap<File, ResourceItemSource<?>> mySources = new ConcurrentHashMap<>();
     @SuppressWarnings("InstanceGuardedByStatic")
@@ -212,6 +225,61 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         return myResourcePathBase.resolve(relativeResourcePath);
     }
 
+    /**
+     * Source files are validated against the time stamp and length recorded in the cache, a
+     * source file that has changed since the cache was written has no virtual file and the
+     * items that came from it are discarded by the loader.
+     */
+    @Override
+    @NotNull
+    public ResourceSourceFile deserializeResourceSourceFile(@NotNull Base128InputStream stream,
+                                                            @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        String relativePath = stream.readString();
+        if (relativePath == null) {
+            throw Base128InputStream.StreamFormatException.invalidFormat();
+        }
+        RepositoryConfiguration configuration = configurations.get(stream.readInt());
+        File virtualFile = new File(myResourceDir, relativePath);
+        if (!stream.validateContents(FileTimeStampLengthHasher.hash(virtualFile))) {
+            virtualFile = null;
+        }
+        return new VfsResourceFile(virtualFile, configuration);
+    }
+
+    @Override
+    @NotNull
+    public BasicFileResourceItem deserializeFileResourceItem(@NotNull Base128InputStream stream,
+                                                             @NotNull ResourceType resourceType,
+                                                             @NotNull String name,
+                                                             @NotNull ResourceVisibility visibility,
+                                                             @NotNull List<RepositoryConfiguration> configurations) throws IOException {
+        String relativePath = stream.readString();
+        if (relativePath == null) {
+            throw Base128InputStream.StreamFormatException.invalidFormat();
+        }
+        RepositoryConfiguration configuration = configurations.get(stream.readInt());
+        int encodedDensity = stream.readInt();
+        Density density = encodedDensity == 0 ? null : Density.values()[encodedDensity - 1];
+
+        int slash = relativePath.indexOf('/');
+        ResourceFolderType folderType = slash < 0 ? null :
+                ResourceFolderType.getFolderType(relativePath.substring(0, slash));
+        if (folderType == null || !FolderTypeRelationship.isIdGeneratingFolderType(folderType)) {
+            // Only the items of id generating files are written as VfsFileResourceItem.
+            return density == null
+                    ? new BasicFileResourceItem(resourceType, name, configuration, visibility, relativePath)
+                    : new BasicDensityBasedFileResourceItem(resourceType, name, configuration, visibility, relativePath, density);
+        }
+
+        File virtualFile = new File(myResourceDir, relativePath);
+        if (!stream.validateContents(FileTimeStampLengthHasher.hash(virtualFile))) {
+            virtualFile = null;
+        }
+        return density == null
+                ? new VfsFileResourceItem(resourceType, name, configuration, visibility, relativePath, virtualFile)
+                : new VfsDensityBasedFileResourceItem(resourceType, name, configuration, visibility, relativePath, virtualFile, density);
+    }
+
     @Override
     public boolean containsUserDefinedResources() {
         return true;
@@ -715,6 +783,8 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
 
         private final ResourceFolderRepository myRepository;
         private final File myResourceDir;
+        @Nullable
+        private final ResourceFolderRepositoryCachingData myCachingData;
 
         @NotNull
         private final Map<ResourceType, ListMultimap<String, ResourceItem>> myResources =
@@ -732,6 +802,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
         private PathString myLastPathString;
 
         @NotNull Set<File> myFilesToReparseAsPsi = new HashSet<>();
+        private boolean myLoadedFromCache;
         private static final Logger LOG = Logger.getInstance(ResourceFolderRepository.class);
 
         Loader(@NotNull ResourceFolderRepository repository,
@@ -739,6 +810,7 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
             super(repository.myResourceDir.toPath(), null, repository.getNamespace());
             myRepository = repository;
             myResourceDir = repository.myResourceDir;
+            myCachingData = cachingData;
             myDefaultVisibility = ResourceVisibility.UNDEFINED;
         }
 
@@ -747,11 +819,88 @@ public final class ResourceFolderRepository extends LocalResourceRepository impl
                 return;
             }
 
+            loadFromPersistentCache();
+
             scanResFolder();
 
             populateRepository();
 
             scanQueuedPsiResources();
+
+            if (myCachingData != null) {
+                Executor executor = myCachingData.getCacheCreationExecutor();
+                if (executor != null && isCacheStale()) {
+                    executor.execute(this::createCacheFile);
+                }
+            }
+        }
+
+        /**
+         * Loads the items of the files that have not changed since the cache was written. Files
+         * that have changed are not added to {@link #mySources} or {@link #myFileResources} so
+         * they are parsed again by {@link #scanResFolder()}.
+         */
+        private void loadFromPersistentCache() {
+            if (myCachingData == null || myCachingData.getCacheIsInvalidated()) {
+                return;
+            }
+
+            byte[] fileHeader = getCacheFileHeader(myCachingData);
+            try (Base128InputStream stream = new Base128InputStream(myCachingData.getCacheFile())) {
+                if (!stream.validateContents(fileHeader)) {
+                    return; // Cache file header doesn't match.
+                }
+                ResourceSerializationUtil.readResourcesFromStream(stream,
+                        Maps.newHashMapWithExpectedSize(1000), null, myRepository,
+                        item -> addResourceItem(item, myRepository));
+                myLoadedFromCache = true;
+            } catch (NoSuchFileException ignored) {
+                // Cache file does not exist.
+            } catch (ProcessCanceledException e) {
+                cleanupAfterFailedLoadingFromCache();
+                throw e;
+            } catch (Throwable e) {
+                cleanupAfterFailedLoadingFromCache();
+                LOG.warn("Failed to load resources from cache file " +
+                         myCachingData.getCacheFile(), e);
+            }
+        }
+
+        private void cleanupAfterFailedLoadingFromCache() {
+            mySources.clear();
+            myFileResources.clear();
+        }
+
+        /**
+         * The cache is written again when it could not be loaded or when a file had to be parsed.
+         * Entries of deleted files are ignored when loading and are dropped on the next write.
+         */
+        private boolean isCacheStale() {
+            return !myLoadedFromCache || myRepository.myNumXmlFilesLoadedInitiallyFromSources > 0;
+        }
+
+        private void createCacheFile() {
+            assert myCachingData != null;
+            byte[] header = getCacheFileHeader(myCachingData);
+            try {
+                ResourceSerializationUtil.createPersistentCache(myCachingData.getCacheFile(),
+                        header,
+                        stream -> ResourceSerializationUtil.writeResourcesToStream(myResources,
+                                stream,
+                                config -> true));
+            } catch (Throwable e) {
+                LOG.warn("Unable to create cache file " + myCachingData.getCacheFile(), e);
+            }
+        }
+
+        @NotNull
+        private byte[] getCacheFileHeader(@NotNull ResourceFolderRepositoryCachingData cachingData) {
+            return ResourceSerializationUtil.getCacheFileHeader(stream -> {
+                stream.write(CACHE_FILE_HEADER);
+                stream.writeString(CACHE_FILE_FORMAT_VERSION);
+                stream.writeString(myResourceDir.getPath());
+                stream.writeString(cachingData.getCodeVersion());
+            });
         }
 
         /**